@@ -0,0 +1,98 @@
+package com.example.entbridge.benchmarks;
+
+import com.example.entbridge.service.Grading;
+import com.example.entbridge.service.ScoringRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность и аллокации проверки: java -jar target/benchmarks.jar GradingBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+    private static final int OPTIONS = 4;
+
+    @Param({ "20", "200", "2000", "20000" })
+    int bankSize;
+
+    @Param({ "SINGLE_CHOICE", "ALL_OR_NOTHING", "PARTIAL_CREDIT" })
+    ScoringRule rule;
+
+    long[] questionIds;
+    int[] optionOffsets;
+    long[] optionIds;
+    long[] correctMasks;
+    int[] points;
+    long[] answerQuestionIds;
+    long[] answerOptionIds;
+    long[] selected;
+    boolean[] correct;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        questionIds = new long[bankSize];
+        optionOffsets = new int[bankSize + 1];
+        optionIds = new long[bankSize * OPTIONS];
+        correctMasks = new long[bankSize];
+        points = new int[bankSize];
+        long id = 1000;
+        for (int i = 0; i < bankSize; i++) {
+            id += 1 + random.nextInt(3);
+            questionIds[i] = id;
+            optionOffsets[i] = i * OPTIONS;
+            for (int o = 0; o < OPTIONS; o++) {
+                optionIds[i * OPTIONS + o] = id * OPTIONS + o;
+            }
+            correctMasks[i] = 1L << random.nextInt(OPTIONS) | (random.nextInt(5) == 0 ? 1L << random.nextInt(OPTIONS) : 0);
+            points[i] = 1 + random.nextInt(2);
+        }
+        optionOffsets[bankSize] = bankSize * OPTIONS;
+        // Ответы приходят в произвольном порядке, часть вопросов пропущена.
+        answerQuestionIds = new long[bankSize];
+        answerOptionIds = new long[bankSize];
+        for (int i = 0; i < bankSize; i++) {
+            int q = random.nextInt(bankSize);
+            answerQuestionIds[i] = questionIds[q];
+            answerOptionIds[i] = random.nextInt(10) == 0 ? Grading.NO_OPTION
+                    : questionIds[q] * OPTIONS + random.nextInt(OPTIONS);
+        }
+        selected = new long[bankSize];
+        correct = new boolean[bankSize];
+    }
+
+    @Benchmark
+    public int gradeWholeBank() {
+        Grading.alignSelections(questionIds, optionOffsets, optionIds, null, answerQuestionIds, answerOptionIds,
+                bankSize, selected);
+        double earned = Grading.score(rule, correctMasks, points, null, selected, correct);
+        return Grading.scale(earned, Grading.possible(rule, points, null), 100);
+    }
+
+    // Как в TestService: выходные массивы создаются на каждую отправку.
+    @Benchmark
+    public int gradeWithFreshBuffers() {
+        long[] freshSelected = new long[bankSize];
+        boolean[] freshCorrect = new boolean[bankSize];
+        Grading.alignSelections(questionIds, optionOffsets, optionIds, null, answerQuestionIds, answerOptionIds,
+                bankSize, freshSelected);
+        double earned = Grading.score(rule, correctMasks, points, null, freshSelected, freshCorrect);
+        return Grading.scale(earned, Grading.possible(rule, points, null), 100);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.entbridge.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Строк в секунду при записи импорта вопросов (вопрос + 4 варианта) на уровне JDBC, как её выполняет Hibernate:
+//   IDENTITY_PER_ROW — до перехода на sequence: каждый INSERT отдельным запросом с возвратом ключа;
+//   POOLED_BATCH — после: id из sequence пулом по 50, INSERT пачками по 50, вопросы перед вариантами.
+// java -jar target/benchmarks.jar ImportInsertBenchmark
+// На H2 в памяти стоимость запроса почти нулевая, разница видна сильнее на настоящей базе:
+// -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/entbridge?reWriteBatchedInserts=true -Dbench.jdbc.user=...
+// Это модель запросов, а не сам импорт: что QuestionBankWriter через Hibernate действительно пишет пачками,
+// проверяет QuestionBankWriterTest по статистике Hibernate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportInsertBenchmark {
+    private static final int QUESTIONS = 500;
+    private static final int OPTIONS = 4;
+    private static final int ROWS = QUESTIONS * (1 + OPTIONS);
+    private static final int BATCH = 50;
+
+    @Param({ "IDENTITY_PER_ROW", "POOLED_BATCH" })
+    String mode;
+
+    Connection connection;
+    long subjectId = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:h2:mem:import-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        connection = DriverManager.getConnection(url, System.getProperty("bench.jdbc.user", "sa"),
+                System.getProperty("bench.jdbc.password", ""));
+        connection.setAutoCommit(false);
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_options");
+            st.execute("DROP TABLE IF EXISTS bench_questions");
+            st.execute("DROP SEQUENCE IF EXISTS bench_questions_seq");
+            st.execute("DROP SEQUENCE IF EXISTS bench_options_seq");
+            st.execute("CREATE SEQUENCE bench_questions_seq START WITH 1 INCREMENT BY " + BATCH);
+            st.execute("CREATE SEQUENCE bench_options_seq START WITH 1 INCREMENT BY " + BATCH);
+            st.execute("CREATE TABLE bench_questions (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "subject_id bigint, text text, points int, explanation text)");
+            st.execute("CREATE TABLE bench_options (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "question_id bigint, text text, is_correct boolean)");
+        }
+        connection.commit();
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("TRUNCATE TABLE bench_options");
+            st.execute("TRUNCATE TABLE bench_questions");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_options");
+            st.execute("DROP TABLE IF EXISTS bench_questions");
+            st.execute("DROP SEQUENCE IF EXISTS bench_questions_seq");
+            st.execute("DROP SEQUENCE IF EXISTS bench_options_seq");
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void importRows() throws SQLException {
+        if ("POOLED_BATCH".equals(mode)) {
+            pooledBatch();
+        } else {
+            identityPerRow();
+        }
+        connection.commit();
+    }
+
+    private void identityPerRow() throws SQLException {
+        try (PreparedStatement questions = connection.prepareStatement(
+                "INSERT INTO bench_questions (subject_id, text, points, explanation) VALUES (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+                PreparedStatement options = connection.prepareStatement(
+                        "INSERT INTO bench_options (question_id, text, is_correct) VALUES (?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+            for (int q = 0; q < QUESTIONS; q++) {
+                bindQuestion(questions, q);
+                questions.executeUpdate();
+                long questionId = generatedKey(questions);
+                for (int o = 0; o < OPTIONS; o++) {
+                    bindOption(options, questionId, o);
+                    options.executeUpdate();
+                    generatedKey(options);
+                }
+            }
+        }
+    }
+
+    private void pooledBatch() throws SQLException {
+        try (PreparedStatement questions = connection.prepareStatement(
+                "INSERT INTO bench_questions (id, subject_id, text, points, explanation) VALUES (?, ?, ?, ?, ?)");
+                PreparedStatement options = connection.prepareStatement(
+                        "INSERT INTO bench_options (id, question_id, text, is_correct) VALUES (?, ?, ?, ?)");
+                PreparedStatement nextQuestionIds = connection.prepareStatement(
+                        "SELECT nextval('bench_questions_seq')");
+                PreparedStatement nextOptionIds = connection.prepareStatement(
+                        "SELECT nextval('bench_options_seq')")) {
+            IdPool questionIds = new IdPool(nextQuestionIds);
+            IdPool optionIds = new IdPool(nextOptionIds);
+            // Как order_inserts: сначала пачка вопросов, затем пачка их вариантов.
+            for (int from = 0; from < QUESTIONS; from += BATCH) {
+                int to = Math.min(QUESTIONS, from + BATCH);
+                long[] ids = new long[to - from];
+                for (int q = from; q < to; q++) {
+                    ids[q - from] = questionIds.next();
+                    questions.setLong(1, ids[q - from]);
+                    questions.setLong(2, subjectId);
+                    questions.setString(3, "Вопрос " + q);
+                    questions.setInt(4, 1);
+                    questions.setString(5, null);
+                    questions.addBatch();
+                }
+                questions.executeBatch();
+                int pending = 0;
+                for (long questionId : ids) {
+                    for (int o = 0; o < OPTIONS; o++) {
+                        options.setLong(1, optionIds.next());
+                        options.setLong(2, questionId);
+                        options.setString(3, "Вариант " + o);
+                        options.setBoolean(4, o == 0);
+                        options.addBatch();
+                        if (++pending == BATCH) {
+                            options.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    options.executeBatch();
+                }
+            }
+        }
+    }
+
+    private void bindQuestion(PreparedStatement st, int q) throws SQLException {
+        st.setLong(1, subjectId);
+        st.setString(2, "Вопрос " + q);
+        st.setInt(3, 1);
+        st.setString(4, null);
+    }
+
+    private static void bindOption(PreparedStatement st, long questionId, int o) throws SQLException {
+        st.setLong(1, questionId);
+        st.setString(2, "Вариант " + o);
+        st.setBoolean(3, o == 0);
+    }
+
+    private static long generatedKey(PreparedStatement st) throws SQLException {
+        try (ResultSet keys = st.getGeneratedKeys()) {
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    // Блок из BATCH идентификаторов на одно обращение к sequence, как у pooled optimizer Hibernate.
+    private static final class IdPool {
+        private final PreparedStatement nextValue;
+        private long next;
+        private long limit;
+
+        private IdPool(PreparedStatement nextValue) {
+            this.nextValue = nextValue;
+        }
+
+        long next() throws SQLException {
+            if (next >= limit) {
+                try (ResultSet rs = nextValue.executeQuery()) {
+                    rs.next();
+                    limit = rs.getLong(1) + BATCH;
+                    next = limit - BATCH;
+                }
+            }
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.entbridge.config;
+
+import com.example.entbridge.exception.TooManyRequestsException;
+import com.example.entbridge.util.AdaptiveLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+    private final ConcurrentHashMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdmissionControlInterceptor(Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${app.admission.enabled:true}") boolean enabled,
+            @Value("${app.admission.max-wait-ms:500}") long maxWaitMs,
+            @Value("${app.admission.retry-after-seconds:2}") long retryAfterSeconds) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        if (!enabled || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        AdmissionControlled annotation = method.getMethodAnnotation(AdmissionControlled.class);
+        if (annotation == null) {
+            return true;
+        }
+        String group = annotation.value();
+        AdaptiveLimiter limiter = limiters.computeIfAbsent(group, this::createLimiter);
+        AdaptiveLimiter.Outcome outcome = limiter.acquire(maxWaitNanos);
+        meterRegistry.counter("entbridge.admission.requests", "group", group,
+                "outcome", outcome.name().toLowerCase()).increment();
+        if (outcome == AdaptiveLimiter.Outcome.REJECTED) {
+            throw new TooManyRequestsException(retryAfterSeconds, "Сервер перегружен, повторите запрос позже");
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limiter, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            // Ошибки (в т.ч. таймауты пула соединений) считаем медленными, чтобы быстрые отказы не раздували лимит.
+            long latency = System.nanoTime() - permit.startedAt();
+            boolean failed = ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+            permit.limiter().release(failed ? Math.max(latency, maxWaitNanos) : latency);
+        }
+    }
+
+    private AdaptiveLimiter createLimiter(String group) {
+        String prefix = "app.admission." + group + ".";
+        AdaptiveLimiter limiter = new AdaptiveLimiter(
+                environment.getProperty(prefix + "initial-limit", Integer.class, 16),
+                environment.getProperty(prefix + "min-limit", Integer.class, 2),
+                environment.getProperty(prefix + "max-limit", Integer.class, 128),
+                environment.getProperty(prefix + "queue-size", Integer.class, 32));
+        Gauge.builder("entbridge.admission.limit", limiter, AdaptiveLimiter::limit).tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("entbridge.admission.in_flight", limiter, AdaptiveLimiter::inFlight).tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("entbridge.admission.waiting", limiter, AdaptiveLimiter::waiting).tag("group", group)
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    private record Permit(AdaptiveLimiter limiter, long startedAt) {
+    }
+}
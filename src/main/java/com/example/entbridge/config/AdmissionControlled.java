@@ -0,0 +1,13 @@
+package com.example.entbridge.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Метод контроллера проходит через ограничитель группы (app.admission.<группа>.*).
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionControlled {
+    String value();
+}
@@ -0,0 +1,76 @@
+package com.example.entbridge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Собственные Executor-бины отключают автоконфигурацию, поэтому стандартный пул объявлен явно.
+    @Lazy
+    @Bean(name = { TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME })
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor gradingExecutor(@Value("${app.grading.pool-size:0}") int poolSize,
+            @Value("${app.grading.queue-capacity:1000}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("grading-");
+        // При переполнении очереди проверка выполняется в потоке запроса.
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Проверка пачек массовых заданий. Отдельно от gradingExecutor, чтобы большая загрузка не занимала потоки
+    // онлайн-проверки; очередь ограничена окном пачек каждого задания, при переполнении пачку проверяет поток задания.
+    @Bean
+    public ThreadPoolTaskExecutor bulkGradingExecutor(@Value("${app.bulk-grading.pool-size:0}") int poolSize,
+            @Value("${app.bulk-grading.queue-capacity:64}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bulk-grading-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Фоновые массовые задания; без очереди — лишнее задание отклоняется сразу.
+    @Bean
+    public ThreadPoolTaskExecutor bulkJobExecutor(@Value("${app.bulk-grading.max-jobs:2}") int maxJobs) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxJobs);
+        executor.setMaxPoolSize(maxJobs);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("bulk-job-");
+        return executor;
+    }
+
+    // Фоновые импорты вопросов. Задания хранятся в import_jobs, поэтому короткая очередь безопасна.
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(@Value("${app.import.max-jobs:2}") int maxJobs,
+            @Value("${app.import.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxJobs);
+        executor.setMaxPoolSize(maxJobs);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        return executor;
+    }
+}
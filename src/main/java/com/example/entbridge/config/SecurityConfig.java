@@ -56,6 +56,9 @@ public class SecurityConfig {
                                                 .permitAll()
                                                 // публичные ресурсы
                                                 .requestMatchers("/api/v1/subjects/**", "/api/v1/videos/**").permitAll()
+                                                // мониторинг
+                                                .requestMatchers("/actuator/health").permitAll()
+                                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                                 .anyRequest().authenticated())
                                 .oauth2Login(oauth2 -> oauth2
                                                 .successHandler(oAuth2LoginSuccessHandler))
@@ -1,5 +1,6 @@
 package com.example.entbridge.controller;
 
+import com.example.entbridge.config.AdmissionControlled;
 import com.example.entbridge.dto.AdminDtos;
 import com.example.entbridge.dto.HomeworkDtos;
 import com.example.entbridge.dto.TestDtos;
@@ -7,13 +8,25 @@ import com.example.entbridge.dto.SubjectDto;
 import com.example.entbridge.mapper.SubjectMapper;
 import com.example.entbridge.security.UserPrincipal;
 import com.example.entbridge.service.AdminService;
+import com.example.entbridge.service.BulkGradingService;
+import com.example.entbridge.service.ItemStatsService;
+import com.example.entbridge.service.QuestionImportService;
+import com.example.entbridge.service.ResultExportService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -23,10 +36,20 @@ import java.util.Map;
 public class AdminController {
     private final AdminService adminService;
     private final SubjectMapper subjectMapper;
-
-    public AdminController(AdminService adminService, SubjectMapper subjectMapper) {
+    private final ItemStatsService itemStatsService;
+    private final BulkGradingService bulkGradingService;
+    private final QuestionImportService questionImportService;
+    private final ResultExportService resultExportService;
+
+    public AdminController(AdminService adminService, SubjectMapper subjectMapper,
+            ItemStatsService itemStatsService, BulkGradingService bulkGradingService,
+            QuestionImportService questionImportService, ResultExportService resultExportService) {
         this.adminService = adminService;
         this.subjectMapper = subjectMapper;
+        this.itemStatsService = itemStatsService;
+        this.bulkGradingService = bulkGradingService;
+        this.questionImportService = questionImportService;
+        this.resultExportService = resultExportService;
     }
 
     @GetMapping("/users")
@@ -35,10 +58,29 @@ public class AdminController {
     }
 
     @GetMapping("/results")
+    @AdmissionControlled("admin")
     public List<TestDtos.ResultDto> results() {
         return adminService.listResults();
     }
 
+    // Потоковая выгрузка; to — включительно. Пишется синхронно в поток запроса, поэтому
+    // spring.mvc.async.request-timeout её не обрывает, сколько бы ни шла выгрузка. Без admission control:
+    // число одновременных выгрузок, а значит и занятых ими потоков запросов, ограничивает сам ResultExportService.
+    @GetMapping("/results/export")
+    public void exportResults(@RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String subjectId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletResponse response) throws IOException {
+        ResultExportService.Format exportFormat = ResultExportService.parseFormat(format);
+        StreamingResponseBody body = resultExportService.export(exportFormat, subjectId, userId, from, to);
+        response.setContentType(exportFormat.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"results-" + LocalDate.now() + "." + exportFormat.extension() + "\"");
+        body.writeTo(response.getOutputStream());
+    }
+
     @GetMapping("/homework")
     public List<HomeworkDtos.HomeworkDto> homework() {
         return adminService.listHomework();
@@ -88,11 +130,68 @@ public class AdminController {
         return Map.of("id", question.getId().toString(), "message", "Вопрос создан");
     }
 
+    @GetMapping("/questions/stats")
+    public List<AdminDtos.ItemStatDto> questionStats(@RequestParam String subjectId,
+            @RequestParam(defaultValue = "pValue") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(defaultValue = "20") long minAttempts,
+            @RequestParam(defaultValue = "50") int limit) {
+        return itemStatsService.ranking(subjectId, sort, order, minAttempts, limit);
+    }
+
     @PostMapping(value = "/questions/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @AdmissionControlled("admin")
     public AdminDtos.ImportQuestionsResponse importQuestions(@AuthenticationPrincipal UserPrincipal principal,
             @RequestPart("file") MultipartFile file,
-            @RequestPart("subjectId") String subjectId) {
-        return adminService.importQuestions(principal.id(), subjectId, file);
+            @RequestPart("subjectId") String subjectId,
+            @RequestPart(value = "mode", required = false) String mode) {
+        return adminService.importQuestions(principal.id(), subjectId, mode, file);
+    }
+
+    @PostMapping(value = "/questions/import/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public AdminDtos.ImportJobDto startImportJob(@AuthenticationPrincipal UserPrincipal principal,
+            @RequestPart("file") MultipartFile file,
+            @RequestPart("subjectId") String subjectId,
+            @RequestPart(value = "mode", required = false) String mode) {
+        return questionImportService.start(principal.id(), subjectId, mode, file);
+    }
+
+    @GetMapping("/questions/import/jobs")
+    public List<AdminDtos.ImportJobDto> importJobs(@RequestParam(defaultValue = "20") int limit) {
+        return questionImportService.list(limit);
+    }
+
+    @GetMapping("/questions/import/jobs/{jobId}")
+    public AdminDtos.ImportJobDto importJobStatus(@PathVariable String jobId) {
+        return questionImportService.status(jobId);
+    }
+
+    @GetMapping(value = "/questions/import/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter importJobEvents(@PathVariable String jobId) {
+        return questionImportService.stream(jobId);
+    }
+
+    @PostMapping("/questions/import/jobs/{jobId}/cancel")
+    public AdminDtos.ImportJobDto cancelImportJob(@PathVariable String jobId) {
+        return questionImportService.cancel(jobId);
+    }
+
+    @PostMapping("/questions/import/jobs/{jobId}/resume")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public AdminDtos.ImportJobDto resumeImportJob(@PathVariable String jobId) {
+        return questionImportService.resume(jobId);
+    }
+
+    @PostMapping(value = "/grading/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public AdminDtos.BulkGradingJobDto startBulkGrading(@RequestPart("file") MultipartFile file) {
+        return bulkGradingService.start(file);
+    }
+
+    @GetMapping("/grading/bulk/{jobId}")
+    public AdminDtos.BulkGradingJobDto bulkGradingStatus(@PathVariable String jobId) {
+        return bulkGradingService.status(jobId);
     }
 
     @PostMapping("/videos")
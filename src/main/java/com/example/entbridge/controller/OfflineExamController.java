@@ -0,0 +1,48 @@
+package com.example.entbridge.controller;
+
+import com.example.entbridge.config.AdmissionControlled;
+import com.example.entbridge.dto.OfflineDtos;
+import com.example.entbridge.service.OfflineExamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api/v1/admin/offline")
+@PreAuthorize("hasRole('ADMIN')")
+public class OfflineExamController {
+    private final OfflineExamService offlineExamService;
+
+    public OfflineExamController(OfflineExamService offlineExamService) {
+        this.offlineExamService = offlineExamService;
+    }
+
+    @PostMapping("/packages")
+    public ResponseEntity<StreamingResponseBody> buildPackage(@RequestBody @Valid OfflineDtos.PackageRequest request) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"exam-" + request.subjectId() + ".json.gz\"")
+                .body(offlineExamService.buildPackage(request));
+    }
+
+    // Тело читается потоком; школа может прислать его сжатым (Content-Encoding: gzip).
+    @PostMapping(value = "/sync", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @AdmissionControlled("admin")
+    public OfflineDtos.SyncResultDto sync(HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body);
+        }
+        return offlineExamService.sync(body);
+    }
+}
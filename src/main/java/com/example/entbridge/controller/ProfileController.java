@@ -5,7 +5,9 @@ import com.example.entbridge.dto.ProfileDtos;
 import com.example.entbridge.exception.ApiException;
 import com.example.entbridge.mapper.UserMapper;
 import com.example.entbridge.security.UserPrincipal;
+import com.example.entbridge.service.LeaderboardService;
 import com.example.entbridge.service.ProfileService;
+import com.example.entbridge.service.ReviewService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
@@ -20,11 +22,17 @@ import java.util.Map;
 public class ProfileController {
     private final ProfileService profileService;
     private final UserMapper userMapper;
+    private final LeaderboardService leaderboardService;
+    private final ReviewService reviewService;
 
     public ProfileController(ProfileService profileService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             LeaderboardService leaderboardService,
+                             ReviewService reviewService) {
         this.profileService = profileService;
         this.userMapper = userMapper;
+        this.leaderboardService = leaderboardService;
+        this.reviewService = reviewService;
     }
 
     @GetMapping("/results")
@@ -35,6 +43,31 @@ public class ProfileController {
         return ResponseEntity.ok(Map.of("content", pr.getContent(), "totalElements", pr.getTotalElements()));
     }
 
+    @GetMapping("/results/{resultId}/answers")
+    public ResponseEntity<?> resultAnswers(@PathVariable Long resultId,
+                                           @AuthenticationPrincipal UserPrincipal principal) {
+        return ResponseEntity.ok(profileService.resultAnswers(requireUserId(principal), resultId));
+    }
+
+    @GetMapping("/rank/{subjectId}")
+    public ResponseEntity<ProfileDtos.RankDto> rank(@PathVariable String subjectId,
+                                                    @AuthenticationPrincipal UserPrincipal principal) {
+        return ResponseEntity.ok(leaderboardService.rank(requireUserId(principal), subjectId));
+    }
+
+    @GetMapping("/review/due")
+    public ResponseEntity<ProfileDtos.ReviewDueDto> reviewDue(@RequestParam(defaultValue = "20") int limit,
+                                                              @AuthenticationPrincipal UserPrincipal principal) {
+        return ResponseEntity.ok(reviewService.due(requireUserId(principal), limit));
+    }
+
+    @PostMapping("/review/{questionId}")
+    public ResponseEntity<ProfileDtos.ReviewCardDto> review(@PathVariable Long questionId,
+                                                            @RequestBody @Valid ProfileDtos.ReviewRequest body,
+                                                            @AuthenticationPrincipal UserPrincipal principal) {
+        return ResponseEntity.ok(reviewService.review(requireUserId(principal), questionId, body.quality()));
+    }
+
     @PostMapping("/change-password")
     public ResponseEntity<?> changePassword(@AuthenticationPrincipal UserPrincipal principal,
                                             @RequestBody @Valid ProfileDtos.ChangePasswordRequest body) {
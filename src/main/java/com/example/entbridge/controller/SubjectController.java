@@ -3,10 +3,12 @@ package com.example.entbridge.controller;
 import com.example.entbridge.dto.SubjectDto;
 import com.example.entbridge.mapper.SubjectMapper;
 import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.service.CatalogVersions;
 import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,20 +18,26 @@ import java.util.stream.Collectors;
 public class SubjectController {
     private final SubjectRepository subjectRepository;
     private final SubjectMapper mapper;
+    private final CatalogVersions catalogVersions;
 
-    public SubjectController(SubjectRepository subjectRepository, SubjectMapper mapper) {
+    public SubjectController(SubjectRepository subjectRepository, SubjectMapper mapper,
+            CatalogVersions catalogVersions) {
         this.subjectRepository = subjectRepository;
         this.mapper = mapper;
+        this.catalogVersions = catalogVersions;
     }
 
     @GetMapping
-    public List<SubjectDto> list() {
+    public List<SubjectDto> list(WebRequest request) {
+        if (request.checkNotModified(catalogVersions.etag(CatalogVersions.SUBJECTS))) {
+            return null;
+        }
         return subjectRepository.findAll(Sort.by("id")).stream().map(mapper::toDto).collect(Collectors.toList());
     }
 
     @GetMapping("/search")
     public List<SubjectDto> search(@org.springframework.web.bind.annotation.RequestParam String query) {
-        return subjectRepository.findByNameContainingIgnoreCase(query).stream()
+        return subjectRepository.findByTitleContainingIgnoreCase(query).stream()
                 .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
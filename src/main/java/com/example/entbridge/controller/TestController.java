@@ -1,32 +1,134 @@
 package com.example.entbridge.controller;
 
+import com.example.entbridge.config.AdmissionControlled;
 import com.example.entbridge.dto.QuestionDto;
 import com.example.entbridge.dto.TestDtos;
 import com.example.entbridge.security.UserPrincipal;
+import com.example.entbridge.service.CatalogVersions;
+import com.example.entbridge.service.ExamSessionService;
+import com.example.entbridge.service.IdempotencyService;
+import com.example.entbridge.service.PracticeService;
 import com.example.entbridge.service.TestService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.validation.Valid;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/tests")
 public class TestController {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final TestService testService;
+    private final ExamSessionService examSessionService;
+
+    private final CatalogVersions catalogVersions;
+    private final IdempotencyService idempotencyService;
+    private final PracticeService practiceService;
 
-    public TestController(TestService testService) {
+    public TestController(TestService testService, ExamSessionService examSessionService,
+                          CatalogVersions catalogVersions, IdempotencyService idempotencyService,
+                          PracticeService practiceService) {
         this.testService = testService;
+        this.examSessionService = examSessionService;
+        this.catalogVersions = catalogVersions;
+        this.idempotencyService = idempotencyService;
+        this.practiceService = practiceService;
     }
 
+    // /questions, /questions/page и /questions/stream отдают банк предмета в каноническом порядке вариантов (по id):
+    // ответ общий для всех и кэшируется по ETag, а у запроса нет попытки, от seed которой можно перемешать варианты.
+    // Перемешивание вариантов — только у вопросов сессии экзамена (/sessions/{id}/questions).
     @GetMapping("/questions")
-    public ResponseEntity<List<QuestionDto>> questions(@RequestParam("subjectId") String subjectId) {
+    public ResponseEntity<List<QuestionDto>> questions(@RequestParam("subjectId") String subjectId,
+                                                       WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogVersions.etag(CatalogVersions.questions(subjectId)))) {
+            return null;
+        }
         return ResponseEntity.ok(testService.questions(subjectId));
     }
 
+    @GetMapping("/questions/page")
+    public ResponseEntity<TestDtos.QuestionPageDto> questionsPage(@RequestParam("subjectId") String subjectId,
+                                                                  @RequestParam(required = false) String afterId,
+                                                                  @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(testService.questionsPage(subjectId, afterId, limit));
+    }
+
+    @GetMapping("/questions/stream")
+    public ResponseEntity<StreamingResponseBody> questionStream(@RequestParam("subjectId") String subjectId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(testService.questionStream(subjectId));
+    }
+
     @PostMapping("/submit")
+    @AdmissionControlled("submit")
     public ResponseEntity<TestDtos.ResultDto> submit(@AuthenticationPrincipal UserPrincipal principal,
+                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
                                                      @RequestBody @Valid TestDtos.SubmitRequest request) {
-        return ResponseEntity.ok(testService.submit(principal.id(), request));
+        return ResponseEntity.ok(idempotencyService.execute(principal.id(), idempotencyKey, "submit", request,
+                TestDtos.ResultDto.class, () -> testService.submit(principal.id(), request)));
+    }
+
+    @PostMapping("/submit/combined")
+    @AdmissionControlled("submit")
+    public ResponseEntity<TestDtos.CombinedResultDto> submitCombined(@AuthenticationPrincipal UserPrincipal principal,
+                                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                                     @RequestBody @Valid TestDtos.CombinedSubmitRequest request) {
+        return ResponseEntity.ok(idempotencyService.execute(principal.id(), idempotencyKey, "submit-combined",
+                request, TestDtos.CombinedResultDto.class, () -> testService.submitCombined(principal.id(), request)));
+    }
+
+    @PostMapping("/sessions")
+    public ResponseEntity<TestDtos.SessionDto> startSession(@AuthenticationPrincipal UserPrincipal principal,
+                                                            @RequestBody @Valid TestDtos.StartSessionRequest request) {
+        return ResponseEntity.ok(examSessionService.start(principal.id(), request));
+    }
+
+    @GetMapping("/sessions/{sessionId}/questions")
+    public ResponseEntity<TestDtos.SessionQuestionsDto> sessionQuestions(@AuthenticationPrincipal UserPrincipal principal,
+                                                                         @PathVariable String sessionId,
+                                                                         @RequestParam(defaultValue = "0") int offset,
+                                                                         @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(examSessionService.questions(principal.id(), sessionId, offset, limit));
+    }
+
+    @PutMapping("/sessions/{sessionId}/draft")
+    public ResponseEntity<TestDtos.DraftDto> saveDraft(@AuthenticationPrincipal UserPrincipal principal,
+                                                       @PathVariable String sessionId,
+                                                       @RequestBody @Valid TestDtos.DraftRequest request) {
+        return ResponseEntity.ok(examSessionService.saveDraft(principal.id(), sessionId, request));
+    }
+
+    @GetMapping("/sessions/{sessionId}/draft")
+    public ResponseEntity<TestDtos.DraftDto> draft(@AuthenticationPrincipal UserPrincipal principal,
+                                                   @PathVariable String sessionId) {
+        return ResponseEntity.ok(examSessionService.draft(principal.id(), sessionId));
+    }
+
+    @PostMapping("/sessions/{sessionId}/submit")
+    @AdmissionControlled("submit")
+    public ResponseEntity<TestDtos.ResultDto> submitSession(@AuthenticationPrincipal UserPrincipal principal,
+                                                            @PathVariable String sessionId,
+                                                            @RequestBody @Valid TestDtos.SessionSubmitRequest request) {
+        return ResponseEntity.ok(examSessionService.submit(principal.id(), sessionId, request));
+    }
+
+    @PostMapping("/practice")
+    public ResponseEntity<TestDtos.PracticeDto> startPractice(@AuthenticationPrincipal UserPrincipal principal,
+                                                              @RequestBody @Valid TestDtos.StartPracticeRequest request) {
+        return ResponseEntity.ok(practiceService.start(principal.id(), request));
+    }
+
+    @PostMapping("/practice/{sessionId}/answer")
+    public ResponseEntity<TestDtos.PracticeAnswerDto> answerPractice(@AuthenticationPrincipal UserPrincipal principal,
+                                                                     @PathVariable String sessionId,
+                                                                     @RequestBody @Valid TestDtos.PracticeAnswerRequest request) {
+        return ResponseEntity.ok(practiceService.answer(principal.id(), sessionId, request));
     }
 }
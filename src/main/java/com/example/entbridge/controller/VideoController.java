@@ -1,8 +1,10 @@
 package com.example.entbridge.controller;
 
 import com.example.entbridge.dto.VideoLessonDto;
+import com.example.entbridge.service.CatalogVersions;
 import com.example.entbridge.service.VideoService;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -10,13 +12,19 @@ import java.util.List;
 @RequestMapping("/api/v1/videos")
 public class VideoController {
     private final VideoService videoService;
+    private final CatalogVersions catalogVersions;
 
-    public VideoController(VideoService videoService) {
+    public VideoController(VideoService videoService, CatalogVersions catalogVersions) {
         this.videoService = videoService;
+        this.catalogVersions = catalogVersions;
     }
 
     @GetMapping
-    public List<VideoLessonDto> list(@RequestParam(value = "subjectId", required = false) String subjectId) {
+    public List<VideoLessonDto> list(@RequestParam(value = "subjectId", required = false) String subjectId,
+            WebRequest request) {
+        if (request.checkNotModified(catalogVersions.etag(CatalogVersions.VIDEOS, subjectId))) {
+            return null;
+        }
         return videoService.list(subjectId);
     }
 }
@@ -1,5 +1,6 @@
 package com.example.entbridge.dto;
 
+import com.example.entbridge.service.ScoringRule;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
@@ -26,7 +27,8 @@ public final class AdminDtos {
                         String iconUrl,
                         @JsonProperty("isMandatory") boolean isMandatory,
                         String category,
-                        @JsonProperty("maxScore") Integer maxScore) {
+                        @JsonProperty("maxScore") Integer maxScore,
+                        @JsonProperty("scoringRule") ScoringRule scoringRule) {
         }
 
         public static record CreateQuestionRequest(
@@ -42,12 +44,57 @@ public final class AdminDtos {
                         @NotNull Boolean isCorrect) {
         }
 
+        public static record ItemStatDto(
+                        Long questionId,
+                        String text,
+                        long attempts,
+                        long correct,
+                        double pValue,
+                        Double discrimination) {
+        }
+
         public static record ImportQuestionsResponse(
                         int created,
                         int skipped,
+                        int duplicates,
                         List<String> errors) {
         }
 
+        public static record ImportJobDto(
+                        String jobId,
+                        String status,
+                        String subjectId,
+                        String fileName,
+                        String mode,
+                        int rowsProcessed,
+                        int created,
+                        int skipped,
+                        int duplicates,
+                        List<String> errors,
+                        String message,
+                        Instant createdAt,
+                        Instant updatedAt,
+                        Instant finishedAt) {
+        }
+
+        public static record BulkGradingJobDto(
+                        String jobId,
+                        String status,
+                        long rowsRead,
+                        long graded,
+                        long written,
+                        long duplicates,
+                        long failed,
+                        Instant startedAt,
+                        Instant finishedAt,
+                        List<BulkRowError> errors) {
+        }
+
+        public static record BulkRowError(
+                        long line,
+                        String message) {
+        }
+
         public static record CreateVideoRequest(
                         @NotBlank String title,
                         @NotBlank String subjectId,
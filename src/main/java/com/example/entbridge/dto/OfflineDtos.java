@@ -0,0 +1,60 @@
+package com.example.entbridge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+import java.util.List;
+
+public final class OfflineDtos {
+    private OfflineDtos() {}
+
+    public static record PackageRequest(
+            @JsonProperty("subjectId") @NotBlank String subjectId,
+            @JsonProperty("questionCount") @NotNull @Min(1) Integer questionCount,
+            @JsonProperty("variants") @NotNull @Min(1) @Max(200) Integer variants,
+            @JsonProperty("validDays") @Min(1) @Max(90) Integer validDays
+    ) {}
+
+    // Подписанная часть пакета: клиент возвращает её при синхронизации вместе с подписью.
+    public static record Manifest(
+            @JsonProperty("packageId") String packageId,
+            @JsonProperty("subjectId") String subjectId,
+            @JsonProperty("issuedAt") Instant issuedAt,
+            @JsonProperty("expiresAt") Instant expiresAt,
+            @JsonProperty("variants") List<Variant> variants
+    ) {}
+
+    public static record Variant(
+            @JsonProperty("variant") int variant,
+            @JsonProperty("seed") long seed,
+            @JsonProperty("questionIds") List<String> questionIds
+    ) {}
+
+    public static record Attempt(
+            @JsonProperty("attemptId") String attemptId,
+            @JsonProperty("userId") Long userId,
+            @JsonProperty("variant") Integer variant,
+            @JsonProperty("completedAt") Instant completedAt,
+            @JsonProperty("answers") List<TestDtos.Answer> answers
+    ) {}
+
+    public static record AttemptOutcome(
+            @JsonProperty("attemptId") String attemptId,
+            @JsonProperty("status") String status,
+            @JsonProperty("error") String error,
+            @JsonProperty("score") Integer score,
+            @JsonProperty("maxScore") Integer maxScore
+    ) {}
+
+    public static record SyncResultDto(
+            @JsonProperty("packageId") String packageId,
+            int accepted,
+            int duplicates,
+            int rejected,
+            List<AttemptOutcome> outcomes
+    ) {}
+}
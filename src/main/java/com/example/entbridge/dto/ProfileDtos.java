@@ -2,9 +2,15 @@ package com.example.entbridge.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
+import java.time.Instant;
+import java.util.List;
+
 public final class ProfileDtos {
     private ProfileDtos() {}
 
@@ -17,4 +23,30 @@ public final class ProfileDtos {
             @JsonProperty("oldPassword") @NotBlank String oldPassword,
             @JsonProperty("newPassword") @NotBlank @Size(min = 6) String newPassword
     ) {}
+
+    public static record RankDto(
+            String subjectId,
+            int bestScore,
+            long rank,
+            long total,
+            double percentile
+    ) {}
+
+    // quality — самооценка ответа по шкале SM-2: 0–2 не вспомнил, 3–5 вспомнил.
+    public static record ReviewRequest(
+            @JsonProperty("quality") @NotNull @Min(0) @Max(5) Integer quality
+    ) {}
+
+    public static record ReviewCardDto(
+            QuestionDto question,
+            Instant dueAt,
+            int intervalDays,
+            int repetitions,
+            int lapses
+    ) {}
+
+    public static record ReviewDueDto(
+            long dueCount,
+            List<ReviewCardDto> cards
+    ) {}
 }
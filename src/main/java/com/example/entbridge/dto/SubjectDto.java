@@ -7,5 +7,6 @@ public record SubjectDto(
         @JsonProperty("name") String name,
         @JsonProperty("isMandatory") boolean isMandatory,
         String category,
-        @JsonProperty("maxScore") Integer maxScore
+        @JsonProperty("maxScore") Integer maxScore,
+        @JsonProperty("scoringRule") String scoringRule
 ) {}
@@ -1,8 +1,13 @@
 package com.example.entbridge.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import java.time.Instant;
 import java.util.List;
 
@@ -15,15 +20,20 @@ public final class TestDtos {
                         @JsonProperty("answers") @NotEmpty List<Answer> answers) {
         }
 
+        // selectedOptionIds — для вопросов с несколькими правильными вариантами; selectedOptionId оставлен для
+        // совместимости, оба поля объединяются.
         public static record Answer(@JsonProperty("questionId") @NotBlank String questionId,
-                        @JsonProperty("selectedOptionId") String selectedOptionId) {
+                        @JsonProperty("selectedOptionId") String selectedOptionId,
+                        @JsonProperty("selectedOptionIds") List<String> selectedOptionIds) {
         }
 
         public static record AnswerResultDto(
                         @JsonProperty("questionId") String questionId,
                         @JsonProperty("selectedOptionId") String selectedOptionId,
                         @JsonProperty("isCorrect") boolean isCorrect,
-                        @JsonProperty("correctOptionId") String correctOptionId) {
+                        @JsonProperty("correctOptionId") String correctOptionId,
+                        @JsonProperty("selectedOptionIds") List<String> selectedOptionIds,
+                        @JsonProperty("correctOptionIds") List<String> correctOptionIds) {
         }
 
         public static record ResultDto(String id,
@@ -37,4 +47,85 @@ public final class TestDtos {
                         @JsonProperty("date") Instant date,
                         @JsonProperty("answers") List<AnswerResultDto> answers) {
         }
+
+        public static record StartSessionRequest(
+                        @JsonProperty("subjectId") @NotBlank String subjectId,
+                        @JsonProperty("questionCount") @NotNull @Min(1) Integer questionCount,
+                        @JsonProperty("timeLimitMinutes") @NotNull @Min(1) @Max(600) Integer timeLimitMinutes) {
+        }
+
+        public static record SessionDto(
+                        @JsonProperty("sessionId") String sessionId,
+                        @JsonProperty("subjectId") String subjectId,
+                        @JsonProperty("questionCount") int questionCount,
+                        @JsonProperty("startedAt") Instant startedAt,
+                        @JsonProperty("expiresAt") Instant expiresAt) {
+        }
+
+        public static record SessionQuestionsDto(
+                        @JsonProperty("sessionId") String sessionId,
+                        int offset,
+                        int limit,
+                        int total,
+                        List<QuestionDto> questions) {
+        }
+
+        public static record SessionSubmitRequest(
+                        @JsonProperty("answers") @NotEmpty List<Answer> answers) {
+        }
+
+        public static record DraftRequest(
+                        @JsonProperty("answers") @NotNull List<@Valid Answer> answers) {
+        }
+
+        public static record DraftDto(
+                        @JsonProperty("sessionId") String sessionId,
+                        @JsonProperty("answers") List<Answer> answers,
+                        @JsonProperty("updatedAt") Instant updatedAt) {
+        }
+
+        public static record StartPracticeRequest(
+                        @JsonProperty("subjectId") @NotBlank String subjectId) {
+        }
+
+        public static record PracticeAnswerRequest(
+                        @JsonProperty("questionId") @NotBlank String questionId,
+                        @JsonProperty("selectedOptionIds") @NotNull List<String> selectedOptionIds) {
+        }
+
+        // question == null — вопросы предмета закончились.
+        public static record PracticeDto(
+                        @JsonProperty("sessionId") String sessionId,
+                        @JsonProperty("subjectId") String subjectId,
+                        @JsonProperty("ability") double ability,
+                        @JsonProperty("answered") int answered,
+                        @JsonProperty("correct") int correct,
+                        @JsonProperty("question") QuestionDto question) {
+        }
+
+        public static record PracticeAnswerDto(
+                        @JsonProperty("isCorrect") boolean isCorrect,
+                        @JsonProperty("correctOptionIds") List<String> correctOptionIds,
+                        @JsonProperty("next") PracticeDto next) {
+        }
+
+        public static record QuestionPageDto(
+                        List<QuestionDto> questions,
+                        @JsonProperty("nextAfterId") String nextAfterId) {
+        }
+
+        public static record SubjectAnswers(
+                        @JsonProperty("subjectId") @NotBlank String subjectId,
+                        @JsonProperty("answers") @NotNull List<Answer> answers) {
+        }
+
+        public static record CombinedSubmitRequest(
+                        @JsonProperty("subjects") @NotEmpty @Size(max = 10) List<@Valid SubjectAnswers> subjects) {
+        }
+
+        public static record CombinedResultDto(
+                        @JsonProperty("totalScore") int totalScore,
+                        @JsonProperty("maxTotalScore") int maxTotalScore,
+                        @JsonProperty("results") List<ResultDto> results) {
+        }
 }
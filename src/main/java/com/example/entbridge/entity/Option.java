@@ -11,7 +11,8 @@ import lombok.*;
 @AllArgsConstructor
 public class Option {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "options_seq")
+    @SequenceGenerator(name = "options_seq", sequenceName = "options_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(columnDefinition = "text")
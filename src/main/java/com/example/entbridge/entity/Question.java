@@ -12,7 +12,9 @@ import java.util.List;
 @AllArgsConstructor
 public class Question {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Пул из 50 идентификаторов на один вызов sequence — иначе Hibernate не может пакетировать INSERT.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "questions_seq")
+    @SequenceGenerator(name = "questions_seq", sequenceName = "questions_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(columnDefinition = "text")
@@ -23,6 +25,10 @@ public class Question {
     @Column(columnDefinition = "text")
     private String explanation;
 
+    // SHA-256 нормализованного текста и вариантов, см. QuestionFingerprint.
+    @Column(length = 64)
+    private String fingerprint;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "subject_id")
     private Subject subject;
@@ -1,5 +1,6 @@
 package com.example.entbridge.entity;
 
+import com.example.entbridge.service.ScoringRule;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -29,4 +30,8 @@ public class Subject {
 
     @Column(name = "max_score")
     private Integer maxScore;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scoring_rule", nullable = false)
+    private ScoringRule scoringRule = ScoringRule.SINGLE_CHOICE;
 }
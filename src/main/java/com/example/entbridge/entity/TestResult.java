@@ -34,6 +34,10 @@ public class TestResult {
     @Column(name = "correct_answers")
     private Integer correctAnswers;
 
+    // Компактная запись ответов попытки, см. AnswerEncoding.
+    @Column(name = "answers")
+    private byte[] answers;
+
     @Column(name = "completed_at")
     private Instant completedAt = Instant.now();
 }
@@ -31,12 +31,20 @@ public class User {
     @Enumerated(EnumType.STRING)
     private Role role;
 
-    @Column(name = "average_score")
+    // Агрегаты обновляются только атомарными SQL-инкрементами (UserStatsRepository); загруженная в той же
+    // транзакции сущность после инкремента перечитывается (TestService), иначе её поля устарели.
+    @Column(name = "average_score", insertable = false, updatable = false)
     private Double averageScore = 0.0;
 
-    @Column(name = "total_score")
+    @Column(name = "total_score", insertable = false, updatable = false)
     private Integer totalScore = 0;
 
+    @Column(name = "attempts_count", insertable = false, updatable = false)
+    private Integer attemptsCount = 0;
+
+    @Column(name = "score_sum", insertable = false, updatable = false)
+    private Long scoreSum = 0L;
+
     @Column(name = "created_at")
     private Instant createdAt = Instant.now();
 
@@ -11,6 +11,7 @@ public interface TestResultMapper {
     @Mapping(source = "subject.code", target = "subjectId")
     @Mapping(source = "subject.title", target = "subjectName")
     @Mapping(source = "completedAt", target = "date")
+    @Mapping(target = "answers", ignore = true)
     TestDtos.ResultDto toDto(TestResult result);
 
     default String map(Long value) {
@@ -0,0 +1,28 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Колонка не отображена в Subject: иначе сохранение предмета затирало бы версию устаревшим значением.
+@Repository
+public class AnswerKeyVersionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnswerKeyVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Для несуществующего предмета — 0, ключ у него всё равно пустой.
+    public long find(String subjectCode) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT answer_key_version FROM subjects WHERE code = ?", Long.class, subjectCode);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    public void bump(String subjectCode) {
+        jdbcTemplate.update("UPDATE subjects SET answer_key_version = answer_key_version + 1 WHERE code = ?",
+                subjectCode);
+    }
+}
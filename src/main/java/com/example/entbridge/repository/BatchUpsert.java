@@ -0,0 +1,49 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Upsert пачкой без ON CONFLICT DO UPDATE: сначала одна пачка UPDATE, затем для строк, которых ещё нет, —
+// INSERT ... ON CONFLICT DO NOTHING и повтор UPDATE, если строку между ними вставил параллельный запрос.
+// Число попыток ограничено: INSERT, который ничего не вставил и после которого UPDATE снова не нашёл строку,
+// означает, что родительской записи уже нет (INSERT с проверкой EXISTS), и такая строка отдаётся вызывающему.
+// Сам метод транзакцию не открывает: атомарность пачки обеспечивает вызывающий сервис.
+final class BatchUpsert {
+    static final int MAX_ATTEMPTS = 3;
+
+    private BatchUpsert() {
+    }
+
+    // rows должны быть отсортированы в стабильном порядке блокировок. Возвращает строки, которые не удалось записать.
+    static <T> List<T> apply(JdbcTemplate jdbcTemplate, List<T> rows, String updateSql,
+            Function<T, Object[]> updateArgs, String insertSql, Function<T, Object[]> insertArgs) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        int[] updated = jdbcTemplate.batchUpdate(updateSql, rows.stream().map(updateArgs).toList());
+        List<T> skipped = new ArrayList<>(0);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0 && !upsert(jdbcTemplate, rows.get(i), updateSql, updateArgs, insertSql, insertArgs)) {
+                skipped.add(rows.get(i));
+            }
+        }
+        return skipped;
+    }
+
+    static <T> boolean upsert(JdbcTemplate jdbcTemplate, T row, String updateSql, Function<T, Object[]> updateArgs,
+            String insertSql, Function<T, Object[]> insertArgs) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0 && jdbcTemplate.update(updateSql, updateArgs.apply(row)) > 0) {
+                return true;
+            }
+            if (jdbcTemplate.update(insertSql, insertArgs.apply(row)) > 0) {
+                return true;
+            }
+            // Конфликт: строку вставил параллельный запрос — следующий UPDATE её увидит.
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public class BulkGradedSheetRepository {
+    private static final String INSERT_SHEET = """
+            INSERT INTO bulk_graded_sheets (file_hash, line_no, graded_at)
+            VALUES (?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkGradedSheetRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Ключи вида fileHash + ":" + line, уже записанные раньше.
+    public Set<String> findExisting(Collection<Sheet> sheets) {
+        if (sheets.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(sheets.size(), "(?, ?)"));
+        Object[] args = new Object[sheets.size() * 2];
+        int i = 0;
+        for (Sheet sheet : sheets) {
+            args[i++] = sheet.fileHash();
+            args[i++] = sheet.line();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT file_hash || ':' || line_no FROM bulk_graded_sheets WHERE (file_hash, line_no) IN ("
+                        + placeholders + ")",
+                String.class, args));
+    }
+
+    // Параллельная загрузка того же файла упадёт на первичном ключе и откатит всю пачку.
+    public void insertBatch(List<Sheet> sheets) {
+        if (sheets.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SHEET, sheets.stream()
+                .map(s -> new Object[] { s.fileHash(), s.line(), now }).toList());
+    }
+
+    public int deleteGradedBefore(Instant gradedBefore) {
+        return jdbcTemplate.update("DELETE FROM bulk_graded_sheets WHERE graded_at < ?", Timestamp.from(gradedBefore));
+    }
+
+    public record Sheet(String fileHash, long line) {
+        public String key() {
+            return fileHash + ":" + line;
+        }
+    }
+}
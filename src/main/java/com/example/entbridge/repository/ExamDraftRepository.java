@@ -0,0 +1,73 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+public class ExamDraftRepository {
+    private static final String UPDATE_DRAFT = """
+            UPDATE exam_drafts SET answers = ?, updated_at = ?
+            WHERE session_id = ? AND updated_at <= ?
+            """;
+
+    private static final String INSERT_DRAFT = """
+            INSERT INTO exam_drafts (session_id, user_id, subject_code, answers, updated_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExamDraftRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Более старый снимок не перезаписывает более новый (условие на updated_at).
+    public void saveBatch(List<DraftRow> drafts) {
+        if (drafts.isEmpty()) {
+            return;
+        }
+        List<DraftRow> rows = new ArrayList<>(drafts);
+        rows.sort(Comparator.comparing(DraftRow::sessionId));
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_DRAFT, rows.stream().map(r -> new Object[] {
+                r.answers(), Timestamp.from(r.updatedAt()), r.sessionId(), Timestamp.from(r.updatedAt()) }).toList());
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                DraftRow r = rows.get(i);
+                inserts.add(new Object[] { r.sessionId(), r.userId(), r.subjectCode(), r.answers(),
+                        Timestamp.from(r.updatedAt()) });
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DRAFT, inserts);
+        }
+    }
+
+    public DraftRow find(String sessionId, long userId) {
+        List<DraftRow> rows = jdbcTemplate.query("""
+                SELECT session_id, user_id, subject_code, answers, updated_at
+                FROM exam_drafts WHERE session_id = ? AND user_id = ?
+                """, (rs, rowNum) -> new DraftRow(rs.getString("session_id"), rs.getLong("user_id"),
+                rs.getString("subject_code"), rs.getBytes("answers"), rs.getTimestamp("updated_at").toInstant()),
+                sessionId, userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void delete(String sessionId) {
+        jdbcTemplate.update("DELETE FROM exam_drafts WHERE session_id = ?", sessionId);
+    }
+
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM exam_drafts WHERE updated_at < ?", Timestamp.from(cutoff));
+    }
+
+    public record DraftRow(String sessionId, long userId, String subjectCode, byte[] answers, Instant updatedAt) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public class IdempotencyKeyRepository {
+    // При гонке второй INSERT ждёт коммита первого и получает 0 строк.
+    private static final String CLAIM = """
+            INSERT INTO idempotency_keys (user_id, idem_key, request_hash, created_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean claim(long userId, String key, String requestHash, Instant expiredBefore) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE user_id = ? AND idem_key = ? AND created_at < ?",
+                userId, key, Timestamp.from(expiredBefore));
+        return jdbcTemplate.update(CLAIM, userId, key, requestHash, Timestamp.from(Instant.now())) > 0;
+    }
+
+    public void saveResponse(long userId, String key, String response) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET response = ? WHERE user_id = ? AND idem_key = ?",
+                response, userId, key);
+    }
+
+    public StoredKey find(long userId, String key) {
+        List<StoredKey> rows = jdbcTemplate.query(
+                "SELECT request_hash, response FROM idempotency_keys WHERE user_id = ? AND idem_key = ?",
+                (rs, rowNum) -> new StoredKey(rs.getString("request_hash"), rs.getString("response")), userId, key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public int deleteExpired(Instant expiredBefore) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.from(expiredBefore));
+    }
+
+    public record StoredKey(String requestHash, String response) {
+    }
+}
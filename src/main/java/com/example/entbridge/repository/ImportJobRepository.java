@@ -0,0 +1,189 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class ImportJobRepository {
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+
+    private static final String SELECT_JOB = """
+            SELECT j.*, s.code AS subject_code
+            FROM import_jobs j JOIN subjects s ON s.id = j.subject_id
+            """;
+
+    private static final RowMapper<ImportJob> JOB_MAPPER = (rs, rowNum) -> new ImportJob(
+            rs.getString("id"),
+            rs.getObject("admin_id") == null ? null : rs.getLong("admin_id"),
+            rs.getLong("subject_id"),
+            rs.getString("subject_code"),
+            rs.getString("file_name"),
+            rs.getString("file_path"),
+            rs.getString("status"),
+            rs.getString("mode"),
+            rs.getInt("next_row"),
+            rs.getInt("rows_processed"),
+            rs.getInt("created"),
+            rs.getInt("skipped"),
+            rs.getInt("duplicates"),
+            rs.getString("errors"),
+            rs.getString("message"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getTimestamp("updated_at").toInstant(),
+            rs.getTimestamp("finished_at") == null ? null : rs.getTimestamp("finished_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ImportJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(String id, Long adminId, long subjectId, String fileName, String filePath, String mode,
+            String owner) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("""
+                INSERT INTO import_jobs (id, admin_id, subject_id, file_name, file_path, status, mode, owner,
+                  heartbeat_at, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, id, adminId, subjectId, fileName, filePath, QUEUED, mode, owner, now, now, now);
+    }
+
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM import_jobs WHERE id = ?", id);
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return jdbcTemplate.query(SELECT_JOB + " WHERE j.id = ?", JOB_MAPPER, id).stream().findFirst();
+    }
+
+    public List<ImportJob> findRecent(int limit) {
+        return jdbcTemplate.query(SELECT_JOB + " ORDER BY j.created_at DESC LIMIT ?", JOB_MAPPER, limit);
+    }
+
+    // Переход статуса только из ожидаемых — защищает от двойного запуска и отмены завершённого задания.
+    public boolean transition(String id, List<String> from, String to, String message) {
+        Timestamp now = Timestamp.from(Instant.now());
+        boolean terminal = !QUEUED.equals(to) && !RUNNING.equals(to);
+        String placeholders = String.join(",", from.stream().map(s -> "?").toList());
+        Object[] args = new Object[5 + from.size()];
+        args[0] = to;
+        args[1] = message;
+        args[2] = now;
+        args[3] = terminal ? now : null;
+        args[4] = id;
+        for (int i = 0; i < from.size(); i++) {
+            args[5 + i] = from.get(i);
+        }
+        return jdbcTemplate.update("""
+                UPDATE import_jobs SET status = ?, message = ?, updated_at = ?, finished_at = ?
+                WHERE id = ? AND status IN (""" + placeholders + ")", args) == 1;
+    }
+
+    // Отменённое или упавшее задание снова ставится в очередь на узле owner.
+    public boolean requeue(String id, List<String> from, String owner) {
+        Timestamp now = Timestamp.from(Instant.now());
+        String placeholders = String.join(",", from.stream().map(s -> "?").toList());
+        Object[] args = new Object[5 + from.size()];
+        args[0] = QUEUED;
+        args[1] = owner;
+        args[2] = now;
+        args[3] = now;
+        args[4] = id;
+        for (int i = 0; i < from.size(); i++) {
+            args[5 + i] = from.get(i);
+        }
+        return jdbcTemplate.update("""
+                UPDATE import_jobs
+                SET status = ?, owner = ?, heartbeat_at = ?, updated_at = ?, message = NULL, finished_at = NULL,
+                  cancel_requested = FALSE
+                WHERE id = ? AND status IN (""" + placeholders + ")", args) == 1;
+    }
+
+    // Переходы выполняющегося задания — только от имени узла-владельца.
+    public boolean start(String id, String owner) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbcTemplate.update("""
+                UPDATE import_jobs SET status = ?, heartbeat_at = ?, updated_at = ?
+                WHERE id = ? AND status = ? AND owner = ?
+                """, RUNNING, now, now, id, QUEUED, owner) == 1;
+    }
+
+    public boolean finish(String id, String owner, String to, String message) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbcTemplate.update("""
+                UPDATE import_jobs SET status = ?, message = ?, updated_at = ?, finished_at = ?
+                WHERE id = ? AND status = ? AND owner = ?
+                """, to, message, now, now, id, RUNNING, owner) == 1;
+    }
+
+    // Вызывается в транзакции пачки вопросов. false — задание больше не выполняется этим узлом (признано
+    // прерванным и, возможно, продолжено другим), и пачку надо откатить.
+    public boolean updateProgress(String id, String owner, int nextRow, int rowsProcessed, int created, int skipped,
+            int duplicates, String errors) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbcTemplate.update("""
+                UPDATE import_jobs
+                SET next_row = ?, rows_processed = ?, created = ?, skipped = ?, duplicates = ?, errors = ?,
+                  updated_at = ?, heartbeat_at = ?
+                WHERE id = ? AND status = ? AND owner = ?
+                """, nextRow, rowsProcessed, created, skipped, duplicates, errors, now, now, id, RUNNING,
+                owner) == 1;
+    }
+
+    public int heartbeat(String owner) {
+        return jdbcTemplate.update("""
+                UPDATE import_jobs SET heartbeat_at = ?
+                WHERE owner = ? AND status IN (?, ?)
+                """, Timestamp.from(Instant.now()), owner, QUEUED, RUNNING);
+    }
+
+    // Отмена задания, которое выполняет другой узел: владелец увидит флаг при следующем heartbeat.
+    public boolean requestCancel(String id) {
+        return jdbcTemplate.update("UPDATE import_jobs SET cancel_requested = TRUE WHERE id = ? AND status = ?", id,
+                RUNNING) == 1;
+    }
+
+    public List<String> findCancelRequested(String owner) {
+        return jdbcTemplate.queryForList("""
+                SELECT id FROM import_jobs WHERE owner = ? AND status = ? AND cancel_requested
+                """, String.class, owner, RUNNING);
+    }
+
+    // Активные задания, владелец которых давно не подавал сигнал (остановлен или упал), можно только продолжить
+    // вручную.
+    public int failStale(Instant heartbeatBefore, String message) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbcTemplate.update("""
+                UPDATE import_jobs SET status = ?, message = ?, updated_at = ?, finished_at = ?
+                WHERE status IN (?, ?) AND (heartbeat_at IS NULL OR heartbeat_at < ?)
+                """, FAILED, message, now, now, QUEUED, RUNNING, Timestamp.from(heartbeatBefore));
+    }
+
+    public List<ImportJob> findFilesFinishedBefore(Instant before) {
+        return jdbcTemplate.query(SELECT_JOB + " WHERE j.file_path IS NOT NULL AND j.finished_at < ?", JOB_MAPPER,
+                Timestamp.from(before));
+    }
+
+    public void clearFile(String id) {
+        jdbcTemplate.update("UPDATE import_jobs SET file_path = NULL WHERE id = ?", id);
+    }
+
+    public record ImportJob(String id, Long adminId, long subjectId, String subjectCode, String fileName,
+            String filePath, String status, String mode, int nextRow, int rowsProcessed, int created, int skipped,
+            int duplicates, String errors, String message, Instant createdAt, Instant updatedAt, Instant finishedAt) {
+
+        public boolean isFinished() {
+            return COMPLETED.equals(status) || FAILED.equals(status) || CANCELLED.equals(status);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public class OfflineAttemptRepository {
+    private static final String INSERT_ATTEMPT = """
+            INSERT INTO offline_attempts (package_id, attempt_id, user_id, synced_at)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OfflineAttemptRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Set<String> findExisting(String packageId, Collection<String> attemptIds) {
+        if (attemptIds.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(attemptIds.size(), "?"));
+        Object[] args = new Object[attemptIds.size() + 1];
+        args[0] = packageId;
+        int i = 1;
+        for (String attemptId : attemptIds) {
+            args[i++] = attemptId;
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT attempt_id FROM offline_attempts WHERE package_id = ? AND attempt_id IN (" + placeholders + ")",
+                String.class, args));
+    }
+
+    // Параллельная синхронизация той же попытки упадёт на первичном ключе и откатит всю пачку.
+    public void insertBatch(String packageId, List<SyncedAttempt> attempts) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_ATTEMPT, attempts.stream()
+                .map(a -> new Object[] { packageId, a.attemptId(), a.userId(), now }).toList());
+    }
+
+    public record SyncedAttempt(String attemptId, long userId) {
+    }
+}
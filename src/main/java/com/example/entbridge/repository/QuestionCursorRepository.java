@@ -0,0 +1,77 @@
+package com.example.entbridge.repository;
+
+import com.example.entbridge.dto.OptionDto;
+import com.example.entbridge.dto.QuestionDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class QuestionCursorRepository {
+    private static final String SELECT_BY_SUBJECT = """
+            SELECT q.id AS question_id, q.text AS question_text, o.id AS option_id, o.text AS option_text
+            FROM questions q
+            JOIN subjects s ON s.id = q.subject_id
+            LEFT JOIN options o ON o.question_id = q.id
+            WHERE s.code = ?
+            ORDER BY q.id, o.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public QuestionCursorRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Курсор PostgreSQL работает только внутри транзакции (autocommit=false) и с fetchSize > 0.
+    public void forEachBySubject(String subjectCode, int fetchSize, Consumer<QuestionDto> consumer) {
+        QuestionAssembler assembler = new QuestionAssembler(subjectCode, consumer);
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SELECT_BY_SUBJECT);
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, subjectCode);
+            return ps;
+        }, rs -> {
+            long optionId = rs.getLong("option_id");
+            OptionDto option = rs.wasNull() ? null : new OptionDto(Long.toString(optionId), rs.getString("option_text"));
+            assembler.accept(rs.getLong("question_id"), rs.getString("question_text"), option);
+        });
+        assembler.finish();
+    }
+
+    private static final class QuestionAssembler {
+        private final String subjectCode;
+        private final Consumer<QuestionDto> consumer;
+        private long questionId = -1;
+        private String text;
+        private List<OptionDto> options = new ArrayList<>();
+
+        private QuestionAssembler(String subjectCode, Consumer<QuestionDto> consumer) {
+            this.subjectCode = subjectCode;
+            this.consumer = consumer;
+        }
+
+        private void accept(long id, String questionText, OptionDto option) {
+            if (id != questionId) {
+                finish();
+                questionId = id;
+                text = questionText;
+            }
+            if (option != null) {
+                options.add(option);
+            }
+        }
+
+        private void finish() {
+            if (questionId < 0) {
+                return;
+            }
+            consumer.accept(new QuestionDto(Long.toString(questionId), subjectCode, text, options));
+            questionId = -1;
+            options = new ArrayList<>();
+        }
+    }
+}
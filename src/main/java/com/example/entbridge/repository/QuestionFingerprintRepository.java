@@ -0,0 +1,64 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class QuestionFingerprintRepository {
+    private static final String SELECT_MISSING = """
+            SELECT q.id AS question_id, q.text AS question_text, o.text AS option_text
+            FROM questions q
+            LEFT JOIN options o ON o.question_id = q.id
+            WHERE q.id IN (SELECT id FROM questions WHERE fingerprint IS NULL ORDER BY id LIMIT ?)
+            ORDER BY q.id, o.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public QuestionFingerprintRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Отпечаток → наименьший id вопроса с ним; по индексу (subject_id, fingerprint).
+    public Map<String, Long> findBySubject(long subjectId) {
+        Map<String, Long> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT fingerprint, MIN(id) AS question_id FROM questions
+                WHERE subject_id = ? AND fingerprint IS NOT NULL
+                GROUP BY fingerprint
+                """, rs -> {
+            result.put(rs.getString("fingerprint"), rs.getLong("question_id"));
+        }, subjectId);
+        return result;
+    }
+
+    public List<QuestionContent> findMissing(int limit) {
+        List<QuestionContent> result = new ArrayList<>();
+        jdbcTemplate.query(SELECT_MISSING, rs -> {
+            long id = rs.getLong("question_id");
+            QuestionContent last = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (last == null || last.id() != id) {
+                last = new QuestionContent(id, rs.getString("question_text"), new ArrayList<>());
+                result.add(last);
+            }
+            String option = rs.getString("option_text");
+            if (option != null) {
+                last.optionTexts().add(option);
+            }
+        }, limit);
+        return result;
+    }
+
+    public void updateFingerprints(Map<Long, String> fingerprints) {
+        jdbcTemplate.batchUpdate("UPDATE questions SET fingerprint = ? WHERE id = ?", fingerprints.entrySet().stream()
+                .map(e -> new Object[] { e.getValue(), e.getKey() }).toList());
+    }
+
+    public record QuestionContent(long id, String text, List<String> optionTexts) {
+    }
+}
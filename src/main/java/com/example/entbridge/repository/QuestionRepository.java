@@ -2,13 +2,37 @@ package com.example.entbridge.repository;
 
 import com.example.entbridge.entity.Question;
 import com.example.entbridge.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 
 public interface QuestionRepository extends JpaRepository<Question, Long> {
     @EntityGraph(attributePaths = { "options", "subject" })
     List<Question> findBySubject_CodeOrderByIdAsc(String code);
 
+    @EntityGraph(attributePaths = { "options", "subject" })
+    List<Question> findByIdIn(Collection<Long> ids);
+
+    @Query("select q.id from Question q where q.subject.code = :code and q.id > :afterId order by q.id")
+    List<Long> findIdsBySubjectAfter(@Param("code") String code, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select q.id as questionId, q.points as points, o.id as optionId, o.isCorrect as correct "
+            + "from Question q left join q.options o where q.subject.code = :code order by q.id, o.id")
+    List<AnswerKeyRow> findAnswerKeyRows(@Param("code") String code);
+
     long countByCreatedBy(User admin);
+
+    interface AnswerKeyRow {
+        Long getQuestionId();
+
+        Integer getPoints();
+
+        Long getOptionId();
+
+        Boolean getCorrect();
+    }
 }
@@ -0,0 +1,98 @@
+package com.example.entbridge.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+@Slf4j
+public class QuestionStatsRepository {
+    private static final String UPDATE_STATS = """
+            UPDATE question_stats
+            SET attempts = attempts + ?,
+                correct = correct + ?,
+                upper_attempts = upper_attempts + ?,
+                upper_correct = upper_correct + ?,
+                lower_attempts = lower_attempts + ?,
+                lower_correct = lower_correct + ?,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE question_id = ?
+            """;
+
+    private static final String INSERT_STATS = """
+            INSERT INTO question_stats (question_id, subject_id, attempts, correct, upper_attempts, upper_correct,
+                                        lower_attempts, lower_correct)
+            SELECT ?, ?, ?, ?, ?, ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM questions WHERE id = ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String SELECT_RANKED = """
+            SELECT s.question_id, q.text, s.attempts, s.correct,
+                   CAST(s.correct AS double precision) / s.attempts AS p_value,
+                   CASE WHEN s.upper_attempts > 0 AND s.lower_attempts > 0
+                        THEN CAST(s.upper_correct AS double precision) / s.upper_attempts
+                             - CAST(s.lower_correct AS double precision) / s.lower_attempts
+                   END AS discrimination
+            FROM question_stats s
+            JOIN questions q ON q.id = s.question_id
+            JOIN subjects sub ON sub.id = s.subject_id
+            WHERE sub.code = ? AND s.attempts >= ?
+            ORDER BY %s NULLS LAST, s.question_id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public QuestionStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Вызывается в транзакции: при ошибке откатывается вся пачка, и её можно повторить целиком.
+    public void applyDeltas(List<StatsDelta> deltas) {
+        List<StatsDelta> rows = new ArrayList<>(deltas);
+        rows.sort(Comparator.comparingLong(StatsDelta::questionId));
+        List<StatsDelta> skipped = BatchUpsert.apply(jdbcTemplate, rows, UPDATE_STATS,
+                d -> new Object[] { d.attempts(), d.correct(), d.upperAttempts(), d.upperCorrect(),
+                        d.lowerAttempts(), d.lowerCorrect(), d.questionId() },
+                INSERT_STATS,
+                d -> new Object[] { d.questionId(), d.subjectId(), d.attempts(), d.correct(), d.upperAttempts(),
+                        d.upperCorrect(), d.lowerAttempts(), d.lowerCorrect(), d.questionId() });
+        // Вопрос удалён между отправкой теста и сбросом — статистика ему больше не нужна.
+        skipped.forEach(d -> log.debug("Dropping stats for missing question {}", d.questionId()));
+    }
+
+    public List<RankedItem> findRanked(String subjectCode, String orderBy, long minAttempts, int limit) {
+        return jdbcTemplate.query(SELECT_RANKED.formatted(orderBy), (rs, rowNum) -> {
+            double discrimination = rs.getDouble("discrimination");
+            Double nullableDiscrimination = rs.wasNull() ? null : discrimination;
+            return new RankedItem(rs.getLong("question_id"), rs.getString("text"), rs.getLong("attempts"),
+                    rs.getLong("correct"), rs.getDouble("p_value"), nullableDiscrimination);
+        }, subjectCode, minAttempts, limit);
+    }
+
+    public List<ItemCount> findCounts(String subjectCode) {
+        return jdbcTemplate.query("""
+                SELECT s.question_id, s.attempts, s.correct
+                FROM question_stats s
+                JOIN subjects sub ON sub.id = s.subject_id
+                WHERE sub.code = ?
+                """, (rs, rowNum) -> new ItemCount(rs.getLong("question_id"), rs.getLong("attempts"),
+                rs.getLong("correct")), subjectCode);
+    }
+
+    public record StatsDelta(long questionId, long subjectId, long attempts, long correct, long upperAttempts,
+            long upperCorrect, long lowerAttempts, long lowerCorrect) {
+    }
+
+    public record RankedItem(long questionId, String text, long attempts, long correct, double pValue,
+            Double discrimination) {
+    }
+
+    public record ItemCount(long questionId, long attempts, long correct) {
+    }
+}
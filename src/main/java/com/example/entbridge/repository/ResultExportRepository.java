@@ -0,0 +1,85 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class ResultExportRepository {
+    private static final String SELECT_RESULTS = """
+            SELECT r.id, r.completed_at, r.score, r.max_score, r.total_questions, r.correct_answers,
+                   u.id AS user_id, u.username, u.full_name, u.email, s.code AS subject_code, s.title AS subject_title
+            FROM test_results r
+            JOIN users u ON u.id = r.user_id
+            JOIN subjects s ON s.id = r.subject_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ResultExportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Курсор PostgreSQL работает только внутри транзакции (autocommit=false) и с fetchSize > 0.
+    // from — включительно, to — исключая; null — без ограничения.
+    public void forEach(Long subjectId, Long userId, LocalDateTime from, LocalDateTime to, int fetchSize,
+            Consumer<ResultRow> consumer) {
+        StringBuilder sql = new StringBuilder(SELECT_RESULTS).append("WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(4);
+        if (subjectId != null) {
+            sql.append(" AND r.subject_id = ?");
+            args.add(subjectId);
+        }
+        if (userId != null) {
+            sql.append(" AND r.user_id = ?");
+            args.add(userId);
+        }
+        if (from != null) {
+            sql.append(" AND r.completed_at >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND r.completed_at < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY r.completed_at DESC, r.id DESC");
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, rs -> {
+            consumer.accept(map(rs));
+        });
+    }
+
+    private static ResultRow map(ResultSet rs) throws SQLException {
+        Timestamp completedAt = rs.getTimestamp("completed_at");
+        return new ResultRow(rs.getLong("id"),
+                completedAt == null ? null : completedAt.toLocalDateTime(),
+                rs.getLong("user_id"),
+                rs.getString("username"),
+                rs.getString("full_name"),
+                rs.getString("email"),
+                rs.getString("subject_code"),
+                rs.getString("subject_title"),
+                rs.getObject("score", Integer.class),
+                rs.getObject("max_score", Integer.class),
+                rs.getObject("total_questions", Integer.class),
+                rs.getObject("correct_answers", Integer.class));
+    }
+
+    public record ResultRow(long id, LocalDateTime completedAt, long userId, String username, String fullName,
+            String email, String subjectCode, String subjectTitle, Integer score, Integer maxScore,
+            Integer totalQuestions, Integer correctAnswers) {
+    }
+}
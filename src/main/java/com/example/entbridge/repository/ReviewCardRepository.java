@@ -0,0 +1,109 @@
+package com.example.entbridge.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+@Slf4j
+public class ReviewCardRepository {
+    // Повторная ошибка по уже существующей карточке — «провал» в терминах SM-2: карточка снова к повторению.
+    private static final String LAPSE_CARD = """
+            UPDATE review_cards
+            SET repetitions = 0,
+                interval_days = 0,
+                ease = GREATEST(1.3, ease - 0.2),
+                lapses = lapses + 1,
+                due_at = ?,
+                updated_at = ?
+            WHERE user_id = ? AND question_id = ?
+            """;
+
+    private static final String INSERT_CARD = """
+            INSERT INTO review_cards (user_id, question_id, ease, interval_days, repetitions, lapses, due_at, updated_at)
+            SELECT ?, ?, 2.5, 0, 0, 0, CAST(? AS timestamp), CAST(? AS timestamp)
+            WHERE EXISTS (SELECT 1 FROM questions WHERE id = ?) AND EXISTS (SELECT 1 FROM users WHERE id = ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    // Диапазонное чтение по индексу (user_id, due_at), без сортировки всей колоды.
+    private static final String SELECT_DUE = """
+            SELECT question_id, ease, interval_days, repetitions, lapses, due_at
+            FROM review_cards
+            WHERE user_id = ? AND due_at <= ?
+            ORDER BY due_at
+            LIMIT ?
+            """;
+
+    private static final RowMapper<Card> CARD_MAPPER = (rs, rowNum) -> new Card(rs.getLong("question_id"),
+            rs.getDouble("ease"), rs.getInt("interval_days"), rs.getInt("repetitions"), rs.getInt("lapses"),
+            rs.getTimestamp("due_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReviewCardRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Вызывается в транзакции: при ошибке откатывается вся пачка, и её можно повторить целиком.
+    public void recordMistakes(List<Mistake> mistakes) {
+        List<Mistake> rows = new ArrayList<>(mistakes);
+        rows.sort(Comparator.comparingLong(Mistake::userId).thenComparingLong(Mistake::questionId));
+        List<Mistake> skipped = BatchUpsert.apply(jdbcTemplate, rows, LAPSE_CARD, ReviewCardRepository::lapseArgs,
+                INSERT_CARD, m -> {
+                    Timestamp at = Timestamp.from(m.at());
+                    return new Object[] { m.userId(), m.questionId(), at, at, m.questionId(), m.userId() };
+                });
+        // Вопрос или пользователь удалены до сброса очереди.
+        skipped.forEach(m -> log.debug("Dropping review card for missing question {} or user {}", m.questionId(),
+                m.userId()));
+    }
+
+    private static Object[] lapseArgs(Mistake m) {
+        Timestamp at = Timestamp.from(m.at());
+        return new Object[] { at, at, m.userId(), m.questionId() };
+    }
+
+    public List<Card> findDue(long userId, Instant now, int limit) {
+        return jdbcTemplate.query(SELECT_DUE, CARD_MAPPER, userId, Timestamp.from(now), limit);
+    }
+
+    public long countDue(long userId, Instant now) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM review_cards WHERE user_id = ? AND due_at <= ?", Long.class, userId,
+                Timestamp.from(now));
+        return count == null ? 0 : count;
+    }
+
+    public Card find(long userId, long questionId) {
+        List<Card> cards = jdbcTemplate.query("""
+                SELECT question_id, ease, interval_days, repetitions, lapses, due_at
+                FROM review_cards
+                WHERE user_id = ? AND question_id = ?
+                FOR UPDATE
+                """, CARD_MAPPER, userId, questionId);
+        return cards.isEmpty() ? null : cards.get(0);
+    }
+
+    public void update(long userId, Card card) {
+        jdbcTemplate.update("""
+                UPDATE review_cards
+                SET ease = ?, interval_days = ?, repetitions = ?, lapses = ?, due_at = ?, updated_at = ?
+                WHERE user_id = ? AND question_id = ?
+                """, card.ease(), card.intervalDays(), card.repetitions(), card.lapses(),
+                Timestamp.from(card.dueAt()), Timestamp.from(Instant.now()), userId, card.questionId());
+    }
+
+    public record Mistake(long userId, long questionId, Instant at) {
+    }
+
+    public record Card(long questionId, double ease, int intervalDays, int repetitions, int lapses, Instant dueAt) {
+    }
+}
@@ -2,11 +2,14 @@ package com.example.entbridge.repository;
 
 import com.example.entbridge.entity.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
 public interface SubjectRepository extends JpaRepository<Subject, Long> {
     Optional<Subject> findByCode(String code);
 
-    List<Subject> findByNameContainingIgnoreCase(String name);
+    List<Subject> findByCodeIn(Collection<String> codes);
+
+    List<Subject> findByTitleContainingIgnoreCase(String title);
 }
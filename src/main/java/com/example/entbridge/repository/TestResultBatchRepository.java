@@ -0,0 +1,74 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class TestResultBatchRepository {
+    // С reWriteBatchedInserts=true драйвер PostgreSQL склеивает пачку в многострочный INSERT.
+    private static final String INSERT_RESULT = """
+            INSERT INTO test_results (user_id, subject_id, score, max_score, total_questions, correct_answers,
+                                      completed_at, answers)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_RESULT_WITH_ID = """
+            INSERT INTO test_results (id, user_id, subject_id, score, max_score, total_questions, correct_answers,
+                                      completed_at, answers)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestResultBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // id из той же последовательности, что и у вставок без id: результат отложенной записи получает свой номер
+    // ещё до того, как строка попадёт в таблицу.
+    public long nextId() {
+        Long id = jdbcTemplate.queryForObject("SELECT nextval(pg_get_serial_sequence('test_results', 'id'))",
+                Long.class);
+        if (id == null) {
+            throw new IllegalStateException("test_results id sequence returned no value");
+        }
+        return id;
+    }
+
+    public void insertBatch(List<PendingResult> results) {
+        List<Object[]> generated = new ArrayList<>();
+        List<Object[]> preallocated = new ArrayList<>();
+        for (PendingResult r : results) {
+            Object[] values = { r.userId(), r.subjectId(), r.score(), r.maxScore(), r.totalQuestions(),
+                    r.correctAnswers(), Timestamp.from(r.completedAt()), r.answers() };
+            if (r.id() == null) {
+                generated.add(values);
+            } else {
+                Object[] withId = new Object[values.length + 1];
+                withId[0] = r.id();
+                System.arraycopy(values, 0, withId, 1, values.length);
+                preallocated.add(withId);
+            }
+        }
+        if (!generated.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RESULT, generated);
+        }
+        if (!preallocated.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RESULT_WITH_ID, preallocated);
+        }
+    }
+
+    // id == null — номер выдаёт сама таблица при вставке.
+    public record PendingResult(Long id, long userId, long subjectId, int score, int maxScore, int totalQuestions,
+            int correctAnswers, Instant completedAt, byte[] answers) {
+
+        public UserStatsRepository.AttemptDelta toAttemptDelta() {
+            return new UserStatsRepository.AttemptDelta(userId, subjectId, 1, score, score, score, completedAt);
+        }
+    }
+}
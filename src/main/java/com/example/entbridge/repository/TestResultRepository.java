@@ -7,6 +7,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
+import java.util.Optional;
 
 public interface TestResultRepository extends JpaRepository<TestResult, Long> {
     @EntityGraph(attributePaths = {"subject", "user"})
@@ -15,4 +16,6 @@ public interface TestResultRepository extends JpaRepository<TestResult, Long> {
     List<TestResult> findByUser(User user);
     @EntityGraph(attributePaths = {"subject", "user"})
     List<TestResult> findAllByOrderByCompletedAtDesc();
+    @EntityGraph(attributePaths = {"subject"})
+    Optional<TestResult> findByIdAndUser_Id(Long id, Long userId);
 }
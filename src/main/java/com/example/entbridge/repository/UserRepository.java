@@ -2,10 +2,19 @@ package com.example.entbridge.repository;
 
 import com.example.entbridge.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailIgnoreCase(String email);
     Optional<User> findByUsernameIgnoreCase(String username);
     Optional<User> findByEmailIgnoreCaseOrUsernameIgnoreCase(String email, String username);
+
+    // logins — в нижнем регистре.
+    @Query("select u from User u where lower(u.email) in :logins or lower(u.username) in :logins")
+    List<User> findByLoginIn(@Param("logins") Collection<String> logins);
 }
@@ -0,0 +1,108 @@
+package com.example.entbridge.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+public class UserStatsRepository {
+    private static final String UPDATE_USER = """
+            UPDATE users
+            SET attempts_count = attempts_count + ?,
+                score_sum = score_sum + ?,
+                total_score = COALESCE(total_score, 0) + ?,
+                average_score = CAST(score_sum + ? AS double precision) / (attempts_count + ?)
+            WHERE id = ?
+            """;
+
+    private static final String UPDATE_SUBJECT = """
+            UPDATE user_subject_stats
+            SET attempts = attempts + ?,
+                score_sum = score_sum + ?,
+                best_score = GREATEST(best_score, ?),
+                last_score = CASE WHEN last_completed_at IS NULL OR last_completed_at <= ? THEN ? ELSE last_score END,
+                last_completed_at = CASE WHEN last_completed_at IS NULL OR last_completed_at <= ? THEN ? ELSE last_completed_at END
+            WHERE user_id = ? AND subject_id = ?
+            """;
+
+    private static final String INSERT_SUBJECT = """
+            INSERT INTO user_subject_stats (user_id, subject_id, attempts, score_sum, best_score, last_score, last_completed_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordAttempt(long userId, long subjectId, int score, Instant completedAt) {
+        recordAttempts(userId, subjectId, 1, score, score, score, completedAt);
+    }
+
+    // Все изменения — атомарные инкременты в SQL, без чтения текущих значений в приложение.
+    public void recordAttempts(long userId, long subjectId, int attempts, long scoreSum, int bestScore,
+            int lastScore, Instant lastCompletedAt) {
+        jdbcTemplate.update(UPDATE_USER, attempts, scoreSum, scoreSum, scoreSum, attempts, userId);
+        upsertSubjects(List.of(new AttemptDelta(userId, subjectId, attempts, scoreSum, bestScore, lastScore,
+                lastCompletedAt)));
+    }
+
+    public void recordAttemptsBatch(Collection<AttemptDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // Стабильный порядок блокировок строк, чтобы параллельные пачки не ловили deadlock.
+        Map<Long, long[]> perUser = new TreeMap<>();
+        for (AttemptDelta delta : deltas) {
+            long[] acc = perUser.computeIfAbsent(delta.userId(), id -> new long[2]);
+            acc[0] += delta.attempts();
+            acc[1] += delta.scoreSum();
+        }
+        List<Object[]> userArgs = new ArrayList<>(perUser.size());
+        perUser.forEach((userId, acc) -> userArgs.add(new Object[] { acc[0], acc[1], acc[1], acc[1], acc[0], userId }));
+        jdbcTemplate.batchUpdate(UPDATE_USER, userArgs);
+
+        List<AttemptDelta> rows = new ArrayList<>(deltas);
+        rows.sort(Comparator.comparingLong(AttemptDelta::userId).thenComparingLong(AttemptDelta::subjectId));
+        upsertSubjects(rows);
+    }
+
+    // Первая попытка пользователя по предмету — строки ещё нет, её вставляет BatchUpsert.
+    private void upsertSubjects(List<AttemptDelta> rows) {
+        List<AttemptDelta> skipped = BatchUpsert.apply(jdbcTemplate, rows, UPDATE_SUBJECT, this::subjectUpdateArgs,
+                INSERT_SUBJECT, d -> new Object[] { d.userId(), d.subjectId(), d.attempts(), d.scoreSum(),
+                        d.bestScore(), d.lastScore(), Timestamp.from(d.lastCompletedAt()) });
+        if (!skipped.isEmpty()) {
+            throw new IllegalStateException("Could not upsert subject stats for user " + skipped.get(0).userId()
+                    + " after " + BatchUpsert.MAX_ATTEMPTS + " attempts");
+        }
+    }
+
+    private Object[] subjectUpdateArgs(AttemptDelta d) {
+        Timestamp last = Timestamp.from(d.lastCompletedAt());
+        return new Object[] { d.attempts(), d.scoreSum(), d.bestScore(), last, d.lastScore(), last, last,
+                d.userId(), d.subjectId() };
+    }
+
+    public record AttemptDelta(long userId, long subjectId, int attempts, long scoreSum, int bestScore,
+            int lastScore, Instant lastCompletedAt) {
+
+        public AttemptDelta merge(AttemptDelta other) {
+            boolean otherIsLater = !other.lastCompletedAt.isBefore(lastCompletedAt);
+            return new AttemptDelta(userId, subjectId, attempts + other.attempts, scoreSum + other.scoreSum,
+                    Math.max(bestScore, other.bestScore),
+                    otherIsLater ? other.lastScore : lastScore,
+                    otherIsLater ? other.lastCompletedAt : lastCompletedAt);
+        }
+    }
+}
@@ -19,17 +19,18 @@ import com.example.entbridge.entity.VideoLesson;
 import com.example.entbridge.mapper.VideoLessonMapper;
 import com.example.entbridge.repository.VideoLessonRepository;
 import com.example.entbridge.dto.VideoLessonDto;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 
 @Service
@@ -45,6 +46,11 @@ public class AdminService {
     private final com.example.entbridge.repository.AuditLogRepository auditLogRepository;
     private final VideoLessonRepository videoLessonRepository;
     private final VideoLessonMapper videoLessonMapper;
+    private final AnswerKeyCache answerKeyCache;
+    private final CatalogVersions catalogVersions;
+    private final QuestionBankWriter questionBankWriter;
+    private final EntityManager entityManager;
+    private final int importFlushEvery;
 
     public AdminService(UserRepository userRepository,
             TestResultRepository testResultRepository,
@@ -56,7 +62,12 @@ public class AdminService {
             HomeworkService homeworkService,
             com.example.entbridge.repository.AuditLogRepository auditLogRepository,
             VideoLessonRepository videoLessonRepository,
-            VideoLessonMapper videoLessonMapper) {
+            VideoLessonMapper videoLessonMapper,
+            AnswerKeyCache answerKeyCache,
+            CatalogVersions catalogVersions,
+            QuestionBankWriter questionBankWriter,
+            EntityManager entityManager,
+            @Value("${app.import.flush-every:500}") int importFlushEvery) {
         this.userRepository = userRepository;
         this.testResultRepository = testResultRepository;
         this.subjectRepository = subjectRepository;
@@ -68,6 +79,11 @@ public class AdminService {
         this.auditLogRepository = auditLogRepository;
         this.videoLessonRepository = videoLessonRepository;
         this.videoLessonMapper = videoLessonMapper;
+        this.answerKeyCache = answerKeyCache;
+        this.catalogVersions = catalogVersions;
+        this.questionBankWriter = questionBankWriter;
+        this.entityManager = entityManager;
+        this.importFlushEvery = importFlushEvery;
     }
 
     private void logAction(Long adminId, String action, String entityType, Long entityId, String details) {
@@ -135,7 +151,11 @@ public class AdminService {
         subject.setMandatory(request.isMandatory());
         subject.setCategory(request.category());
         subject.setMaxScore(request.maxScore());
+        if (request.scoringRule() != null) {
+            subject.setScoringRule(request.scoringRule());
+        }
         subject = subjectRepository.save(subject);
+        catalogVersions.bumpAfterCommit(CatalogVersions.SUBJECTS);
         logAction(adminId, "CREATED_SUBJECT", "SUBJECT", subject.getId(), "Code: " + subject.getCode());
         return subject;
     }
@@ -156,6 +176,8 @@ public class AdminService {
         question.setExplanation(request.explanation());
         question.setPoints(request.points() == null ? 1 : request.points());
         question.setCreatedBy(admin);
+        question.setFingerprint(QuestionFingerprint.of(request.text(),
+                request.options().stream().map(AdminDtos.QuestionOptionRequest::text).toList()));
         questionRepository.save(question);
 
         List<Option> options = request.options().stream().map(opt -> {
@@ -166,97 +188,84 @@ public class AdminService {
             return option;
         }).toList();
         optionRepository.saveAll(options);
+        answerKeyCache.invalidateAfterCommit(subject.getCode());
+        catalogVersions.bumpAfterCommit(CatalogVersions.questions(subject.getCode()));
         logAction(adminId, "CREATED_QUESTION", "QUESTION", question.getId(), "Subject: " + subject.getCode());
         return question;
     }
 
     @Transactional
-    public AdminDtos.ImportQuestionsResponse importQuestions(Long adminId, String subjectCode, MultipartFile file) {
+    public AdminDtos.ImportQuestionsResponse importQuestions(Long adminId, String subjectCode, String mode,
+            MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "FILE_EMPTY", "Файл пустой");
         }
+        QuestionBankWriter.Mode importMode = QuestionBankWriter.parseMode(mode);
         User admin = userRepository.findById(adminId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "USER_NOT_FOUND", "Пользователь не найден"));
         Subject subject = subjectRepository.findByCode(subjectCode)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
 
-        int created = 0;
-        int skipped = 0;
+        int[] created = new int[1];
+        int[] skipped = new int[1];
+        int[] duplicates = new int[1];
+        int[] updated = new int[1];
         List<String> errors = new ArrayList<>();
-
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            int lastRow = sheet.getLastRowNum();
-            for (int i = 1; i <= lastRow; i++) {
-                Row row = sheet.getRow(i);
+        Map<String, Long> known = questionBankWriter.loadFingerprints(subject.getId());
+
+        // Загрузка копируется во временный файл: SAX-чтение .xlsx открывает пакет с диска, а не из памяти.
+        Path copy = null;
+        try {
+            copy = Files.createTempFile("question-import-", ".tmp");
+            file.transferTo(copy);
+            QuestionSheetReader.read(copy, (rowIndex, cells) -> {
+                if (rowIndex == 0) {
+                    return;
+                }
+                QuestionImportService.ImportRow row = QuestionImportService.parse(rowIndex, cells);
                 if (row == null)
-                    continue;
-
-                String questionText = cellValue(row.getCell(1));
-                if (questionText == null || questionText.isBlank())
-                    continue;
-
-                String explanation = cellValue(row.getCell(6));
-                List<AdminDtos.QuestionOptionRequest> options = new ArrayList<>();
-                for (int col = 2; col <= 5; col++) {
-                    String answer = cellValue(row.getCell(col));
-                    if (answer == null || answer.isBlank())
-                        continue;
-                    boolean isCorrect = answer.trim().startsWith("*");
-                    String text = isCorrect ? answer.trim().substring(1).trim() : answer.trim();
-                    options.add(new AdminDtos.QuestionOptionRequest(text, isCorrect));
+                    return;
+                if (row.error() != null) {
+                    skipped[0]++;
+                    errors.add(row.error());
+                    return;
                 }
 
-                if (options.size() < 2 || options.stream().noneMatch(AdminDtos.QuestionOptionRequest::isCorrect)) {
-                    skipped++;
-                    errors.add("Строка " + (i + 1) + ": нужен минимум 2 варианта и 1 правильный ответ");
-                    continue;
+                QuestionBankWriter.Result result = questionBankWriter.write(subject, admin, List.of(row), importMode,
+                        known);
+                created[0] += result.created();
+                duplicates[0] += result.duplicates();
+                updated[0] += result.updated();
+                // Вставки уходят JDBC-пачками по hibernate.jdbc.batch_size; очистка держит контекст небольшим
+                // на импортах в десятки тысяч строк. subject и admin после clear отсоединены, но нужны только их id.
+                if (result.created() > 0 && created[0] % importFlushEvery == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
                 }
-
-                Question question = new Question();
-                question.setSubject(subject);
-                question.setText(questionText.trim());
-                question.setExplanation(explanation == null || explanation.isBlank() ? null : explanation.trim());
-                question.setPoints(1);
-                question.setCreatedBy(admin);
-                questionRepository.save(question);
-
-                List<Option> optionEntities = options.stream().map(opt -> {
-                    Option option = new Option();
-                    option.setQuestion(question);
-                    option.setText(opt.text());
-                    option.setIsCorrect(opt.isCorrect());
-                    return option;
-                }).toList();
-                optionRepository.saveAll(optionEntities);
-                created++;
+            });
+            if (created[0] > 0 || updated[0] > 0) {
+                answerKeyCache.invalidateAfterCommit(subject.getCode());
+                catalogVersions.bumpAfterCommit(CatalogVersions.questions(subject.getCode()));
             }
-            logAction(adminId, "IMPORT_QUESTIONS", "SUBJECT", subject.getId(), "Imported questions: " + created);
+            logAction(adminId, "IMPORT_QUESTIONS", "SUBJECT", subject.getId(), "Imported questions: " + created[0]);
         } catch (Exception ex) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "IMPORT_FAILED", "Не удалось прочитать файл");
+        } finally {
+            deleteQuietly(copy);
         }
 
-        return new AdminDtos.ImportQuestionsResponse(created, skipped, errors);
+        return new AdminDtos.ImportQuestionsResponse(created[0], skipped[0], duplicates[0], errors);
     }
 
-    private String cellValue(Cell cell) {
-        if (cell == null) {
-            return null;
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Временный файл удалит ОС.
         }
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> {
-                double value = cell.getNumericCellValue();
-                long longValue = (long) value;
-                if (value == longValue) {
-                    yield Long.toString(longValue);
-                }
-                yield Double.toString(value);
-            }
-            case BOOLEAN -> Boolean.toString(cell.getBooleanCellValue());
-            case FORMULA -> cell.getCellFormula();
-            default -> null;
-        };
     }
 
     @Transactional
@@ -273,6 +282,7 @@ public class AdminService {
         video.setDuration(request.duration());
 
         video = videoLessonRepository.save(video);
+        catalogVersions.bumpAfterCommit(CatalogVersions.VIDEOS);
         logAction(adminId, "CREATED_VIDEO", "VIDEO", video.getId(), "Title: " + video.getTitle());
         return videoLessonMapper.toDto(video);
     }
@@ -301,6 +311,7 @@ public class AdminService {
         }
 
         video = videoLessonRepository.save(video);
+        catalogVersions.bumpAfterCommit(CatalogVersions.VIDEOS);
         logAction(adminId, "UPDATED_VIDEO", "VIDEO", video.getId(), "Title: " + video.getTitle());
         return videoLessonMapper.toDto(video);
     }
@@ -310,6 +321,7 @@ public class AdminService {
         VideoLesson video = videoLessonRepository.findById(videoId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "VIDEO_NOT_FOUND", "Видео не найдено"));
         videoLessonRepository.delete(video);
+        catalogVersions.bumpAfterCommit(CatalogVersions.VIDEOS);
         logAction(adminId, "DELETED_VIDEO", "VIDEO", videoId, "Deleted video ID: " + videoId);
     }
 }
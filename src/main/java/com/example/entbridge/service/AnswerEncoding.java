@@ -0,0 +1,151 @@
+package com.example.entbridge.service;
+
+import java.util.Arrays;
+
+// Формат v2: версия, n, n дельт id вопросов (zigzag varint), для каждого вопроса — число выбранных вариантов
+// (varint, 0 — нет ответа) и их id дельтами (zigzag varint), битсет правильности на ceil(n/8) байт.
+// Хранятся сами id вариантов, а не индексы в текущем ключе: правка вариантов не меняет сохранённые ответы.
+public final class AnswerEncoding {
+    private static final byte VERSION = 2;
+    private static final long[] NONE = new long[0];
+
+    private AnswerEncoding() {
+    }
+
+    // selectedOptionIds[i] — id выбранных вариантов вопроса i (null или пустой массив — нет ответа).
+    public static byte[] encode(long[] questionIds, long[][] selectedOptionIds, boolean[] correct, int count) {
+        Buffer buffer = new Buffer(8 + count * 4);
+        buffer.put(VERSION);
+        buffer.putVarLong(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = questionIds[i] - previous;
+            buffer.putVarLong((delta << 1) ^ (delta >> 63));
+            previous = questionIds[i];
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            long[] selected = selectedOptionIds[i] == null ? NONE : selectedOptionIds[i];
+            buffer.putVarLong(selected.length);
+            for (long optionId : selected) {
+                long delta = optionId - previous;
+                buffer.putVarLong((delta << 1) ^ (delta >> 63));
+                previous = optionId;
+            }
+        }
+        for (int i = 0; i < count; i += 8) {
+            int bits = 0;
+            for (int j = 0; j < 8 && i + j < count; j++) {
+                if (correct[i + j]) {
+                    bits |= 1 << j;
+                }
+            }
+            buffer.put((byte) bits);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static Decoded decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new Decoded(NONE, new long[0][], new byte[0]);
+        }
+        if (data[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported answer encoding version " + data[0]);
+        }
+        int[] pos = { 1 };
+        int count = (int) readVarLong(data, pos);
+        long[] questionIds = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag = readVarLong(data, pos);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            questionIds[i] = previous;
+        }
+        long[][] selected = new long[count][];
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            int size = (int) readVarLong(data, pos);
+            selected[i] = size == 0 ? NONE : new long[size];
+            for (int j = 0; j < size; j++) {
+                long zigzag = readVarLong(data, pos);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                selected[i][j] = previous;
+            }
+        }
+        byte[] correct = Arrays.copyOfRange(data, pos[0], pos[0] + (count + 7) / 8);
+        return new Decoded(questionIds, selected, correct);
+    }
+
+    private static long readVarLong(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    public static final class Decoded {
+        private final long[] questionIds;
+        private final long[][] selectedOptionIds;
+        private final byte[] correct;
+
+        private Decoded(long[] questionIds, long[][] selectedOptionIds, byte[] correct) {
+            this.questionIds = questionIds;
+            this.selectedOptionIds = selectedOptionIds;
+            this.correct = correct;
+        }
+
+        public int size() {
+            return questionIds.length;
+        }
+
+        public long questionId(int index) {
+            return questionIds[index];
+        }
+
+        public long[] selectedOptionIds(int index) {
+            return selectedOptionIds[index].clone();
+        }
+
+        public boolean isAnswered(int index) {
+            return selectedOptionIds[index].length > 0;
+        }
+
+        public boolean isCorrect(int index) {
+            return (correct[index >> 3] & (1 << (index & 7))) != 0;
+        }
+    }
+
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        private Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void put(byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = b;
+        }
+
+        private void putVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.QuestionRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class AnswerKey {
+    public static final long NO_OPTION = Grading.NO_OPTION;
+
+    private final String subjectCode;
+    private final long version;
+    private final long[] questionIds;
+    private final int[] points;
+    private final long[] correctOptionIds;
+    private final long[] correctMasks;
+    private final int[] optionOffsets;
+    private final long[] optionIds;
+
+    private AnswerKey(String subjectCode, long version, long[] questionIds, int[] points, long[] correctOptionIds,
+            long[] correctMasks, int[] optionOffsets, long[] optionIds) {
+        this.subjectCode = subjectCode;
+        this.version = version;
+        this.questionIds = questionIds;
+        this.points = points;
+        this.correctOptionIds = correctOptionIds;
+        this.correctMasks = correctMasks;
+        this.optionOffsets = optionOffsets;
+        this.optionIds = optionIds;
+    }
+
+    // Строки должны быть отсортированы по id вопроса, затем по id варианта.
+    public static AnswerKey build(String subjectCode, long version, List<QuestionRepository.AnswerKeyRow> rows) {
+        int questionCount = 0;
+        long lastQuestionId = Long.MIN_VALUE;
+        for (QuestionRepository.AnswerKeyRow row : rows) {
+            if (row.getQuestionId() != lastQuestionId) {
+                questionCount++;
+                lastQuestionId = row.getQuestionId();
+            }
+        }
+
+        long[] questionIds = new long[questionCount];
+        int[] points = new int[questionCount];
+        long[] correctOptionIds = new long[questionCount];
+        long[] correctMasks = new long[questionCount];
+        int[] optionOffsets = new int[questionCount + 1];
+        long[] optionIds = new long[rows.size()];
+        Arrays.fill(correctOptionIds, NO_OPTION);
+
+        int q = -1;
+        int optionCount = 0;
+        lastQuestionId = Long.MIN_VALUE;
+        for (QuestionRepository.AnswerKeyRow row : rows) {
+            if (row.getQuestionId() != lastQuestionId) {
+                q++;
+                lastQuestionId = row.getQuestionId();
+                questionIds[q] = lastQuestionId;
+                points[q] = row.getPoints() == null ? 1 : row.getPoints();
+                optionOffsets[q] = optionCount;
+            }
+            if (row.getOptionId() == null) {
+                continue;
+            }
+            int index = optionCount - optionOffsets[q];
+            optionIds[optionCount++] = row.getOptionId();
+            if (Boolean.TRUE.equals(row.getCorrect())) {
+                if (correctOptionIds[q] == NO_OPTION) {
+                    correctOptionIds[q] = row.getOptionId();
+                }
+                if (index < Long.SIZE) {
+                    correctMasks[q] |= 1L << index;
+                }
+            }
+        }
+        optionOffsets[questionCount] = optionCount;
+
+        return new AnswerKey(subjectCode, version, questionIds, points, correctOptionIds, correctMasks,
+                optionOffsets, Arrays.copyOf(optionIds, optionCount));
+    }
+
+    public String subjectCode() {
+        return subjectCode;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    // Внутренние массивы без копирования — только для чтения в Grading.
+    long[] questionIds() {
+        return questionIds;
+    }
+
+    long[] correctMasks() {
+        return correctMasks;
+    }
+
+    int[] pointsArray() {
+        return points;
+    }
+
+    int[] optionOffsets() {
+        return optionOffsets;
+    }
+
+    long[] optionIds() {
+        return optionIds;
+    }
+
+    public int indexOf(long questionId) {
+        int idx = Arrays.binarySearch(questionIds, questionId);
+        return idx < 0 ? -1 : idx;
+    }
+
+    public long questionId(int index) {
+        return questionIds[index];
+    }
+
+    public int points(int index) {
+        return points[index];
+    }
+
+    public long correctOptionId(int index) {
+        return correctOptionIds[index];
+    }
+
+    public long correctMask(int index) {
+        return correctMasks[index];
+    }
+
+    public int optionCount(int index) {
+        return optionOffsets[index + 1] - optionOffsets[index];
+    }
+
+    public long optionId(int index, int optionIndex) {
+        return optionIds[optionOffsets[index] + optionIndex];
+    }
+
+    // id вариантов вопроса с индексом index, отмеченных в маске, в порядке id.
+    public List<String> optionIdsOf(int index, long mask) {
+        List<String> ids = new ArrayList<>(Long.bitCount(mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            int optionIndex = Long.numberOfTrailingZeros(bits);
+            if (optionIndex < optionCount(index)) {
+                ids.add(Long.toString(optionId(index, optionIndex)));
+            }
+        }
+        return ids;
+    }
+
+    // То же, что optionIdsOf, но массивом id для AnswerEncoding.
+    public long[] selectedOptionIds(int index, long mask) {
+        long[] ids = new long[Long.bitCount(mask)];
+        int n = 0;
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            int optionIndex = Long.numberOfTrailingZeros(bits);
+            if (optionIndex < optionCount(index)) {
+                ids[n++] = optionId(index, optionIndex);
+            }
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    public int optionIndex(int index, long optionId) {
+        for (int i = optionOffsets[index], end = optionOffsets[index + 1]; i < end; i++) {
+            if (optionIds[i] == optionId) {
+                return i - optionOffsets[index];
+            }
+        }
+        return -1;
+    }
+}
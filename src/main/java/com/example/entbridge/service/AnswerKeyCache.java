@@ -0,0 +1,85 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.AnswerKeyVersionRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ключ помечен версией subjects.answer_key_version; не чаще check-interval-ms узел сверяет её с базой
+// и перечитывает ключ, если вопросы предмета поменял другой узел.
+@Component
+@Slf4j
+public class AnswerKeyCache {
+    private final QuestionRepository questionRepository;
+    private final AnswerKeyVersionRepository answerKeyVersionRepository;
+    private final long checkIntervalNanos;
+    private final ConcurrentHashMap<String, Cached> keys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public AnswerKeyCache(QuestionRepository questionRepository,
+            AnswerKeyVersionRepository answerKeyVersionRepository,
+            @Value("${app.answer-keys.check-interval-ms:1000}") long checkIntervalMs) {
+        this.questionRepository = questionRepository;
+        this.answerKeyVersionRepository = answerKeyVersionRepository;
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, checkIntervalMs));
+    }
+
+    public AnswerKey get(String subjectCode) {
+        Cached cached = keys.get(subjectCode);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.checkedAt() < checkIntervalNanos) {
+            return cached.key();
+        }
+        long generation = generation(subjectCode).get();
+        // Версию читаем до строк: ключ никогда не получит версию новее своих данных.
+        long version = answerKeyVersionRepository.find(subjectCode);
+        AnswerKey key;
+        if (cached != null && cached.key().version() == version) {
+            key = cached.key();
+        } else {
+            key = AnswerKey.build(subjectCode, version, questionRepository.findAnswerKeyRows(subjectCode));
+            log.debug("Answer key for subject {} built: {} questions, version {}", subjectCode, key.size(), version);
+        }
+        // Если предмет изменили на этом узле во время загрузки, ключ не кэшируем.
+        keys.compute(subjectCode, (code, current) -> {
+            if (generation(code).get() != generation) {
+                return current;
+            }
+            return current != null && current.key().version() > version ? current : new Cached(key, now);
+        });
+        return key;
+    }
+
+    public void invalidate(String subjectCode) {
+        generation(subjectCode).incrementAndGet();
+        keys.remove(subjectCode);
+    }
+
+    // Вызывается в транзакции, которая пишет вопросы или варианты: версия в базе растёт вместе с ними.
+    public void invalidateAfterCommit(String subjectCode) {
+        answerKeyVersionRepository.bump(subjectCode);
+        invalidate(subjectCode);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(subjectCode);
+                }
+            });
+        }
+    }
+
+    private AtomicLong generation(String subjectCode) {
+        return generations.computeIfAbsent(subjectCode, code -> new AtomicLong());
+    }
+
+    private record Cached(AnswerKey key, long checkedAt) {
+    }
+}
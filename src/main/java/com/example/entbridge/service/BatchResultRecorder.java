@@ -0,0 +1,67 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.repository.TestResultBatchRepository;
+import com.example.entbridge.repository.UserStatsRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Запись пачки проверенных попыток для массовых загрузок: один пакетный INSERT результатов и одно обновление
+// агрегатов. Вызывается внутри транзакции; статистика вопросов, рейтинг и колоды повторения обновляются
+// после коммита.
+@Component
+public class BatchResultRecorder {
+    private final TestResultBatchRepository testResultBatchRepository;
+    private final UserStatsRepository userStatsRepository;
+    private final ItemStatsService itemStatsService;
+    private final LeaderboardService leaderboardService;
+    private final ReviewService reviewService;
+
+    public BatchResultRecorder(TestResultBatchRepository testResultBatchRepository,
+            UserStatsRepository userStatsRepository,
+            ItemStatsService itemStatsService,
+            LeaderboardService leaderboardService,
+            ReviewService reviewService) {
+        this.testResultBatchRepository = testResultBatchRepository;
+        this.userStatsRepository = userStatsRepository;
+        this.itemStatsService = itemStatsService;
+        this.leaderboardService = leaderboardService;
+        this.reviewService = reviewService;
+    }
+
+    public void record(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<TestResultBatchRepository.PendingResult> results = new ArrayList<>(entries.size());
+        // TreeMap — строки агрегатов обновляются в одном порядке и параллельные пачки не взаимоблокируются.
+        Map<String, UserStatsRepository.AttemptDelta> deltas = new TreeMap<>();
+        for (Entry entry : entries) {
+            TestService.GradedAttempt graded = entry.graded();
+            TestResultBatchRepository.PendingResult result = new TestResultBatchRepository.PendingResult(
+                    null, entry.userId(), graded.subject().getId(), graded.score(), graded.maxScore(),
+                    graded.totalQuestions(), graded.correctAnswers(), entry.completedAt(), graded.encodedAnswers());
+            results.add(result);
+            deltas.merge(result.userId() + ":" + result.subjectId(), result.toAttemptDelta(),
+                    UserStatsRepository.AttemptDelta::merge);
+        }
+        testResultBatchRepository.insertBatch(results);
+        userStatsRepository.recordAttemptsBatch(deltas.values());
+        for (Entry entry : entries) {
+            TestService.GradedAttempt graded = entry.graded();
+            Subject subject = graded.subject();
+            itemStatsService.recordAfterCommit(subject.getId(), graded.score(), graded.maxScore(),
+                    graded.encodedAnswers());
+            leaderboardService.recordAfterCommit(subject, entry.userId(), graded.score());
+            reviewService.recordAfterCommit(entry.userId(), graded.encodedAnswers());
+        }
+    }
+
+    public record Entry(long userId, TestService.GradedAttempt graded, Instant completedAt) {
+    }
+}
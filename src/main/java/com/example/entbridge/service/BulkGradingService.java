@@ -0,0 +1,449 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.entity.User;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.BulkGradedSheetRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.repository.UserRepository;
+import com.example.entbridge.util.ExpiringStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Массовая проверка бумажных бланков из CSV: "student,subject,answers", где student — id, email или логин,
+// answers — "questionId:optionId|optionId;..." (пустой список вариантов — вопрос без ответа).
+// Конвейер: чтение файла пачками → проверка пачек на собственном пуле bulk-grading (онлайн-проверки на пуле
+// grading с ним не конкурируют) → пакетная запись в потоке задания. В работе одновременно не больше window
+// пачек, поэтому память не зависит от размера файла. Записанная строка (хэш содержимого файла + номер строки)
+// запоминается в bulk_graded_sheets: повторная загрузка того же файла после сбоя записывает только недостающие
+// строки, а те же ответы в другом файле считаются новой попыткой.
+@Service
+@Slf4j
+public class BulkGradingService {
+    static final String RUNNING = "RUNNING";
+    static final String COMPLETED = "COMPLETED";
+    static final String FAILED = "FAILED";
+    private static final List<String> HEADER = List.of("student", "subject", "answers");
+
+    private final SubjectRepository subjectRepository;
+    private final UserRepository userRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final TestService testService;
+    private final BatchResultRecorder batchResultRecorder;
+    private final BulkGradedSheetRepository bulkGradedSheetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor gradingExecutor;
+    private final ThreadPoolTaskExecutor bulkJobExecutor;
+    private final ExpiringStore<String, Job> jobs;
+    private final Duration retention;
+    private final Duration sheetRetention;
+    private final int chunkSize;
+    private final int window;
+    private final int maxErrors;
+
+    public BulkGradingService(SubjectRepository subjectRepository,
+            UserRepository userRepository,
+            AnswerKeyCache answerKeyCache,
+            TestService testService,
+            BatchResultRecorder batchResultRecorder,
+            BulkGradedSheetRepository bulkGradedSheetRepository,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("bulkGradingExecutor") ThreadPoolTaskExecutor gradingExecutor,
+            @Qualifier("bulkJobExecutor") ThreadPoolTaskExecutor bulkJobExecutor,
+            @Value("${app.bulk-grading.chunk-size:500}") int chunkSize,
+            @Value("${app.bulk-grading.max-errors:100}") int maxErrors,
+            @Value("${app.bulk-grading.retention-hours:24}") long retentionHours,
+            @Value("${app.bulk-grading.sheet-retention-days:30}") long sheetRetentionDays) {
+        this.subjectRepository = subjectRepository;
+        this.userRepository = userRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.testService = testService;
+        this.batchResultRecorder = batchResultRecorder;
+        this.bulkGradedSheetRepository = bulkGradedSheetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.gradingExecutor = gradingExecutor;
+        this.bulkJobExecutor = bulkJobExecutor;
+        this.jobs = new ExpiringStore<>(1000);
+        this.retention = Duration.ofHours(retentionHours);
+        this.sheetRetention = Duration.ofDays(sheetRetentionDays);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.window = Math.max(2, gradingExecutor.getMaxPoolSize() * 2);
+        this.maxErrors = maxErrors;
+    }
+
+    public AdminDtos.BulkGradingJobDto start(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "FILE_REQUIRED", "Файл не выбран");
+        }
+        // Загруженный файл удаляется после ответа, заданию нужна своя копия.
+        Path copy;
+        String fileHash;
+        try {
+            copy = Files.createTempFile("bulk-grading-", ".csv");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            fileHash = HexFormat.of().formatHex(digest.digest());
+        } catch (IOException ex) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "FILE_READ_ERROR", "Не удалось прочитать файл");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot hash uploaded file", ex);
+        }
+        Job job = new Job(UUID.randomUUID().toString(), fileHash);
+        jobs.put(job.id, job, retention.toMillis());
+        try {
+            bulkJobExecutor.execute(() -> run(job, copy));
+        } catch (TaskRejectedException ex) {
+            jobs.remove(job.id);
+            deleteQuietly(copy);
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "BULK_JOB_LIMIT",
+                    "Слишком много заданий проверки, попробуйте позже");
+        }
+        log.info("Bulk grading job {} started for file {} ({} bytes)", job.id, file.getOriginalFilename(),
+                file.getSize());
+        return job.toDto();
+    }
+
+    public AdminDtos.BulkGradingJobDto status(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "JOB_NOT_FOUND", "Задание не найдено");
+        }
+        return job.toDto();
+    }
+
+    @Scheduled(fixedDelayString = "${app.bulk-grading.purge-interval-ms:3600000}")
+    public void purgeGradedSheets() {
+        int removed = bulkGradedSheetRepository.deleteGradedBefore(Instant.now().minus(sheetRetention));
+        if (removed > 0) {
+            log.debug("Deleted {} bulk graded sheet markers", removed);
+        }
+    }
+
+    private void run(Job job, Path file) {
+        Map<String, Optional<Subject>> subjects = new ConcurrentHashMap<>();
+        Deque<CompletableFuture<List<Row>>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            long lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1) {
+                    line = stripBom(line);
+                    if (isHeader(line)) {
+                        continue;
+                    }
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                job.rowsRead.incrementAndGet();
+                chunk.add(parse(lineNo, line));
+                if (chunk.size() == chunkSize) {
+                    inFlight.add(gradeAsync(job, chunk, subjects));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= window) {
+                        write(job, inFlight.poll().join());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(gradeAsync(job, chunk, subjects));
+            }
+            while (!inFlight.isEmpty()) {
+                write(job, inFlight.poll().join());
+            }
+            job.finish(COMPLETED);
+            log.info("Bulk grading job {} completed: {} rows, {} written, {} duplicates, {} failed", job.id,
+                    job.rowsRead.get(), job.written.get(), job.duplicates.get(), job.failed.get());
+        } catch (IOException | RuntimeException ex) {
+            inFlight.forEach(future -> future.cancel(false));
+            job.error(0, "Задание прервано: " + ex.getMessage());
+            job.finish(FAILED);
+            log.error("Bulk grading job {} failed: {}", job.id, ex.getMessage(), ex);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private CompletableFuture<List<Row>> gradeAsync(Job job, List<Row> chunk, Map<String, Optional<Subject>> subjects) {
+        return CompletableFuture.supplyAsync(() -> {
+            for (Row row : chunk) {
+                if (row.error != null) {
+                    continue;
+                }
+                Subject subject = subjects.computeIfAbsent(row.subjectCode, subjectRepository::findByCode)
+                        .orElse(null);
+                if (subject == null) {
+                    row.error = "Предмет не найден: " + row.subjectCode;
+                    continue;
+                }
+                AnswerKey key = answerKeyCache.get(subject.getCode());
+                if (key.size() == 0) {
+                    row.error = "В этом предмете нет вопросов";
+                    continue;
+                }
+                // Та же проверка, что и при отправке теста через API: весь банк предмета.
+                try {
+                    row.graded = testService.grade(subject, key, null, row.answers);
+                    job.graded.incrementAndGet();
+                } catch (RuntimeException ex) {
+                    row.error = "Ошибка проверки: " + ex.getMessage();
+                }
+                row.answers = null;
+            }
+            return chunk;
+        }, gradingExecutor);
+    }
+
+    private void write(Job job, List<Row> chunk) {
+        Set<String> logins = new HashSet<>();
+        Set<Long> ids = new HashSet<>();
+        for (Row row : chunk) {
+            if (row.graded == null) {
+                continue;
+            }
+            Long id = parseId(row.student);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                logins.add(row.student.toLowerCase(Locale.ROOT));
+            }
+        }
+        Map<String, Long> students = new HashMap<>();
+        if (!ids.isEmpty()) {
+            userRepository.findAllById(ids).forEach(u -> students.put(u.getId().toString(), u.getId()));
+        }
+        if (!logins.isEmpty()) {
+            for (User user : userRepository.findByLoginIn(logins)) {
+                if (user.getEmail() != null) {
+                    students.put(user.getEmail().toLowerCase(Locale.ROOT), user.getId());
+                }
+                if (user.getUsername() != null) {
+                    students.put(user.getUsername().toLowerCase(Locale.ROOT), user.getId());
+                }
+            }
+        }
+
+        Instant completedAt = Instant.now();
+        List<BatchResultRecorder.Entry> entries = new ArrayList<>(chunk.size());
+        List<BulkGradedSheetRepository.Sheet> sheets = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.graded == null) {
+                job.failed.incrementAndGet();
+                job.error(row.line, row.error);
+                continue;
+            }
+            Long id = parseId(row.student);
+            Long userId = students.get(id != null ? id.toString() : row.student.toLowerCase(Locale.ROOT));
+            if (userId == null) {
+                job.failed.incrementAndGet();
+                job.error(row.line, "Ученик не найден: " + row.student);
+                continue;
+            }
+            entries.add(new BatchResultRecorder.Entry(userId, row.graded, completedAt));
+            sheets.add(new BulkGradedSheetRepository.Sheet(job.fileHash, row.line));
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            int duplicates = transactionTemplate.execute(status -> {
+                Set<String> existing = bulkGradedSheetRepository.findExisting(sheets);
+                List<BatchResultRecorder.Entry> fresh = new ArrayList<>(entries.size());
+                List<BulkGradedSheetRepository.Sheet> freshSheets = new ArrayList<>(entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    if (!existing.contains(sheets.get(i).key())) {
+                        fresh.add(entries.get(i));
+                        freshSheets.add(sheets.get(i));
+                    }
+                }
+                bulkGradedSheetRepository.insertBatch(freshSheets);
+                batchResultRecorder.record(fresh);
+                return entries.size() - fresh.size();
+            });
+            job.written.addAndGet(entries.size() - duplicates);
+            job.duplicates.addAndGet(duplicates);
+        } catch (RuntimeException ex) {
+            log.warn("Bulk grading job {}: batch of {} results rejected: {}", job.id, entries.size(), ex.getMessage());
+            job.failed.addAndGet(entries.size());
+            job.error(chunk.get(0).line, "Пачка из " + entries.size() + " результатов не записана: " + ex.getMessage());
+        }
+    }
+
+    static Row parse(long line, String text) {
+        String[] fields = text.split(",", 3);
+        if (fields.length < 2) {
+            return Row.failed(line, "Ожидается: ученик, предмет, ответы");
+        }
+        String student = unquote(fields[0]);
+        String subjectCode = unquote(fields[1]);
+        if (student.isEmpty() || subjectCode.isEmpty()) {
+            return Row.failed(line, "Не указан ученик или предмет");
+        }
+        List<TestDtos.Answer> answers = new ArrayList<>();
+        String answerText = fields.length > 2 ? unquote(fields[2]) : "";
+        for (String item : answerText.split(";")) {
+            if (item.isBlank()) {
+                continue;
+            }
+            int colon = item.indexOf(':');
+            if (colon <= 0) {
+                return Row.failed(line, "Некорректный ответ: " + item.trim());
+            }
+            List<String> options = new ArrayList<>();
+            for (String option : item.substring(colon + 1).split("\\|")) {
+                if (!option.isBlank()) {
+                    options.add(option.trim());
+                }
+            }
+            answers.add(new TestDtos.Answer(item.substring(0, colon).trim(), null, options));
+        }
+        return new Row(line, student, subjectCode, answers);
+    }
+
+    static boolean isHeader(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != HEADER.size()) {
+            return false;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            if (!HEADER.get(i).equals(unquote(fields[i]).toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return trimmed;
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    private static Long parseId(String student) {
+        try {
+            return Long.parseLong(student);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Cannot delete temporary file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    static final class Row {
+        final long line;
+        final String student;
+        final String subjectCode;
+        List<TestDtos.Answer> answers;
+        TestService.GradedAttempt graded;
+        String error;
+
+        Row(long line, String student, String subjectCode, List<TestDtos.Answer> answers) {
+            this.line = line;
+            this.student = student;
+            this.subjectCode = subjectCode;
+            this.answers = answers;
+        }
+
+        static Row failed(long line, String error) {
+            Row row = new Row(line, null, null, null);
+            row.error = error;
+            return row;
+        }
+    }
+
+    private final class Job {
+        private final String id;
+        private final String fileHash;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong graded = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final List<AdminDtos.BulkRowError> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile String status = RUNNING;
+        private volatile Instant finishedAt;
+
+        private Job(String id, String fileHash) {
+            this.id = id;
+            this.fileHash = fileHash;
+        }
+
+        private void error(long line, String message) {
+            if (errors.size() < maxErrors) {
+                errors.add(new AdminDtos.BulkRowError(line, message));
+            }
+        }
+
+        private void finish(String finalStatus) {
+            finishedAt = Instant.now();
+            status = finalStatus;
+        }
+
+        private AdminDtos.BulkGradingJobDto toDto() {
+            List<AdminDtos.BulkRowError> snapshot;
+            synchronized (errors) {
+                snapshot = List.copyOf(errors);
+            }
+            return new AdminDtos.BulkGradingJobDto(id, status, rowsRead.get(), graded.get(), written.get(),
+                    duplicates.get(), failed.get(), startedAt, finishedAt, snapshot);
+        }
+    }
+}
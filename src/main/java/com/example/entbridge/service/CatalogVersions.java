@@ -0,0 +1,56 @@
+package com.example.entbridge.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Версии каталогов живут в памяти узла; соль запуска сбрасывает ETag после рестарта.
+// Изменение через админку сдвигает версию только на том узле, который его выполнил: за балансировщиком
+// с несколькими узлами другие узлы продолжат отвечать 304 по старому ETag. Поэтому условные GET каталогов
+// рассчитаны на один узел (или липкие сессии); для нескольких узлов версию нужно хранить в общей базе.
+@Component
+public class CatalogVersions {
+    public static final String SUBJECTS = "subjects";
+    public static final String VIDEOS = "videos";
+
+    private final String bootId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public static String questions(String subjectCode) {
+        return "questions:" + subjectCode;
+    }
+
+    public String etag(String catalog) {
+        return etag(catalog, null);
+    }
+
+    public String etag(String catalog, String variant) {
+        String key = variant == null ? catalog : catalog + "|" + variant;
+        return "\"" + bootId + "-" + Integer.toHexString(key.hashCode()) + "-" + version(catalog).get() + "\"";
+    }
+
+    public void bump(String catalog) {
+        version(catalog).incrementAndGet();
+    }
+
+    // Повторный сдвиг после коммита, чтобы параллельное чтение старых данных не закрепилось под новой версией.
+    public void bumpAfterCommit(String catalog) {
+        bump(catalog);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(catalog);
+                }
+            });
+        }
+    }
+
+    private AtomicLong version(String catalog) {
+        return versions.computeIfAbsent(catalog, c -> new AtomicLong());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.entbridge.service;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// Вопросы предмета, разложенные по корзинам трудности в логитах (шкала Раша): b = ln((1 - p) / p), где p —
+// сглаженная доля верных ответов. Вопрос с трудностью, равной способности ученика, решается с вероятностью 1/2.
+// Индексы хранятся как позиции в AnswerKey, поэтому индекс неизменяем и привязан к версии ключа.
+public final class DifficultyIndex {
+    static final double MIN_DIFFICULTY = -4.0;
+    static final double MAX_DIFFICULTY = 4.0;
+    static final double BUCKET_WIDTH = 0.25;
+    static final int BUCKETS = (int) ((MAX_DIFFICULTY - MIN_DIFFICULTY) / BUCKET_WIDTH) + 1;
+    private static final int PROBES = 4;
+
+    private final AnswerKey key;
+    private final double[] difficulties;
+    // positions[bucketStart[b]..bucketStart[b + 1]) — позиции вопросов корзины b.
+    private final int[] bucketStart;
+    private final int[] positions;
+    private final long builtAt;
+
+    private DifficultyIndex(AnswerKey key, double[] difficulties, int[] bucketStart, int[] positions, long builtAt) {
+        this.key = key;
+        this.difficulties = difficulties;
+        this.bucketStart = bucketStart;
+        this.positions = positions;
+        this.builtAt = builtAt;
+    }
+
+    // attempts/correct — по позициям ключа; вопросы без статистики получают p = 1/2 (трудность 0).
+    public static DifficultyIndex build(AnswerKey key, long[] attempts, long[] correct, long builtAt) {
+        int size = key.size();
+        double[] difficulties = new double[size];
+        int[] counts = new int[BUCKETS + 1];
+        for (int i = 0; i < size; i++) {
+            double p = (correct[i] + 1.0) / (attempts[i] + 2.0);
+            difficulties[i] = Math.max(MIN_DIFFICULTY, Math.min(MAX_DIFFICULTY, Math.log((1 - p) / p)));
+            counts[bucketOf(difficulties[i]) + 1]++;
+        }
+        int[] bucketStart = new int[BUCKETS + 1];
+        for (int b = 0; b < BUCKETS; b++) {
+            bucketStart[b + 1] = bucketStart[b] + counts[b + 1];
+        }
+        int[] fill = bucketStart.clone();
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[fill[bucketOf(difficulties[i])]++] = i;
+        }
+        return new DifficultyIndex(key, difficulties, bucketStart, positions, builtAt);
+    }
+
+    static int bucketOf(double difficulty) {
+        double clamped = Math.max(MIN_DIFFICULTY, Math.min(MAX_DIFFICULTY, difficulty));
+        return (int) Math.round((clamped - MIN_DIFFICULTY) / BUCKET_WIDTH);
+    }
+
+    public AnswerKey key() {
+        return key;
+    }
+
+    public long builtAt() {
+        return builtAt;
+    }
+
+    public double difficulty(int position) {
+        return difficulties[position];
+    }
+
+    // Ближайший к способности неиспользованный вопрос: корзины просматриваются от целевой попеременно вверх
+    // и вниз, внутри корзины — с случайного места по кругу. -1 — все вопросы уже выданы.
+    public int pick(double ability, BitSet used, SplittableRandom random) {
+        int target = bucketOf(ability);
+        for (int distance = 0; distance < BUCKETS; distance++) {
+            int found = pickInBucket(target + distance, used, random);
+            if (found < 0 && distance > 0) {
+                found = pickInBucket(target - distance, used, random);
+            }
+            if (found >= 0) {
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    // Вопросы без статистики все попадают в корзину трудности 0, и она может быть размером с банк. Поэтому сначала
+    // несколько случайных проб — пока корзина в основном не выдана, вопрос находится за O(1); обход по кругу
+    // останавливается на первом невыданном вопросе и просматривает не больше выданных в сессии + 1 позиций.
+    private int pickInBucket(int bucket, BitSet used, SplittableRandom random) {
+        if (bucket < 0 || bucket >= BUCKETS) {
+            return -1;
+        }
+        int from = bucketStart[bucket];
+        int size = bucketStart[bucket + 1] - from;
+        if (size == 0) {
+            return -1;
+        }
+        for (int probe = 0; probe < Math.min(PROBES, size); probe++) {
+            int position = positions[from + random.nextInt(size)];
+            if (!used.get(position)) {
+                return position;
+            }
+        }
+        int start = random.nextInt(size);
+        for (int k = 0; k < size; k++) {
+            int position = positions[from + (start + k) % size];
+            if (!used.get(position)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+}
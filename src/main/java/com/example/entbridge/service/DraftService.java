@@ -0,0 +1,265 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.ExamDraftRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Черновики живут в памяти: повторные сохранения одного вопроса схлопываются в маску, фоновый сброс пишет
+// в exam_drafts только изменившиеся черновики пачкой. Общий объём ограничен числом вопросов во всех черновиках.
+// Черновик, которого нет в памяти (например, после перезапуска), поднимается из exam_drafts и остаётся в памяти.
+@Service
+@Slf4j
+public class DraftService {
+    private final ExamDraftRepository examDraftRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final ConcurrentHashMap<String, Draft> drafts = new ConcurrentHashMap<>();
+    private final AtomicLong totalEntries = new AtomicLong();
+    private final long maxEntries;
+    private final Duration retention;
+
+    public DraftService(ExamDraftRepository examDraftRepository,
+            AnswerKeyCache answerKeyCache,
+            @Value("${app.drafts.max-entries:2000000}") long maxEntries,
+            @Value("${app.drafts.retention-hours:24}") long retentionHours) {
+        this.examDraftRepository = examDraftRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.maxEntries = maxEntries;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    public TestDtos.DraftDto save(ExamSession session, List<TestDtos.Answer> answers) {
+        AnswerKey key = answerKeyCache.get(session.subjectCode());
+        Draft draft = draftFor(session.id(), session.userId(), session.subjectCode(), session.expiresAt());
+        synchronized (draft) {
+            Map<Long, long[]> merged = new HashMap<>();
+            for (TestDtos.Answer answer : answers) {
+                long questionId = parseLong(answer.questionId());
+                int i = key.indexOf(questionId);
+                if (i < 0 || !session.contains(questionId)) {
+                    continue;
+                }
+                long mask = mask(key, i, answer.selectedOptionId());
+                if (answer.selectedOptionIds() != null) {
+                    for (String optionId : answer.selectedOptionIds()) {
+                        mask |= mask(key, i, optionId);
+                    }
+                }
+                merged.put(questionId, key.selectedOptionIds(i, mask));
+            }
+            // Лимит проверяется до изменений: отклонённое сохранение не оставляет в черновике часть ответов.
+            long added = merged.keySet().stream().filter(id -> !draft.answers.containsKey(id)).count();
+            if (added > 0 && totalEntries.addAndGet(added) > maxEntries) {
+                totalEntries.addAndGet(-added);
+                log.warn("Draft memory limit of {} answers reached, rejecting autosave for session {}",
+                        maxEntries, session.id());
+                throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "DRAFT_LIMIT",
+                        "Черновик временно не сохраняется, попробуйте позже");
+            }
+            draft.answers.putAll(merged);
+            draft.updatedAt = Instant.now();
+            draft.dirty = true;
+            return toDto(session.id(), draft);
+        }
+    }
+
+    public TestDtos.DraftDto load(long userId, String sessionId) {
+        Draft draft = drafts.get(sessionId);
+        if (draft == null) {
+            draft = restore(sessionId, userId, null);
+        }
+        if (draft == null || draft.userId != userId) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "DRAFT_NOT_FOUND", "Черновик не найден");
+        }
+        synchronized (draft) {
+            return toDto(sessionId, draft);
+        }
+    }
+
+    // Удалённый черновик помечается: если параллельный flush уже успел записать его снимок, он сам удалит строку.
+    public void discard(String sessionId) {
+        Draft draft = drafts.remove(sessionId);
+        if (draft != null) {
+            synchronized (draft) {
+                draft.discarded = true;
+                totalEntries.addAndGet(-draft.answers.size());
+            }
+        }
+        examDraftRepository.delete(sessionId);
+    }
+
+    private Draft draftFor(String sessionId, long userId, String subjectCode, Instant expiresAt) {
+        Draft draft = drafts.get(sessionId);
+        if (draft != null) {
+            return draft;
+        }
+        draft = restore(sessionId, userId, expiresAt);
+        if (draft != null && drafts.get(sessionId) != draft) {
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "DRAFT_LIMIT",
+                    "Черновик временно не сохраняется, попробуйте позже");
+        }
+        if (draft != null) {
+            return draft;
+        }
+        Draft created = new Draft(userId, subjectCode, expiresAt);
+        Draft existing = drafts.putIfAbsent(sessionId, created);
+        return existing == null ? created : existing;
+    }
+
+    // Поднимает черновик из exam_drafts в память. Если память занята, черновик возвращается, но не кэшируется.
+    private Draft restore(String sessionId, long userId, Instant expiresAt) {
+        ExamDraftRepository.DraftRow row = examDraftRepository.find(sessionId, userId);
+        if (row == null) {
+            return null;
+        }
+        AnswerEncoding.Decoded decoded = AnswerEncoding.decode(row.answers());
+        Draft restored = new Draft(userId, row.subjectCode(),
+                expiresAt == null ? row.updatedAt().plus(retention) : expiresAt);
+        for (int n = 0; n < decoded.size(); n++) {
+            restored.answers.put(decoded.questionId(n), decoded.selectedOptionIds(n));
+        }
+        restored.updatedAt = row.updatedAt();
+        if (totalEntries.addAndGet(restored.answers.size()) > maxEntries) {
+            totalEntries.addAndGet(-restored.answers.size());
+            return restored;
+        }
+        Draft existing = drafts.putIfAbsent(sessionId, restored);
+        if (existing != null) {
+            totalEntries.addAndGet(-restored.answers.size());
+            return existing;
+        }
+        return restored;
+    }
+
+    @Scheduled(fixedDelayString = "${app.drafts.flush-interval-ms:2000}")
+    public void flush() {
+        List<ExamDraftRepository.DraftRow> rows = new ArrayList<>();
+        List<Draft> flushed = new ArrayList<>();
+        for (Map.Entry<String, Draft> entry : drafts.entrySet()) {
+            Draft draft = entry.getValue();
+            synchronized (draft) {
+                if (!draft.dirty) {
+                    continue;
+                }
+                draft.dirty = false;
+                rows.add(new ExamDraftRepository.DraftRow(entry.getKey(), draft.userId, draft.subjectCode,
+                        encode(draft), draft.updatedAt));
+                flushed.add(draft);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            examDraftRepository.saveBatch(rows);
+            log.debug("Flushed {} exam drafts", rows.size());
+            for (int i = 0; i < flushed.size(); i++) {
+                Draft draft = flushed.get(i);
+                synchronized (draft) {
+                    if (draft.discarded) {
+                        examDraftRepository.delete(rows.get(i).sessionId());
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Exam draft flush failed for {} drafts, will retry: {}", rows.size(), ex.getMessage());
+            flushed.forEach(draft -> {
+                synchronized (draft) {
+                    draft.dirty = true;
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.drafts.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        drafts.forEach((sessionId, draft) -> {
+            synchronized (draft) {
+                if (draft.expiresAt.isBefore(now) && !draft.dirty && drafts.remove(sessionId, draft)) {
+                    totalEntries.addAndGet(-draft.answers.size());
+                }
+            }
+        });
+        int removed = examDraftRepository.deleteOlderThan(now.minus(retention));
+        if (removed > 0) {
+            log.debug("Deleted {} stale exam drafts", removed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static byte[] encode(Draft draft) {
+        long[] questionIds = draft.answers.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[][] selected = new long[questionIds.length][];
+        for (int i = 0; i < questionIds.length; i++) {
+            selected[i] = draft.answers.get(questionIds[i]);
+        }
+        return AnswerEncoding.encode(questionIds, selected, new boolean[questionIds.length], questionIds.length);
+    }
+
+    private static TestDtos.DraftDto toDto(String sessionId, Draft draft) {
+        long[] questionIds = draft.answers.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        List<TestDtos.Answer> answers = new ArrayList<>(questionIds.length);
+        for (long questionId : questionIds) {
+            List<String> selected = Arrays.stream(draft.answers.get(questionId)).mapToObj(Long::toString).toList();
+            answers.add(new TestDtos.Answer(Long.toString(questionId), selected.isEmpty() ? null : selected.get(0),
+                    selected));
+        }
+        return new TestDtos.DraftDto(sessionId, answers, draft.updatedAt);
+    }
+
+    // Вариант, которого нет у вопроса, отклоняет сохранение, а не превращается в пустой ответ.
+    private static long mask(AnswerKey key, int i, String optionId) {
+        if (optionId == null || optionId.isBlank()) {
+            return 0L;
+        }
+        int optionIndex = key.optionIndex(i, parseLong(optionId));
+        if (optionIndex < 0 || optionIndex >= Long.SIZE) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "UNKNOWN_OPTION", "Вариант ответа не относится к вопросу");
+        }
+        return 1L << optionIndex;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? Grading.NO_OPTION : Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return Grading.NO_OPTION;
+        }
+    }
+
+    private static final class Draft {
+        private final long userId;
+        private final String subjectCode;
+        private final Instant expiresAt;
+        private final Map<Long, long[]> answers = new HashMap<>();
+        private Instant updatedAt = Instant.now();
+        private boolean dirty;
+        private boolean discarded;
+
+        private Draft(long userId, String subjectCode, Instant expiresAt) {
+            this.userId = userId;
+            this.subjectCode = subjectCode;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.entbridge.service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class ExamSession {
+    private final String id;
+    private final long userId;
+    private final String subjectCode;
+    private final long seed;
+    private final long[] questionIds;
+    private final long[] sortedQuestionIds;
+    private final Instant startedAt;
+    private final Instant expiresAt;
+    private final AtomicBoolean submitted = new AtomicBoolean();
+
+    public ExamSession(String id, long userId, String subjectCode, long seed, long[] questionIds,
+            Instant startedAt, Instant expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.subjectCode = subjectCode;
+        this.seed = seed;
+        this.questionIds = questionIds;
+        this.sortedQuestionIds = questionIds.clone();
+        Arrays.sort(this.sortedQuestionIds);
+        this.startedAt = startedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public long userId() {
+        return userId;
+    }
+
+    public String subjectCode() {
+        return subjectCode;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public int questionCount() {
+        return questionIds.length;
+    }
+
+    public long questionId(int index) {
+        return questionIds[index];
+    }
+
+    public Instant startedAt() {
+        return startedAt;
+    }
+
+    public Instant expiresAt() {
+        return expiresAt;
+    }
+
+    public boolean markSubmitted() {
+        return submitted.compareAndSet(false, true);
+    }
+
+    public boolean isSubmitted() {
+        return submitted.get();
+    }
+
+    public void resetSubmitted() {
+        submitted.set(false);
+    }
+
+    public boolean contains(long questionId) {
+        return Arrays.binarySearch(sortedQuestionIds, questionId) >= 0;
+    }
+}
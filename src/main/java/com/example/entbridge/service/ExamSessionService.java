@@ -0,0 +1,268 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.QuestionDto;
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.mapper.QuestionMapper;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.util.ExpiringStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class ExamSessionService {
+    private final SubjectRepository subjectRepository;
+    private final QuestionRepository questionRepository;
+    private final QuestionMapper questionMapper;
+    private final AnswerKeyCache answerKeyCache;
+    private final TestService testService;
+    private final DraftService draftService;
+    private final ExpiringStore<String, ExamSession> sessions;
+    private final int maxQuestions;
+    private final int maxPageSize;
+    private final Duration gracePeriod;
+
+    public ExamSessionService(SubjectRepository subjectRepository,
+            QuestionRepository questionRepository,
+            QuestionMapper questionMapper,
+            AnswerKeyCache answerKeyCache,
+            TestService testService,
+            DraftService draftService,
+            @Value("${app.exam-sessions.max-sessions:50000}") int maxSessions,
+            @Value("${app.exam-sessions.max-questions:200}") int maxQuestions,
+            @Value("${app.exam-sessions.max-page-size:50}") int maxPageSize,
+            @Value("${app.exam-sessions.grace-seconds:120}") long graceSeconds) {
+        this.subjectRepository = subjectRepository;
+        this.questionRepository = questionRepository;
+        this.questionMapper = questionMapper;
+        this.answerKeyCache = answerKeyCache;
+        this.testService = testService;
+        this.draftService = draftService;
+        this.sessions = new ExpiringStore<>(maxSessions);
+        this.maxQuestions = maxQuestions;
+        this.maxPageSize = maxPageSize;
+        this.gracePeriod = Duration.ofSeconds(graceSeconds);
+    }
+
+    public TestDtos.SessionDto start(Long userId, TestDtos.StartSessionRequest request) {
+        Subject subject = subjectRepository.findByCode(request.subjectId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        AnswerKey key = answerKeyCache.get(subject.getCode());
+        if (key.size() == 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "NO_QUESTIONS", "В этом предмете нет вопросов");
+        }
+        int count = Math.min(Math.min(request.questionCount(), maxQuestions), key.size());
+        long seed = ThreadLocalRandom.current().nextLong();
+        int[] positions = sample(key.size(), count, seed);
+        long[] questionIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            questionIds[i] = key.questionId(positions[i]);
+        }
+
+        Instant startedAt = Instant.now();
+        Duration timeLimit = Duration.ofMinutes(request.timeLimitMinutes());
+        ExamSession session = new ExamSession(UUID.randomUUID().toString(), userId, subject.getCode(), seed,
+                questionIds, startedAt, startedAt.plus(timeLimit));
+        if (!sessions.put(session.id(), session, timeLimit.plus(gracePeriod).toMillis())) {
+            log.warn("Exam session store is full ({} sessions), rejecting start for user {}", sessions.size(), userId);
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "SESSION_LIMIT",
+                    "Слишком много активных экзаменов, попробуйте позже");
+        }
+        log.info("Exam session {} started by user {} for subject {} with {} questions", session.id(), userId,
+                subject.getCode(), count);
+        return toDto(session);
+    }
+
+    @Transactional(readOnly = true)
+    public TestDtos.SessionQuestionsDto questions(Long userId, String sessionId, int offset, int limit) {
+        ExamSession session = requireSession(userId, sessionId);
+        int from = Math.max(0, Math.min(offset, session.questionCount()));
+        int to = Math.min(session.questionCount(), from + Math.max(1, Math.min(limit, maxPageSize)));
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(session.questionId(i));
+        }
+        Map<Long, Question> byId = questionRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        List<QuestionDto> questions = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Question question = byId.get(id);
+            if (question != null) {
+                QuestionDto dto = questionMapper.toDto(question);
+                questions.add(new QuestionDto(dto.id(), dto.subjectId(), dto.question(),
+                        shuffleOptions(dto.options(), session.seed(), id)));
+            }
+        }
+        return new TestDtos.SessionQuestionsDto(session.id(), from, to - from, session.questionCount(), questions);
+    }
+
+    @Transactional
+    public TestDtos.ResultDto submit(Long userId, String sessionId, TestDtos.SessionSubmitRequest request) {
+        ExamSession session = requireSession(userId, sessionId);
+        if (Instant.now().isAfter(session.expiresAt().plus(gracePeriod))) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "SESSION_EXPIRED", "Время экзамена истекло");
+        }
+        if (!session.markSubmitted()) {
+            throw new ApiException(HttpStatus.CONFLICT, "SESSION_SUBMITTED", "Экзамен уже отправлен");
+        }
+        try {
+            Subject subject = subjectRepository.findByCode(session.subjectCode())
+                    .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND",
+                            "Предмет не найден"));
+            AnswerKey key = answerKeyCache.get(subject.getCode());
+            int[] positions = positions(key, session);
+            if (positions.length == 0) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "NO_QUESTIONS", "В этом предмете нет вопросов");
+            }
+            TestDtos.ResultDto result = testService.gradeAndRecord(userId, subject, key, positions,
+                    request.answers());
+            completeAfterCommit(session);
+            return result;
+        } catch (RuntimeException ex) {
+            session.resetSubmitted();
+            throw ex;
+        }
+    }
+
+    // Сессия и черновик удаляются только после коммита результата; при откате сессию можно отправить снова.
+    private void completeAfterCommit(ExamSession session) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(session);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    complete(session);
+                } else {
+                    session.resetSubmitted();
+                }
+            }
+        });
+    }
+
+    private void complete(ExamSession session) {
+        sessions.remove(session.id());
+        try {
+            draftService.discard(session.id());
+        } catch (RuntimeException ex) {
+            // Строку черновика всё равно удалит purgeExpired по сроку хранения.
+            log.warn("Cannot discard draft of submitted exam session {}: {}", session.id(), ex.getMessage());
+        }
+    }
+
+    public TestDtos.DraftDto saveDraft(Long userId, String sessionId, TestDtos.DraftRequest request) {
+        ExamSession session = requireSession(userId, sessionId);
+        if (Instant.now().isAfter(session.expiresAt()) || session.isSubmitted()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "SESSION_EXPIRED", "Время экзамена истекло");
+        }
+        return draftService.save(session, request.answers());
+    }
+
+    // Черновик читается и после потери сессии (например, после рестарта узла), чтобы ответы можно было отправить.
+    public TestDtos.DraftDto draft(Long userId, String sessionId) {
+        return draftService.load(userId, sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.exam-sessions.sweep-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = sessions.purgeExpired();
+        if (removed > 0) {
+            log.debug("Evicted {} expired exam sessions, {} active", removed, sessions.size());
+        }
+    }
+
+    // Выборка count различных индексов из [0, bankSize) алгоритмом Флойда, затем перемешивание.
+    static int[] sample(int bankSize, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BitSet chosen = new BitSet(bankSize);
+        int[] result = new int[count];
+        int n = 0;
+        for (int j = bankSize - count; j < bankSize; j++) {
+            int t = random.nextInt(j + 1);
+            int pick = chosen.get(t) ? j : t;
+            chosen.set(pick);
+            result[n++] = pick;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+
+    // Порядок вариантов выводится из seed сессии и id вопроса, поэтому ничего не хранится. Ответы приходят
+    // с id вариантов, так что при проверке обратное отображение не требуется.
+    static <T> List<T> shuffleOptions(List<T> options, long seed, long questionId) {
+        if (options == null || options.size() < 2) {
+            return options;
+        }
+        long state = mix(seed ^ mix(questionId));
+        List<T> shuffled = new ArrayList<>(options);
+        for (int i = shuffled.size() - 1; i > 0; i--) {
+            state = mix(state + 0x9E3779B97F4A7C15L);
+            int j = (int) ((state >>> 33) % (i + 1));
+            shuffled.set(j, shuffled.set(i, shuffled.get(j)));
+        }
+        return shuffled;
+    }
+
+    // Финализатор SplitMix64.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Индексы в ключе в порядке показа вопросов: в этом же порядке возвращаются и сохраняются ответы.
+    private int[] positions(AnswerKey key, ExamSession session) {
+        int[] positions = new int[session.questionCount()];
+        int n = 0;
+        for (int i = 0; i < session.questionCount(); i++) {
+            int idx = key.indexOf(session.questionId(i));
+            if (idx >= 0) {
+                positions[n++] = idx;
+            }
+        }
+        return Arrays.copyOf(positions, n);
+    }
+
+    private ExamSession requireSession(Long userId, String sessionId) {
+        ExamSession session = sessions.get(sessionId);
+        if (session == null || session.userId() != userId) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "SESSION_NOT_FOUND", "Сессия экзамена не найдена");
+        }
+        return session;
+    }
+
+    private TestDtos.SessionDto toDto(ExamSession session) {
+        return new TestDtos.SessionDto(session.id(), session.subjectCode(), session.questionCount(),
+                session.startedAt(), session.expiresAt());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.entbridge.service;
+
+import java.util.Arrays;
+
+// Ядро проверки на примитивных массивах: без упаковки, строк и аллокаций, выходные массивы передаёт вызывающий.
+// Класс не зависит от Spring и собирается отдельно в модуле benchmarks.
+public final class Grading {
+    public static final long NO_OPTION = -1L;
+
+    private Grading() {
+    }
+
+    // Раскладывает пары (вопрос, вариант) в маски выбранных вариантов по слотам. questionIds отсортирован,
+    // варианты вопроса i — optionIds[optionOffsets[i]..optionOffsets[i + 1]), positions — отсортированные
+    // индексы выбранных вопросов (null — весь банк). Ответы на вопросы вне попытки игнорируются; возвращает число
+    // вариантов, которые не относятся к своему вопросу попытки, — вызывающий решает, отклонить ли такие ответы.
+    public static int alignSelections(long[] questionIds, int[] optionOffsets, long[] optionIds, int[] positions,
+            long[] answerQuestionIds, long[] answerOptionIds, int answerCount, long[] selectedMasksOut) {
+        int slots = positions == null ? questionIds.length : positions.length;
+        Arrays.fill(selectedMasksOut, 0, slots, 0L);
+        int unknown = 0;
+        for (int a = 0; a < answerCount; a++) {
+            long optionId = answerOptionIds[a];
+            if (optionId == NO_OPTION) {
+                continue;
+            }
+            int idx = Arrays.binarySearch(questionIds, answerQuestionIds[a]);
+            int slot = idx < 0 || positions == null ? idx : Arrays.binarySearch(positions, idx);
+            if (slot < 0) {
+                continue;
+            }
+            int from = optionOffsets[idx];
+            int to = Math.min(optionOffsets[idx + 1], from + Long.SIZE);
+            int o = from;
+            while (o < to && optionIds[o] != optionId) {
+                o++;
+            }
+            if (o < to) {
+                selectedMasksOut[slot] |= 1L << (o - from);
+            } else {
+                unknown++;
+            }
+        }
+        return unknown;
+    }
+
+    // Набранные единицы (вопросы или баллы, см. ScoringRule.weighted); correctOut[slot] — полный зачёт по правилу.
+    public static double score(ScoringRule rule, long[] correctMasks, int[] points, int[] positions,
+            long[] selectedMasks, boolean[] correctOut) {
+        int slots = positions == null ? correctMasks.length : positions.length;
+        boolean weighted = rule.weighted();
+        double earned = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int i = positions == null ? slot : positions[slot];
+            long correctMask = correctMasks[i];
+            double credit = rule.credit(selectedMasks[slot], correctMask);
+            correctOut[slot] = credit >= 1;
+            earned += weighted ? credit * points[i] : credit;
+        }
+        return earned;
+    }
+
+    public static long possible(ScoringRule rule, int[] points, int[] positions) {
+        int slots = positions == null ? points.length : positions.length;
+        if (!rule.weighted()) {
+            return slots;
+        }
+        long total = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            total += points[positions == null ? slot : positions[slot]];
+        }
+        return total;
+    }
+
+    public static int scale(double earned, long possible, int maxScore) {
+        return possible <= 0 ? 0 : (int) Math.round(earned * maxScore / possible);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.IdempotencyKeyRepository;
+import com.example.entbridge.util.ExpiringStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+// Повтор запроса с тем же Idempotency-Key возвращает сохранённый ответ без проверки и записи.
+// Ключ занимается в той же транзакции, что и результат: при ошибке он освобождается вместе с откатом.
+@Service
+@Slf4j
+public class IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExpiringStore<String, Stored> recent;
+    private final Duration ttl;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+            @Value("${app.idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recent = new ExpiringStore<>(cacheSize);
+        this.ttl = Duration.ofHours(ttlHours);
+    }
+
+    public <T> T execute(Long userId, String key, String scope, Object request, Class<T> responseType,
+            Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "IDEMPOTENCY_KEY_INVALID",
+                    "Некорректный ключ идемпотентности");
+        }
+        String requestHash = hash(scope, request);
+        String cacheKey = userId + ":" + key;
+        Stored cached = recent.get(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        return transactionTemplate.execute(status -> {
+            if (!idempotencyKeyRepository.claim(userId, key, requestHash, Instant.now().minus(ttl))) {
+                IdempotencyKeyRepository.StoredKey stored = idempotencyKeyRepository.find(userId, key);
+                if (stored == null || stored.response() == null) {
+                    throw new ApiException(HttpStatus.CONFLICT, "IDEMPOTENCY_IN_PROGRESS",
+                            "Запрос с этим ключом ещё обрабатывается");
+                }
+                Stored replayed = new Stored(stored.requestHash(), stored.response());
+                recent.put(cacheKey, replayed, ttl.toMillis());
+                return replay(replayed, requestHash, responseType);
+            }
+            T response = action.get();
+            String json = toJson(response);
+            idempotencyKeyRepository.saveResponse(userId, key, json);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(cacheKey, new Stored(requestHash, json), ttl.toMillis());
+                }
+            });
+            return response;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.sweep-interval-ms:600000}")
+    public void purgeExpired() {
+        recent.purgeExpired();
+        int removed = idempotencyKeyRepository.deleteExpired(Instant.now().minus(ttl));
+        if (removed > 0) {
+            log.debug("Deleted {} expired idempotency keys", removed);
+        }
+    }
+
+    private <T> T replay(Stored stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ApiException(HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED",
+                    "Ключ идемпотентности уже использован для другого запроса");
+        }
+        try {
+            return objectMapper.readValue(stored.response(), responseType);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", ex);
+        }
+    }
+
+    private String hash(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot hash request", ex);
+        }
+    }
+
+    private String toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize idempotent response", ex);
+        }
+    }
+
+    private record Stored(String requestHash, String response) {
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.QuestionStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики по вопросам копятся в LongAdder (сами по себе полосатые) и периодически сбрасываются в question_stats.
+// Верхняя и нижняя группы — 27% лучших и худших попыток по предмету, по гистограмме процента баллов.
+// Счётчики вопросов, на которые за интервал сброса никто не ответил, удаляются, чтобы карта не росла со всем банком.
+@Service
+@Slf4j
+public class ItemStatsService {
+    private static final int BUCKETS = 101;
+    private static final double GROUP_SHARE = 0.27;
+
+    private final QuestionStatsRepository questionStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<Long, ItemCounters> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicLongArray> scoreHistograms = new ConcurrentHashMap<>();
+    private final long minGroupSample;
+
+    public ItemStatsService(QuestionStatsRepository questionStatsRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.item-stats.min-group-sample:30}") long minGroupSample) {
+        this.questionStatsRepository = questionStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minGroupSample = minGroupSample;
+    }
+
+    public void recordAfterCommit(long subjectId, int score, int maxScore, byte[] encodedAnswers) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(subjectId, score, maxScore, encodedAnswers);
+                }
+            });
+        } else {
+            record(subjectId, score, maxScore, encodedAnswers);
+        }
+    }
+
+    public void record(long subjectId, int score, int maxScore, byte[] encodedAnswers) {
+        AnswerEncoding.Decoded answers = AnswerEncoding.decode(encodedAnswers);
+        if (answers.size() == 0) {
+            return;
+        }
+        int group = classify(subjectId, maxScore <= 0 ? 0 : Math.min(100, Math.max(0, score * 100 / maxScore)));
+        for (int i = 0; i < answers.size(); i++) {
+            boolean correct = answers.isCorrect(i);
+            // compute держит блокировку ячейки карты: flush не удалит счётчик между его получением и add.
+            counters.compute(answers.questionId(i), (id, item) -> {
+                ItemCounters target = item == null ? new ItemCounters(subjectId) : item;
+                target.add(correct, group);
+                return target;
+            });
+        }
+    }
+
+    // 1 — верхняя группа, -1 — нижняя, 0 — середина или данных пока мало.
+    private int classify(long subjectId, int bucket) {
+        AtomicLongArray histogram = scoreHistograms.computeIfAbsent(subjectId, id -> new AtomicLongArray(BUCKETS));
+        long below = 0;
+        long above = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            long count = histogram.get(b);
+            if (b < bucket) {
+                below += count;
+            } else if (b > bucket) {
+                above += count;
+            }
+        }
+        long total = below + above + histogram.get(bucket);
+        histogram.incrementAndGet(bucket);
+        if (total < minGroupSample) {
+            return 0;
+        }
+        if (below >= total * (1 - GROUP_SHARE)) {
+            return 1;
+        }
+        if (above >= total * (1 - GROUP_SHARE)) {
+            return -1;
+        }
+        return 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.item-stats.flush-interval-ms:30000}")
+    public void flush() {
+        List<QuestionStatsRepository.StatsDelta> deltas = new ArrayList<>();
+        for (Long questionId : counters.keySet()) {
+            counters.computeIfPresent(questionId, (id, item) -> {
+                QuestionStatsRepository.StatsDelta delta = item.drain(id);
+                if (delta == null) {
+                    return null;
+                }
+                deltas.add(delta);
+                return item;
+            });
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            // Одна транзакция: пачка записывается целиком или не записывается вовсе, поэтому при ошибке
+            // возвращать в счётчики можно все дельты, не опасаясь посчитать уже записанные дважды.
+            transactionTemplate.executeWithoutResult(status -> questionStatsRepository.applyDeltas(deltas));
+            log.debug("Flushed item stats for {} questions", deltas.size());
+        } catch (RuntimeException ex) {
+            log.warn("Item stats flush failed for {} questions, will retry: {}", deltas.size(), ex.getMessage());
+            deltas.forEach(d -> counters.compute(d.questionId(), (id, item) -> {
+                ItemCounters target = item == null ? new ItemCounters(d.subjectId()) : item;
+                target.restore(d);
+                return target;
+            }));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    int trackedQuestions() {
+        return counters.size();
+    }
+
+    public List<AdminDtos.ItemStatDto> ranking(String subjectCode, String sort, String order, long minAttempts,
+            int limit) {
+        String column = switch (sort) {
+            case "pValue" -> "p_value";
+            case "discrimination" -> "discrimination";
+            default -> throw new ApiException(HttpStatus.BAD_REQUEST, "BAD_REQUEST",
+                    "Сортировка возможна по pValue или discrimination");
+        };
+        String direction = "desc".equalsIgnoreCase(order) ? " DESC" : " ASC";
+        return questionStatsRepository.findRanked(subjectCode, column + direction, Math.max(1, minAttempts),
+                        Math.max(1, Math.min(limit, 500))).stream()
+                .map(r -> new AdminDtos.ItemStatDto(r.questionId(), r.text(), r.attempts(), r.correct(), r.pValue(),
+                        r.discrimination()))
+                .toList();
+    }
+
+    private static final class ItemCounters {
+        private final long subjectId;
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder correct = new LongAdder();
+        private final LongAdder upperAttempts = new LongAdder();
+        private final LongAdder upperCorrect = new LongAdder();
+        private final LongAdder lowerAttempts = new LongAdder();
+        private final LongAdder lowerCorrect = new LongAdder();
+
+        private ItemCounters(long subjectId) {
+            this.subjectId = subjectId;
+        }
+
+        private void add(boolean isCorrect, int group) {
+            attempts.increment();
+            if (isCorrect) {
+                correct.increment();
+            }
+            if (group > 0) {
+                upperAttempts.increment();
+                if (isCorrect) {
+                    upperCorrect.increment();
+                }
+            } else if (group < 0) {
+                lowerAttempts.increment();
+                if (isCorrect) {
+                    lowerCorrect.increment();
+                }
+            }
+        }
+
+        // Снимаем в порядке, обратном add: всё, что попало в correct, уже учтено и в attempts этой же пачки.
+        private QuestionStatsRepository.StatsDelta drain(long questionId) {
+            long uc = upperCorrect.sumThenReset();
+            long lc = lowerCorrect.sumThenReset();
+            long ua = upperAttempts.sumThenReset();
+            long la = lowerAttempts.sumThenReset();
+            long c = correct.sumThenReset();
+            long a = attempts.sumThenReset();
+            return a == 0 ? null : new QuestionStatsRepository.StatsDelta(questionId, subjectId, a, c, ua, uc, la, lc);
+        }
+
+        private void restore(QuestionStatsRepository.StatsDelta d) {
+            attempts.add(d.attempts());
+            correct.add(d.correct());
+            upperAttempts.add(d.upperAttempts());
+            upperCorrect.add(d.upperCorrect());
+            lowerAttempts.add(d.lowerAttempts());
+            lowerCorrect.add(d.lowerCorrect());
+        }
+    }
+}
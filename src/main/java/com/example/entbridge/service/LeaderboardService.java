@@ -0,0 +1,81 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.ProfileDtos;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.SubjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Таблица в памяти узла; источник правды — user_subject_stats.best_score, из него доска восстанавливается при старте.
+@Service
+@Slf4j
+public class LeaderboardService {
+    private static final int DEFAULT_MAX_SCORE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SubjectRepository subjectRepository;
+    private final ConcurrentHashMap<Long, ScoreLeaderboard> boards = new ConcurrentHashMap<>();
+
+    public LeaderboardService(JdbcTemplate jdbcTemplate, SubjectRepository subjectRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.subjectRepository = subjectRepository;
+    }
+
+    // offer идемпотентен, поэтому результаты, пришедшие во время загрузки, не теряются.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        int[] rows = { 0 };
+        jdbcTemplate.query("""
+                SELECT s.subject_id, s.user_id, s.best_score, sub.max_score
+                FROM user_subject_stats s JOIN subjects sub ON sub.id = s.subject_id
+                """, rs -> {
+            Integer maxScore = rs.getObject("max_score", Integer.class);
+            board(rs.getLong("subject_id"), maxScore).offer(rs.getLong("user_id"), rs.getInt("best_score"));
+            rows[0]++;
+        });
+        log.info("Leaderboards rebuilt from {} rows for {} subjects in {} ms", rows[0], boards.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    public void recordAfterCommit(Subject subject, long userId, int score) {
+        long subjectId = subject.getId();
+        Integer maxScore = subject.getMaxScore();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    board(subjectId, maxScore).offer(userId, score);
+                }
+            });
+        } else {
+            board(subjectId, maxScore).offer(userId, score);
+        }
+    }
+
+    public ProfileDtos.RankDto rank(Long userId, String subjectCode) {
+        Subject subject = subjectRepository.findByCode(subjectCode)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        ScoreLeaderboard board = boards.get(subject.getId());
+        ScoreLeaderboard.Standing standing = board == null ? null : board.standing(userId);
+        if (standing == null) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "RANK_NOT_FOUND", "По этому предмету ещё нет результатов");
+        }
+        return new ProfileDtos.RankDto(subject.getCode(), standing.bestScore(), standing.rank(), standing.total(),
+                standing.percentile());
+    }
+
+    private ScoreLeaderboard board(long subjectId, Integer maxScore) {
+        return boards.computeIfAbsent(subjectId,
+                id -> new ScoreLeaderboard(maxScore == null ? DEFAULT_MAX_SCORE : maxScore));
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.OfflineDtos;
+import com.example.entbridge.dto.QuestionDto;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.entity.User;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.mapper.QuestionMapper;
+import com.example.entbridge.repository.OfflineAttemptRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+// Офлайн-экзамены: пакет содержит варианты (seed и порядок вопросов) и тексты вопросов без ключа ответов,
+// манифест подписан HMAC. При синхронизации попытки читаются из потока и проверяются пачками по кэшированному
+// ключу; результаты пишутся пакетным INSERT, повторная синхронизация той же попытки отмечается как дубликат.
+@Service
+@Slf4j
+public class OfflineExamService {
+    static final String ACCEPTED = "ACCEPTED";
+    static final String DUPLICATE = "DUPLICATE";
+    static final String REJECTED = "REJECTED";
+    private static final int MAX_ATTEMPT_ID_LENGTH = 64;
+
+    private final SubjectRepository subjectRepository;
+    private final QuestionRepository questionRepository;
+    private final UserRepository userRepository;
+    private final QuestionMapper questionMapper;
+    private final AnswerKeyCache answerKeyCache;
+    private final TestService testService;
+    private final OfflineAttemptRepository offlineAttemptRepository;
+    private final BatchResultRecorder batchResultRecorder;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SecretKeySpec signingKey;
+    private final int maxQuestions;
+    private final int defaultValidDays;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    public OfflineExamService(SubjectRepository subjectRepository,
+            QuestionRepository questionRepository,
+            UserRepository userRepository,
+            QuestionMapper questionMapper,
+            AnswerKeyCache answerKeyCache,
+            TestService testService,
+            OfflineAttemptRepository offlineAttemptRepository,
+            BatchResultRecorder batchResultRecorder,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.offline.signing-secret}") String signingSecret,
+            @Value("${app.jwt.secret:}") String jwtSecret,
+            @Value("${app.exam-sessions.max-questions:200}") int maxQuestions,
+            @Value("${app.offline.valid-days:14}") int defaultValidDays,
+            @Value("${app.offline.batch-size:200}") int batchSize,
+            @Value("${app.offline.max-attempts:50000}") int maxAttempts) {
+        this.subjectRepository = subjectRepository;
+        this.questionRepository = questionRepository;
+        this.userRepository = userRepository;
+        this.questionMapper = questionMapper;
+        this.answerKeyCache = answerKeyCache;
+        this.testService = testService;
+        this.offlineAttemptRepository = offlineAttemptRepository;
+        this.batchResultRecorder = batchResultRecorder;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Отдельный ключ: подпись пакета не должна подходить к JWT и наоборот.
+        if (signingSecret == null || signingSecret.isBlank() || signingSecret.equals(jwtSecret)) {
+            throw new IllegalStateException("app.offline.signing-secret must be set and differ from app.jwt.secret");
+        }
+        this.signingKey = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.maxQuestions = maxQuestions;
+        this.defaultValidDays = defaultValidDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = maxAttempts;
+    }
+
+    // Пакет собирается до начала ответа, в поток пишется уже gzip: {"manifest", "signature", "questions"}.
+    public StreamingResponseBody buildPackage(OfflineDtos.PackageRequest request) {
+        Subject subject = subjectRepository.findByCode(request.subjectId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        AnswerKey key = answerKeyCache.get(subject.getCode());
+        if (key.size() == 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "NO_QUESTIONS", "В этом предмете нет вопросов");
+        }
+        int count = Math.min(Math.min(request.questionCount(), maxQuestions), key.size());
+        List<OfflineDtos.Variant> variants = new ArrayList<>(request.variants());
+        Set<Long> used = new LinkedHashSet<>();
+        for (int v = 1; v <= request.variants(); v++) {
+            long seed = ThreadLocalRandom.current().nextLong();
+            int[] positions = ExamSessionService.sample(key.size(), count, seed);
+            List<String> questionIds = new ArrayList<>(count);
+            for (int position : positions) {
+                used.add(key.questionId(position));
+                questionIds.add(Long.toString(key.questionId(position)));
+            }
+            variants.add(new OfflineDtos.Variant(v, seed, questionIds));
+        }
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        int validDays = request.validDays() == null ? defaultValidDays : request.validDays();
+        OfflineDtos.Manifest manifest = new OfflineDtos.Manifest(UUID.randomUUID().toString(), subject.getCode(),
+                issuedAt, issuedAt.plus(Duration.ofDays(validDays)), variants);
+        String signature = sign(manifest);
+
+        List<QuestionDto> questions = readOnlyTransaction.execute(status -> questionRepository
+                .findByIdIn(new ArrayList<>(used)).stream()
+                .map(questionMapper::toDto)
+                .toList());
+        log.info("Offline package {} built for subject {}: {} variants, {} questions", manifest.packageId(),
+                subject.getCode(), variants.size(), questions.size());
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(new GZIPOutputStream(out))) {
+                generator.writeStartObject();
+                generator.writeObjectField("manifest", manifest);
+                generator.writeStringField("signature", signature);
+                generator.writeArrayFieldStart("questions");
+                for (QuestionDto question : questions) {
+                    generator.writeObject(question);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+    }
+
+    // Тело: {"manifest": ..., "signature": ..., "attempts": [...]}; манифест и подпись должны идти до попыток,
+    // попытки разбираются по одной и не накапливаются целиком. Уже записанные пачки остаются при обрыве потока,
+    // повторная отправка безопасна.
+    public OfflineDtos.SyncResultDto sync(InputStream body) {
+        OfflineDtos.Manifest manifest = null;
+        String signature = null;
+        SyncContext context = null;
+        List<OfflineDtos.AttemptOutcome> outcomes = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw malformed();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "manifest" -> manifest = parser.readValueAs(OfflineDtos.Manifest.class);
+                    case "signature" -> signature = parser.getValueAsString();
+                    case "attempts" -> {
+                        if (context != null || parser.currentToken() != JsonToken.START_ARRAY) {
+                            throw malformed();
+                        }
+                        context = verify(manifest, signature);
+                        readAttempts(parser, context, outcomes);
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            throw malformed();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (context == null) {
+            context = verify(manifest, signature);
+        }
+
+        int accepted = 0;
+        int duplicates = 0;
+        for (OfflineDtos.AttemptOutcome outcome : outcomes) {
+            if (ACCEPTED.equals(outcome.status())) {
+                accepted++;
+            } else if (DUPLICATE.equals(outcome.status())) {
+                duplicates++;
+            }
+        }
+        log.info("Offline package {} synced: {} accepted, {} duplicates, {} rejected",
+                context.manifest().packageId(), accepted, duplicates, outcomes.size() - accepted - duplicates);
+        return new OfflineDtos.SyncResultDto(context.manifest().packageId(), accepted, duplicates,
+                outcomes.size() - accepted - duplicates, outcomes);
+    }
+
+    private void readAttempts(JsonParser parser, SyncContext context, List<OfflineDtos.AttemptOutcome> outcomes)
+            throws IOException {
+        Set<String> seen = new HashSet<>();
+        List<Graded> batch = new ArrayList<>(batchSize);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (outcomes.size() + batch.size() >= maxAttempts) {
+                throw new ApiException(HttpStatus.PAYLOAD_TOO_LARGE, "SYNC_TOO_LARGE",
+                        "Слишком много попыток в одной синхронизации");
+            }
+            OfflineDtos.Attempt attempt = parser.readValueAs(OfflineDtos.Attempt.class);
+            String error = validate(attempt, context);
+            if (error != null) {
+                outcomes.add(rejected(attempt.attemptId(), error));
+                continue;
+            }
+            if (!seen.add(attempt.attemptId())) {
+                outcomes.add(new OfflineDtos.AttemptOutcome(attempt.attemptId(), DUPLICATE, null, null, null));
+                continue;
+            }
+            int[] positions = context.positions().get(attempt.variant());
+            TestService.GradedAttempt graded;
+            try {
+                graded = testService.grade(context.subject(), context.key(), positions, attempt.answers());
+            } catch (ApiException ex) {
+                outcomes.add(rejected(attempt.attemptId(), ex.getMessage()));
+                continue;
+            }
+            batch.add(new Graded(attempt, graded));
+            if (batch.size() == batchSize) {
+                write(context, batch, outcomes);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw malformed();
+        }
+        write(context, batch, outcomes);
+    }
+
+    private String validate(OfflineDtos.Attempt attempt, SyncContext context) {
+        if (attempt.attemptId() == null || attempt.attemptId().isBlank()
+                || attempt.attemptId().length() > MAX_ATTEMPT_ID_LENGTH) {
+            return "INVALID_ATTEMPT_ID";
+        }
+        if (attempt.userId() == null || attempt.answers() == null) {
+            return "INVALID_ATTEMPT";
+        }
+        if (attempt.variant() == null || !context.positions().containsKey(attempt.variant())) {
+            return "UNKNOWN_VARIANT";
+        }
+        return null;
+    }
+
+    private void write(SyncContext context, List<Graded> batch, List<OfflineDtos.AttemptOutcome> outcomes) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<OfflineDtos.AttemptOutcome> written;
+        try {
+            written = transactionTemplate.execute(status -> writeInTransaction(context, batch));
+        } catch (DuplicateKeyException ex) {
+            // Ту же попытку одновременно синхронизировал другой запрос: перечитываем уже принятые и повторяем.
+            log.warn("Concurrent sync of offline package {}, retrying batch of {}", context.manifest().packageId(),
+                    batch.size());
+            written = transactionTemplate.execute(status -> writeInTransaction(context, batch));
+        }
+        outcomes.addAll(written);
+    }
+
+    private List<OfflineDtos.AttemptOutcome> writeInTransaction(SyncContext context, List<Graded> batch) {
+        String packageId = context.manifest().packageId();
+        Set<String> existing = offlineAttemptRepository.findExisting(packageId,
+                batch.stream().map(g -> g.attempt().attemptId()).toList());
+        Set<Long> users = userRepository.findAllById(batch.stream().map(g -> g.attempt().userId())
+                .collect(Collectors.toSet())).stream()
+                .map(User::getId)
+                .collect(Collectors.toSet());
+
+        Instant now = Instant.now();
+        List<OfflineDtos.AttemptOutcome> outcomes = new ArrayList<>(batch.size());
+        List<BatchResultRecorder.Entry> entries = new ArrayList<>(batch.size());
+        List<OfflineAttemptRepository.SyncedAttempt> synced = new ArrayList<>(batch.size());
+        for (Graded g : batch) {
+            OfflineDtos.Attempt attempt = g.attempt();
+            TestService.GradedAttempt graded = g.graded();
+            if (existing.contains(attempt.attemptId())) {
+                outcomes.add(new OfflineDtos.AttemptOutcome(attempt.attemptId(), DUPLICATE, null, null, null));
+                continue;
+            }
+            if (!users.contains(attempt.userId())) {
+                outcomes.add(rejected(attempt.attemptId(), "USER_NOT_FOUND"));
+                continue;
+            }
+            entries.add(new BatchResultRecorder.Entry(attempt.userId(), graded,
+                    clamp(attempt.completedAt(), context.manifest().issuedAt(), now)));
+            synced.add(new OfflineAttemptRepository.SyncedAttempt(attempt.attemptId(), attempt.userId()));
+            outcomes.add(new OfflineDtos.AttemptOutcome(attempt.attemptId(), ACCEPTED, null, graded.score(),
+                    graded.maxScore()));
+        }
+        offlineAttemptRepository.insertBatch(packageId, synced);
+        batchResultRecorder.record(entries);
+        return outcomes;
+    }
+
+    private SyncContext verify(OfflineDtos.Manifest manifest, String signature) {
+        if (manifest == null || signature == null || manifest.packageId() == null || manifest.subjectId() == null
+                || manifest.issuedAt() == null || manifest.expiresAt() == null || manifest.variants() == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "PACKAGE_REQUIRED",
+                    "Манифест и подпись пакета должны идти перед попытками");
+        }
+        if (!MessageDigest.isEqual(sign(manifest).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII))) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "PACKAGE_SIGNATURE_INVALID", "Подпись пакета неверна");
+        }
+        if (Instant.now().isAfter(manifest.expiresAt())) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "PACKAGE_EXPIRED", "Срок действия пакета истёк");
+        }
+        Subject subject = subjectRepository.findByCode(manifest.subjectId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        AnswerKey key = answerKeyCache.get(subject.getCode());
+        Map<Integer, int[]> positions = new HashMap<>();
+        for (OfflineDtos.Variant variant : manifest.variants()) {
+            positions.put(variant.variant(), positions(key, variant));
+        }
+        return new SyncContext(manifest, subject, key, positions);
+    }
+
+    // Подпись считается по каноничной строке, а не по JSON: порядок полей и формат дат у клиента не важны.
+    // Каждое поле и каждый список предваряются длиной, поэтому разные манифесты не склеиваются в одну строку
+    // (["1", "2,3"] и ["1", "2", "3"]).
+    String sign(OfflineDtos.Manifest manifest) {
+        StringBuilder canonical = new StringBuilder();
+        field(canonical, manifest.packageId());
+        field(canonical, manifest.subjectId());
+        field(canonical, Long.toString(manifest.issuedAt().getEpochSecond()));
+        field(canonical, Long.toString(manifest.expiresAt().getEpochSecond()));
+        field(canonical, Integer.toString(manifest.variants().size()));
+        for (OfflineDtos.Variant variant : manifest.variants()) {
+            field(canonical, String.valueOf(variant.variant()));
+            field(canonical, String.valueOf(variant.seed()));
+            List<String> questionIds = variant.questionIds() == null ? List.of() : variant.questionIds();
+            field(canonical, Integer.toString(questionIds.size()));
+            for (String questionId : questionIds) {
+                field(canonical, questionId);
+            }
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot sign offline package", ex);
+        }
+    }
+
+    private static void field(StringBuilder canonical, String value) {
+        if (value == null) {
+            canonical.append("-1:");
+            return;
+        }
+        canonical.append(value.length()).append(':').append(value);
+    }
+
+    // Пакет проверяется по тем же вопросам, с которыми выпущен: если какой-то вопрос уже не разобрать или его нет
+    // в банке, синхронизация отклоняется целиком, а не оценивается по усечённому набору.
+    static int[] positions(AnswerKey key, OfflineDtos.Variant variant) {
+        if (variant.questionIds() == null || variant.questionIds().isEmpty()) {
+            throw unknownQuestions();
+        }
+        int[] positions = new int[variant.questionIds().size()];
+        int n = 0;
+        for (String questionId : variant.questionIds()) {
+            int idx;
+            try {
+                idx = key.indexOf(Long.parseLong(questionId));
+            } catch (NumberFormatException ex) {
+                throw unknownQuestions();
+            }
+            if (idx < 0) {
+                throw unknownQuestions();
+            }
+            positions[n++] = idx;
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    private static ApiException unknownQuestions() {
+        return new ApiException(HttpStatus.CONFLICT, "PACKAGE_QUESTIONS_CHANGED",
+                "Вопросы пакета изменились в банке, пакет нужно выпустить заново");
+    }
+
+    private static Instant clamp(Instant completedAt, Instant issuedAt, Instant now) {
+        if (completedAt == null || completedAt.isAfter(now)) {
+            return now;
+        }
+        return completedAt.isBefore(issuedAt) ? issuedAt : completedAt;
+    }
+
+    private static OfflineDtos.AttemptOutcome rejected(String attemptId, String error) {
+        return new OfflineDtos.AttemptOutcome(attemptId, REJECTED, error, null, null);
+    }
+
+    private static ApiException malformed() {
+        return new ApiException(HttpStatus.BAD_REQUEST, "MALFORMED_JSON", "Некорректный формат запроса");
+    }
+
+    private record SyncContext(OfflineDtos.Manifest manifest, Subject subject, AnswerKey key,
+            Map<Integer, int[]> positions) {
+    }
+
+    private record Graded(OfflineDtos.Attempt attempt, TestService.GradedAttempt graded) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.QuestionDto;
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.mapper.QuestionMapper;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.QuestionStatsRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.util.ExpiringStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Адаптивная тренировка: следующий вопрос берётся из индекса трудности (DifficultyIndex) рядом с текущей оценкой
+// способности ученика, оценка после ответа обновляется по Эло. Индекс строится по question_stats и
+// перестраивается при смене ключа ответов или по истечении refresh-seconds.
+@Service
+@Slf4j
+public class PracticeService {
+    private static final double MIN_STEP = 0.25;
+    // Сколько ближайших кандидатов загружается одним запросом: удалённые вопросы не стоят запроса каждый.
+    private static final int PICK_BATCH = 4;
+
+    private final SubjectRepository subjectRepository;
+    private final QuestionRepository questionRepository;
+    private final QuestionStatsRepository questionStatsRepository;
+    private final QuestionMapper questionMapper;
+    private final AnswerKeyCache answerKeyCache;
+    private final ConcurrentHashMap<String, DifficultyIndex> indexes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Object> rebuildLocks = new ConcurrentHashMap<>();
+    private final ExpiringStore<String, PracticeSession> sessions;
+    private final Duration sessionTtl;
+    private final long refreshMillis;
+
+    public PracticeService(SubjectRepository subjectRepository,
+            QuestionRepository questionRepository,
+            QuestionStatsRepository questionStatsRepository,
+            QuestionMapper questionMapper,
+            AnswerKeyCache answerKeyCache,
+            @Value("${app.practice.max-sessions:20000}") int maxSessions,
+            @Value("${app.practice.session-ttl-minutes:60}") long sessionTtlMinutes,
+            @Value("${app.practice.index-refresh-seconds:300}") long refreshSeconds) {
+        this.subjectRepository = subjectRepository;
+        this.questionRepository = questionRepository;
+        this.questionStatsRepository = questionStatsRepository;
+        this.questionMapper = questionMapper;
+        this.answerKeyCache = answerKeyCache;
+        this.sessions = new ExpiringStore<>(maxSessions);
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+        this.refreshMillis = Duration.ofSeconds(refreshSeconds).toMillis();
+    }
+
+    @Transactional(readOnly = true)
+    public TestDtos.PracticeDto start(Long userId, TestDtos.StartPracticeRequest request) {
+        Subject subject = subjectRepository.findByCode(request.subjectId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        DifficultyIndex index = index(subject.getCode());
+        if (index.key().size() == 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "NO_QUESTIONS", "В этом предмете нет вопросов");
+        }
+        PracticeSession session = new PracticeSession(UUID.randomUUID().toString(), userId, index);
+        if (!sessions.put(session.id, session, sessionTtl.toMillis())) {
+            log.warn("Practice session store is full ({} sessions), rejecting start for user {}", sessions.size(),
+                    userId);
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "SESSION_LIMIT",
+                    "Слишком много активных тренировок, попробуйте позже");
+        }
+        synchronized (session) {
+            return next(session);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public TestDtos.PracticeAnswerDto answer(Long userId, String sessionId, TestDtos.PracticeAnswerRequest request) {
+        PracticeSession session = sessions.get(sessionId);
+        if (session == null || session.userId != userId) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "SESSION_NOT_FOUND", "Тренировка не найдена");
+        }
+        synchronized (session) {
+            AnswerKey key = session.index.key();
+            int position = session.current;
+            if (position < 0 || !Long.toString(key.questionId(position)).equals(request.questionId().trim())) {
+                throw new ApiException(HttpStatus.CONFLICT, "PRACTICE_QUESTION_MISMATCH",
+                        "Ответ не на текущий вопрос тренировки");
+            }
+            long selected = 0;
+            for (String optionId : request.selectedOptionIds()) {
+                int optionIndex = optionIndex(key, position, optionId);
+                if (optionIndex >= 0 && optionIndex < Long.SIZE) {
+                    selected |= 1L << optionIndex;
+                }
+            }
+            long correctMask = key.correctMask(position);
+            boolean correct = correctMask != 0 && selected == correctMask;
+            session.ability = updateAbility(session.ability, session.index.difficulty(position), correct,
+                    session.answered);
+            session.answered++;
+            if (correct) {
+                session.correct++;
+            }
+            return new TestDtos.PracticeAnswerDto(correct, key.optionIdsOf(position, correctMask), next(session));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.practice.sweep-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = sessions.purgeExpired();
+        if (removed > 0) {
+            log.debug("Evicted {} expired practice sessions, {} active", removed, sessions.size());
+        }
+    }
+
+    // Эло с убывающим шагом: первые ответы быстро сдвигают оценку, дальше она стабилизируется.
+    static double updateAbility(double ability, double difficulty, boolean correct, int answered) {
+        double expected = 1.0 / (1.0 + Math.exp(difficulty - ability));
+        double step = Math.max(MIN_STEP, 1.0 / Math.sqrt(1.0 + answered));
+        double next = ability + step * ((correct ? 1.0 : 0.0) - expected);
+        return Math.max(DifficultyIndex.MIN_DIFFICULTY, Math.min(DifficultyIndex.MAX_DIFFICULTY, next));
+    }
+
+    // Перестройка — один запрос question_stats на предмет: параллельные запросы ждут её и берут готовый индекс.
+    DifficultyIndex index(String subjectCode) {
+        AnswerKey key = answerKeyCache.get(subjectCode);
+        DifficultyIndex index = indexes.get(subjectCode);
+        if (isFresh(index, key)) {
+            return index;
+        }
+        synchronized (rebuildLocks.computeIfAbsent(subjectCode, code -> new Object())) {
+            index = indexes.get(subjectCode);
+            if (isFresh(index, key)) {
+                return index;
+            }
+            long[] attempts = new long[key.size()];
+            long[] correct = new long[key.size()];
+            for (QuestionStatsRepository.ItemCount count : questionStatsRepository.findCounts(subjectCode)) {
+                int i = key.indexOf(count.questionId());
+                if (i >= 0) {
+                    attempts[i] = count.attempts();
+                    correct[i] = count.correct();
+                }
+            }
+            DifficultyIndex built = DifficultyIndex.build(key, attempts, correct, System.currentTimeMillis());
+            indexes.put(subjectCode, built);
+            log.debug("Difficulty index for subject {} built: {} questions", subjectCode, key.size());
+            return built;
+        }
+    }
+
+    private boolean isFresh(DifficultyIndex index, AnswerKey key) {
+        return index != null && index.key() == key && System.currentTimeMillis() - index.builtAt() < refreshMillis;
+    }
+
+    // Кандидаты берутся в порядке близости к способности; выдаётся первый, который ещё есть в базе, остальные
+    // невыданные возвращаются в пул. Вопрос могли удалить после построения индекса — такой помечается выданным.
+    private TestDtos.PracticeDto next(PracticeSession session) {
+        AnswerKey key = session.index.key();
+        QuestionDto question = null;
+        session.current = -1;
+        int[] candidates = new int[PICK_BATCH];
+        while (question == null) {
+            int count = 0;
+            while (count < PICK_BATCH) {
+                int position = session.index.pick(session.ability, session.used, session.random);
+                if (position < 0) {
+                    break;
+                }
+                session.used.set(position);
+                candidates[count++] = position;
+            }
+            if (count == 0) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(count);
+            for (int c = 0; c < count; c++) {
+                ids.add(key.questionId(candidates[c]));
+            }
+            Map<Long, Question> byId = questionRepository.findByIdIn(ids).stream()
+                    .collect(Collectors.toMap(Question::getId, Function.identity()));
+            for (int c = 0; c < count; c++) {
+                Question found = byId.get(key.questionId(candidates[c]));
+                if (found == null) {
+                    continue;
+                }
+                if (question == null) {
+                    question = questionMapper.toDto(found);
+                    session.current = candidates[c];
+                } else {
+                    session.used.clear(candidates[c]);
+                }
+            }
+        }
+        return new TestDtos.PracticeDto(session.id, key.subjectCode(), session.ability, session.answered,
+                session.correct, question);
+    }
+
+    private static int optionIndex(AnswerKey key, int position, String optionId) {
+        try {
+            return key.optionIndex(position, Long.parseLong(optionId.trim()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static final class PracticeSession {
+        private final String id;
+        private final long userId;
+        // Снимок индекса на начало тренировки: позиции в сессии остаются согласованными с ключом.
+        private final DifficultyIndex index;
+        private final BitSet used;
+        private final SplittableRandom random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        private double ability;
+        private int answered;
+        private int correct;
+        private int current = -1;
+
+        private PracticeSession(String id, long userId, DifficultyIndex index) {
+            this.id = id;
+            this.userId = userId;
+            this.index = index;
+            this.used = new BitSet(index.key().size());
+        }
+    }
+}
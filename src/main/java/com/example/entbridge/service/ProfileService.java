@@ -1,5 +1,7 @@
 package com.example.entbridge.service;
 
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.TestResult;
 import com.example.entbridge.entity.User;
 import com.example.entbridge.exception.ApiException;
 import com.example.entbridge.mapper.TestResultMapper;
@@ -12,21 +14,28 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 @Service
 public class ProfileService {
     private final UserRepository userRepository;
     private final TestResultRepository testResultRepository;
     private final BCryptPasswordEncoder passwordEncoder;
     private final TestResultMapper testResultMapper;
+    private final AnswerKeyCache answerKeyCache;
 
     public ProfileService(UserRepository userRepository,
             TestResultRepository testResultRepository,
             BCryptPasswordEncoder passwordEncoder,
-            TestResultMapper testResultMapper) {
+            TestResultMapper testResultMapper,
+            AnswerKeyCache answerKeyCache) {
         this.userRepository = userRepository;
         this.testResultRepository = testResultRepository;
         this.passwordEncoder = passwordEncoder;
         this.testResultMapper = testResultMapper;
+        this.answerKeyCache = answerKeyCache;
     }
 
     @SuppressWarnings("null")
@@ -37,6 +46,27 @@ public class ProfileService {
         return testResultRepository.findByUser(user, pageable).map(testResultMapper::toDto);
     }
 
+    // Выбранные варианты и признак правильности хранятся в попытке; правильные варианты берутся из текущего ключа
+    // предмета и для удалённых с тех пор вопросов не отдаются.
+    @Transactional(readOnly = true)
+    public List<TestDtos.AnswerResultDto> resultAnswers(Long userId, Long resultId) {
+        TestResult result = testResultRepository.findByIdAndUser_Id(resultId, userId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "RESULT_NOT_FOUND", "Результат не найден"));
+        AnswerEncoding.Decoded decoded = AnswerEncoding.decode(result.getAnswers());
+        AnswerKey key = answerKeyCache.get(result.getSubject().getCode());
+        List<TestDtos.AnswerResultDto> answers = new ArrayList<>(decoded.size());
+        for (int n = 0; n < decoded.size(); n++) {
+            long questionId = decoded.questionId(n);
+            int i = key.indexOf(questionId);
+            List<String> selected = Arrays.stream(decoded.selectedOptionIds(n)).mapToObj(Long::toString).toList();
+            List<String> correct = i < 0 ? List.of() : key.optionIdsOf(i, key.correctMask(i));
+            answers.add(new TestDtos.AnswerResultDto(Long.toString(questionId),
+                    selected.isEmpty() ? null : selected.get(0), decoded.isCorrect(n),
+                    correct.isEmpty() ? null : correct.get(0), selected, correct));
+        }
+        return answers;
+    }
+
     @SuppressWarnings("null")
     public void changePassword(Long userId, String oldPassword, String newPassword) {
         User user = userRepository.findById(userId)
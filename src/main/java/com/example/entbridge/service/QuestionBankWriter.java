@@ -0,0 +1,153 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.entity.Option;
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.entity.User;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.OptionRepository;
+import com.example.entbridge.repository.QuestionFingerprintRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Запись импортируемых вопросов с проверкой дубликатов. Отпечатки вопросов предмета загружаются один раз
+// в HashMap на импорт, поэтому проверка строки — O(1) при любом размере банка; записанные вопросы
+// добавляются туда же, и повтор строки внутри файла тоже считается дубликатом.
+@Component
+@Slf4j
+public class QuestionBankWriter {
+    public enum Mode {
+        // Дубликат пропускается.
+        SKIP,
+        // У найденного вопроса обновляются пояснение и правильность вариантов.
+        UPDATE,
+        // Дубликат записывается как новый вопрос.
+        KEEP
+    }
+
+    private final QuestionRepository questionRepository;
+    private final OptionRepository optionRepository;
+    private final QuestionFingerprintRepository questionFingerprintRepository;
+    private final int backfillBatch;
+
+    public QuestionBankWriter(QuestionRepository questionRepository,
+            OptionRepository optionRepository,
+            QuestionFingerprintRepository questionFingerprintRepository,
+            @Value("${app.import.fingerprint-backfill-batch:1000}") int backfillBatch) {
+        this.questionRepository = questionRepository;
+        this.optionRepository = optionRepository;
+        this.questionFingerprintRepository = questionFingerprintRepository;
+        this.backfillBatch = Math.max(1, backfillBatch);
+    }
+
+    public static Mode parseMode(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return Mode.SKIP;
+        }
+        try {
+            return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "INVALID_IMPORT_MODE",
+                    "Режим импорта: SKIP, UPDATE или KEEP");
+        }
+    }
+
+    public Map<String, Long> loadFingerprints(long subjectId) {
+        return questionFingerprintRepository.findBySubject(subjectId);
+    }
+
+    // Вызывается в транзакции; known дополняется id записанных вопросов.
+    public Result write(Subject subject, User admin, List<QuestionImportService.ImportRow> rows, Mode mode,
+            Map<String, Long> known) {
+        int created = 0;
+        int duplicates = 0;
+        Map<Long, QuestionImportService.ImportRow> updates = new LinkedHashMap<>();
+        for (QuestionImportService.ImportRow row : rows) {
+            String fingerprint = QuestionFingerprint.of(row.text(),
+                    row.options().stream().map(AdminDtos.QuestionOptionRequest::text).toList());
+            Long existing = known.get(fingerprint);
+            if (existing != null && mode != Mode.KEEP) {
+                duplicates++;
+                if (mode == Mode.UPDATE) {
+                    updates.put(existing, row);
+                }
+                continue;
+            }
+            Question question = save(subject, admin, row, fingerprint);
+            known.putIfAbsent(fingerprint, question.getId());
+            created++;
+        }
+        if (!updates.isEmpty()) {
+            for (Question question : questionRepository.findByIdIn(updates.keySet())) {
+                apply(question, updates.get(question.getId()));
+            }
+        }
+        return new Result(created, duplicates, updates.size());
+    }
+
+    // Существующие вопросы получают отпечатки при старте, пачками, чтобы не держать длинную транзакцию.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillFingerprints() {
+        long started = System.currentTimeMillis();
+        int total = 0;
+        List<QuestionFingerprintRepository.QuestionContent> batch;
+        while (!(batch = questionFingerprintRepository.findMissing(backfillBatch)).isEmpty()) {
+            Map<Long, String> fingerprints = new HashMap<>();
+            for (QuestionFingerprintRepository.QuestionContent question : batch) {
+                fingerprints.put(question.id(), QuestionFingerprint.of(question.text(), question.optionTexts()));
+            }
+            questionFingerprintRepository.updateFingerprints(fingerprints);
+            total += batch.size();
+        }
+        if (total > 0) {
+            log.info("Fingerprinted {} existing questions in {} ms", total, System.currentTimeMillis() - started);
+        }
+    }
+
+    private Question save(Subject subject, User admin, QuestionImportService.ImportRow row, String fingerprint) {
+        Question question = new Question();
+        question.setSubject(subject);
+        question.setText(row.text());
+        question.setExplanation(row.explanation());
+        question.setPoints(1);
+        question.setCreatedBy(admin);
+        question.setFingerprint(fingerprint);
+        questionRepository.save(question);
+        optionRepository.saveAll(row.options().stream().map(opt -> {
+            Option option = new Option();
+            option.setQuestion(question);
+            option.setText(opt.text());
+            option.setIsCorrect(opt.isCorrect());
+            return option;
+        }).toList());
+        return question;
+    }
+
+    // Тексты вариантов совпадают с точностью до нормализации — по ним и переносится правильность.
+    private static void apply(Question question, QuestionImportService.ImportRow row) {
+        Map<String, Boolean> correct = new HashMap<>();
+        row.options().forEach(opt -> correct.put(QuestionFingerprint.normalize(opt.text()), opt.isCorrect()));
+        question.setExplanation(row.explanation());
+        for (Option option : question.getOptions()) {
+            Boolean isCorrect = correct.get(QuestionFingerprint.normalize(option.getText()));
+            if (isCorrect != null) {
+                option.setIsCorrect(isCorrect);
+            }
+        }
+    }
+
+    public record Result(int created, int duplicates, int updated) {
+    }
+}
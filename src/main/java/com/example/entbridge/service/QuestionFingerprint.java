@@ -0,0 +1,63 @@
+package com.example.entbridge.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+// Отпечаток содержимого вопроса: SHA-256 нормализованного текста и отсортированных текстов вариантов.
+// Правильность вариантов и пояснение в отпечаток не входят — вопрос с исправленным ключом остаётся тем же
+// вопросом, его обновляет режим импорта UPDATE.
+public final class QuestionFingerprint {
+    private QuestionFingerprint() {
+    }
+
+    public static String of(String text, Collection<String> optionTexts) {
+        List<String> options = new ArrayList<>(optionTexts.size());
+        for (String option : optionTexts) {
+            options.add(normalize(option));
+        }
+        options.sort(null);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(normalize(text).getBytes(StandardCharsets.UTF_8));
+            for (String option : options) {
+                digest.update((byte) 0);
+                digest.update(option.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot hash question", ex);
+        }
+    }
+
+    // NFKC, нижний регистр, ё → е и схлопнутые пробелы: копии из Word и Excel отличаются именно этим.
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е');
+        StringBuilder result = new StringBuilder(normalized.length());
+        boolean space = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = result.length() > 0;
+            } else {
+                if (space) {
+                    result.append(' ');
+                    space = false;
+                }
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
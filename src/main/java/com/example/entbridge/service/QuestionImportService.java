@@ -0,0 +1,479 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.entity.AuditLog;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.entity.User;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.AuditLogRepository;
+import com.example.entbridge.repository.ImportJobRepository;
+import com.example.entbridge.repository.ImportJobRepository.ImportJob;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Фоновый импорт вопросов из Excel. Файл сохраняется в app.import.dir, задание — в import_jobs. Каждые chunk-size
+// строк вопросы и прогресс задания коммитятся одной транзакцией: ошибка в конце файла не откатывает уже
+// записанное, а отменённое или упавшее задание продолжается со следующей строки после последней пачки.
+// Задание принадлежит узлу, который его поставил в очередь; узел подаёт heartbeat, и прерванными считаются только
+// задания без сигнала дольше stale-after-ms.
+@Service
+@Slf4j
+public class QuestionImportService {
+    private static final List<String> RESUMABLE = List.of(ImportJobRepository.FAILED, ImportJobRepository.CANCELLED);
+    private static final int MAX_LIST = 50;
+
+    private final ImportJobRepository importJobRepository;
+    private final SubjectRepository subjectRepository;
+    private final UserRepository userRepository;
+    private final QuestionBankWriter questionBankWriter;
+    private final AuditLogRepository auditLogRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final CatalogVersions catalogVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor importExecutor;
+    // Флаги отмены заданий, выполняющихся на этом узле.
+    private final ConcurrentHashMap<String, AtomicBoolean> running = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<SseEmitter>> listeners = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Path directory;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final Duration retention;
+    private final long sseTimeoutMs;
+    private final Duration staleAfter;
+
+    public QuestionImportService(ImportJobRepository importJobRepository,
+            SubjectRepository subjectRepository,
+            UserRepository userRepository,
+            QuestionBankWriter questionBankWriter,
+            AuditLogRepository auditLogRepository,
+            AnswerKeyCache answerKeyCache,
+            CatalogVersions catalogVersions,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("importExecutor") ThreadPoolTaskExecutor importExecutor,
+            @Value("${app.import.dir:${java.io.tmpdir}/entbridge-imports}") String directory,
+            @Value("${app.import.chunk-size:500}") int chunkSize,
+            @Value("${app.import.max-errors:100}") int maxErrors,
+            @Value("${app.import.retention-hours:72}") long retentionHours,
+            @Value("${app.import.sse-timeout-ms:1800000}") long sseTimeoutMs,
+            @Value("${app.import.stale-after-ms:60000}") long staleAfterMs) {
+        this.importJobRepository = importJobRepository;
+        this.subjectRepository = subjectRepository;
+        this.userRepository = userRepository;
+        this.questionBankWriter = questionBankWriter;
+        this.auditLogRepository = auditLogRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.catalogVersions = catalogVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importExecutor = importExecutor;
+        this.directory = Path.of(directory);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = maxErrors;
+        this.retention = Duration.ofHours(retentionHours);
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+    }
+
+    public AdminDtos.ImportJobDto start(Long adminId, String subjectCode, String mode, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "FILE_EMPTY", "Файл пустой");
+        }
+        QuestionBankWriter.Mode importMode = QuestionBankWriter.parseMode(mode);
+        Subject subject = subjectRepository.findByCode(subjectCode)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        String id = UUID.randomUUID().toString();
+        Path target = directory.resolve(id + ".upload");
+        try {
+            Files.createDirectories(directory);
+            file.transferTo(target);
+        } catch (IOException ex) {
+            deleteQuietly(target);
+            throw new ApiException(HttpStatus.BAD_REQUEST, "FILE_READ_ERROR", "Не удалось прочитать файл");
+        }
+        importJobRepository.insert(id, adminId, subject.getId(), file.getOriginalFilename(), target.toString(),
+                importMode.name(), nodeId);
+        try {
+            importExecutor.execute(() -> run(id));
+        } catch (TaskRejectedException ex) {
+            importJobRepository.delete(id);
+            deleteQuietly(target);
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "IMPORT_JOB_LIMIT",
+                    "Слишком много импортов в очереди, попробуйте позже");
+        }
+        log.info("Import job {} queued for subject {} in {} mode ({}, {} bytes)", id, subjectCode, importMode,
+                file.getOriginalFilename(), file.getSize());
+        return status(id);
+    }
+
+    public AdminDtos.ImportJobDto status(String jobId) {
+        return toDto(find(jobId));
+    }
+
+    public List<AdminDtos.ImportJobDto> list(int limit) {
+        return importJobRepository.findRecent(Math.max(1, Math.min(limit, MAX_LIST))).stream()
+                .map(QuestionImportService::toDto)
+                .toList();
+    }
+
+    // Выполняющееся задание останавливается на границе строки; незакоммиченная часть пачки отбрасывается.
+    // Если задание выполняет другой узел, отмена передаётся через import_jobs и срабатывает на его heartbeat.
+    public AdminDtos.ImportJobDto cancel(String jobId) {
+        ImportJob job = find(jobId);
+        AtomicBoolean flag = running.get(jobId);
+        if (flag != null) {
+            flag.set(true);
+            return toDto(job);
+        }
+        if (importJobRepository.transition(jobId, List.of(ImportJobRepository.QUEUED), ImportJobRepository.CANCELLED,
+                "Импорт отменён")) {
+            log.info("Import job {} cancelled before start", jobId);
+            publish(jobId, true);
+            return status(jobId);
+        }
+        if (importJobRepository.requestCancel(jobId)) {
+            log.info("Import job {} cancellation requested from another node", jobId);
+            return status(jobId);
+        }
+        throw new ApiException(HttpStatus.CONFLICT, "IMPORT_FINISHED", "Импорт уже завершён");
+    }
+
+    public AdminDtos.ImportJobDto resume(String jobId) {
+        ImportJob job = find(jobId);
+        if (job.filePath() == null || !Files.exists(Path.of(job.filePath()))) {
+            throw new ApiException(HttpStatus.GONE, "IMPORT_FILE_EXPIRED", "Файл импорта больше не хранится");
+        }
+        if (!importJobRepository.requeue(jobId, RESUMABLE, nodeId)) {
+            throw new ApiException(HttpStatus.CONFLICT, "IMPORT_NOT_RESUMABLE",
+                    "Продолжить можно только отменённый или прерванный импорт");
+        }
+        try {
+            importExecutor.execute(() -> run(jobId));
+        } catch (TaskRejectedException ex) {
+            importJobRepository.transition(jobId, List.of(ImportJobRepository.QUEUED), ImportJobRepository.FAILED,
+                    "Очередь импорта переполнена");
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "IMPORT_JOB_LIMIT",
+                    "Слишком много импортов в очереди, попробуйте позже");
+        }
+        log.info("Import job {} resumed from row {}", jobId, job.nextRow());
+        return status(jobId);
+    }
+
+    // Первое событие — текущее состояние; дальше событие после каждой закоммиченной пачки и в конце задания.
+    public SseEmitter stream(String jobId) {
+        ImportJob job = find(jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        if (!job.isFinished()) {
+            List<SseEmitter> jobListeners = listeners.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+            jobListeners.add(emitter);
+            emitter.onCompletion(() -> jobListeners.remove(emitter));
+            emitter.onTimeout(() -> jobListeners.remove(emitter));
+            emitter.onError(ex -> jobListeners.remove(emitter));
+            // Задание могло завершиться до регистрации слушателя.
+            job = find(jobId);
+        }
+        send(emitter, toDto(job));
+        if (job.isFinished()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    // Задания, владелец которых перестал подавать сигнал, помечаются прерванными; их можно продолжить через resume.
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterrupted() {
+        int interrupted = importJobRepository.failStale(Instant.now().minus(staleAfter),
+                "Импорт прерван остановкой сервера");
+        if (interrupted > 0) {
+            log.warn("{} import jobs lost their node and were marked FAILED", interrupted);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.import.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        importJobRepository.heartbeat(nodeId);
+        for (String jobId : importJobRepository.findCancelRequested(nodeId)) {
+            AtomicBoolean flag = running.get(jobId);
+            if (flag != null) {
+                flag.set(true);
+            }
+        }
+        failInterrupted();
+    }
+
+    @Scheduled(fixedDelayString = "${app.import.purge-interval-ms:3600000}")
+    public void purgeFiles() {
+        for (ImportJob job : importJobRepository.findFilesFinishedBefore(Instant.now().minus(retention))) {
+            deleteQuietly(Path.of(job.filePath()));
+            importJobRepository.clearFile(job.id());
+        }
+    }
+
+    void run(String jobId) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        running.put(jobId, cancelled);
+        try {
+            if (!importJobRepository.start(jobId, nodeId)) {
+                return;
+            }
+            ImportJob job = find(jobId);
+            Progress progress = new Progress(job);
+            // Загружается заново при продолжении и уже содержит вопросы закоммиченных пачек.
+            Map<String, Long> known = questionBankWriter.loadFingerprints(job.subjectId());
+            publish(jobId, false);
+            try {
+                QuestionSheetReader.read(Path.of(job.filePath()), (rowIndex, cells) -> {
+                    if (rowIndex == 0 || rowIndex < job.nextRow()) {
+                        return;
+                    }
+                    if (cancelled.get()) {
+                        throw new ImportCancelledException();
+                    }
+                    progress.add(rowIndex, parse(rowIndex, cells));
+                    if (progress.uncommitted >= chunkSize) {
+                        commit(job, progress, known);
+                    }
+                });
+                commit(job, progress, known);
+            } catch (Exception ex) {
+                if (progress.ownershipLost) {
+                    log.warn("Import job {} was taken over after {} committed rows, stopping", jobId,
+                            progress.committedRows);
+                } else if (cancelled.get()) {
+                    importJobRepository.finish(jobId, nodeId, ImportJobRepository.CANCELLED, "Импорт отменён");
+                    log.info("Import job {} cancelled after {} committed rows", jobId, progress.committedRows);
+                } else {
+                    importJobRepository.finish(jobId, nodeId, ImportJobRepository.FAILED,
+                            "Импорт прерван: " + ex.getMessage());
+                    log.error("Import job {} failed after {} committed rows: {}", jobId, progress.committedRows,
+                            ex.getMessage(), ex);
+                }
+                return;
+            }
+            if (!importJobRepository.finish(jobId, nodeId, ImportJobRepository.COMPLETED, null)) {
+                log.warn("Import job {} was taken over before completion", jobId);
+                return;
+            }
+            audit(job, progress.created);
+            deleteQuietly(Path.of(job.filePath()));
+            importJobRepository.clearFile(jobId);
+            log.info("Import job {} completed: {} rows, {} created, {} skipped, {} duplicates", jobId, progress.rows,
+                    progress.created, progress.skipped, progress.duplicates);
+        } catch (RuntimeException ex) {
+            log.error("Import job {} could not update its state: {}", jobId, ex.getMessage(), ex);
+        } finally {
+            running.remove(jobId);
+            publish(jobId, true);
+        }
+    }
+
+    private void commit(ImportJob job, Progress progress, Map<String, Long> known) {
+        if (progress.uncommitted == 0) {
+            return;
+        }
+        List<ImportRow> rows = progress.chunk;
+        QuestionBankWriter.Mode mode = QuestionBankWriter.Mode.valueOf(job.mode());
+        QuestionBankWriter.Result result = transactionTemplate.execute(status -> {
+            Subject subject = subjectRepository.getReferenceById(job.subjectId());
+            User admin = job.adminId() == null ? null : userRepository.getReferenceById(job.adminId());
+            QuestionBankWriter.Result written = questionBankWriter.write(subject, admin, rows, mode, known);
+            // Задание признано прерванным и, возможно, уже продолжено на другом узле — откатываем пачку.
+            if (!importJobRepository.updateProgress(job.id(), nodeId, progress.nextRow, progress.rows,
+                    progress.created + written.created(), progress.skipped,
+                    progress.duplicates + written.duplicates(), String.join("\n", progress.errors))) {
+                progress.ownershipLost = true;
+                throw new ImportOwnershipLostException();
+            }
+            if (written.created() > 0 || written.updated() > 0) {
+                answerKeyCache.invalidateAfterCommit(job.subjectCode());
+                catalogVersions.bumpAfterCommit(CatalogVersions.questions(job.subjectCode()));
+            }
+            return written;
+        });
+        progress.committed(result);
+        publish(job.id(), false);
+    }
+
+    private void audit(ImportJob job, int created) {
+        if (job.adminId() == null) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> userRepository.findById(job.adminId()).ifPresent(admin -> {
+            AuditLog entry = new AuditLog();
+            entry.setAdmin(admin);
+            entry.setAction("IMPORT_QUESTIONS");
+            entry.setEntityType("SUBJECT");
+            entry.setEntityId(job.subjectId());
+            entry.setDetails("Imported questions: " + created + " (job " + job.id() + ")");
+            auditLogRepository.save(entry);
+        }));
+    }
+
+    // Строка листа: 1 — текст вопроса, 2–5 — варианты (правильный помечен "*"), 6 — пояснение.
+    // null — пустая строка без вопроса, error != null — строка пропускается.
+    static ImportRow parse(int rowIndex, String[] cells) {
+        String questionText = cells[1];
+        if (questionText == null || questionText.isBlank()) {
+            return null;
+        }
+        List<AdminDtos.QuestionOptionRequest> options = new ArrayList<>();
+        for (int col = 2; col <= 5; col++) {
+            String answer = cells[col];
+            if (answer == null || answer.isBlank()) {
+                continue;
+            }
+            boolean isCorrect = answer.trim().startsWith("*");
+            String text = isCorrect ? answer.trim().substring(1).trim() : answer.trim();
+            options.add(new AdminDtos.QuestionOptionRequest(text, isCorrect));
+        }
+        if (options.size() < 2 || options.stream().noneMatch(AdminDtos.QuestionOptionRequest::isCorrect)) {
+            return new ImportRow(null, null, null,
+                    "Строка " + (rowIndex + 1) + ": нужен минимум 2 варианта и 1 правильный ответ");
+        }
+        String explanation = cells[6];
+        return new ImportRow(questionText.trim(), explanation == null || explanation.isBlank() ? null
+                : explanation.trim(), options, null);
+    }
+
+    private ImportJob find(String jobId) {
+        return importJobRepository.find(jobId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "JOB_NOT_FOUND", "Задание не найдено"));
+    }
+
+    private void publish(String jobId, boolean last) {
+        List<SseEmitter> jobListeners = last ? listeners.remove(jobId) : listeners.get(jobId);
+        if (jobListeners == null || jobListeners.isEmpty()) {
+            return;
+        }
+        AdminDtos.ImportJobDto dto;
+        try {
+            dto = status(jobId);
+        } catch (RuntimeException ex) {
+            log.warn("Cannot publish progress of import job {}: {}", jobId, ex.getMessage());
+            return;
+        }
+        for (SseEmitter emitter : jobListeners) {
+            send(emitter, dto);
+            if (last) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private static void send(SseEmitter emitter, AdminDtos.ImportJobDto dto) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(dto));
+        } catch (IOException | IllegalStateException ex) {
+            // Клиент отключился; слушатель снимется в onError/onCompletion.
+            emitter.completeWithError(ex);
+        }
+    }
+
+    private static AdminDtos.ImportJobDto toDto(ImportJob job) {
+        List<String> errors = job.errors() == null || job.errors().isEmpty() ? List.of()
+                : List.of(job.errors().split("\n"));
+        return new AdminDtos.ImportJobDto(job.id(), job.status(), job.subjectCode(), job.fileName(), job.mode(),
+                job.rowsProcessed(), job.created(), job.skipped(), job.duplicates(), errors, job.message(),
+                job.createdAt(), job.updatedAt(), job.finishedAt());
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Cannot delete import file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    record ImportRow(String text, String explanation, List<AdminDtos.QuestionOptionRequest> options, String error) {
+    }
+
+    // Счётчики задания; в import_jobs попадают только вместе с пачкой вопросов.
+    private final class Progress {
+        private final List<String> errors;
+        private List<ImportRow> chunk = new ArrayList<>();
+        private int nextRow;
+        private int rows;
+        private int created;
+        private int skipped;
+        private int duplicates;
+        private int uncommitted;
+        private int committedRows;
+        // Читатель листа может обернуть исключение из колбэка, поэтому причина остановки хранится здесь.
+        private boolean ownershipLost;
+
+        private Progress(ImportJob job) {
+            this.nextRow = job.nextRow();
+            this.rows = job.rowsProcessed();
+            this.committedRows = job.rowsProcessed();
+            this.created = job.created();
+            this.skipped = job.skipped();
+            this.duplicates = job.duplicates();
+            this.errors = job.errors() == null || job.errors().isEmpty() ? new ArrayList<>()
+                    : new ArrayList<>(List.of(job.errors().split("\n")));
+        }
+
+        private void add(int rowIndex, ImportRow row) {
+            nextRow = rowIndex + 1;
+            rows++;
+            uncommitted++;
+            if (row == null) {
+                return;
+            }
+            if (row.error() != null) {
+                skipped++;
+                if (errors.size() < maxErrors) {
+                    errors.add(row.error());
+                }
+                return;
+            }
+            chunk.add(row);
+        }
+
+        private void committed(QuestionBankWriter.Result result) {
+            created += result.created();
+            duplicates += result.duplicates();
+            committedRows = rows;
+            uncommitted = 0;
+            chunk = new ArrayList<>();
+        }
+    }
+
+    private static final class ImportCancelledException extends RuntimeException {
+        private ImportCancelledException() {
+            super("Import cancelled", null, false, false);
+        }
+    }
+
+    private static final class ImportOwnershipLostException extends RuntimeException {
+        private ImportOwnershipLostException() {
+            super("Import job is no longer owned by this node", null, false, false);
+        }
+    }
+}
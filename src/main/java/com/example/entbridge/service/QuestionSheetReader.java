@@ -0,0 +1,170 @@
+package com.example.entbridge.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Построчное чтение первого листа книги с вопросами. .xlsx читается SAX-разбором XML листа: в памяти только
+// таблица общих строк и текущая строка, а не DOM всей книги. Старый .xls (до 65536 строк) читается через
+// WorkbookFactory.
+// Значения ячеек в обоих форматах приводятся к строке одинаково и без учёта формата ячейки и локали:
+// число — "42" или Double.toString ("0.5", а не "50%" или "0,5"), логическое — "true"/"false".
+final class QuestionSheetReader {
+    // Столбцы: 0 — номер, 1 — текст вопроса, 2–5 — варианты, 6 — пояснение.
+    static final int COLUMNS = 7;
+
+    private QuestionSheetReader() {
+    }
+
+    @FunctionalInterface
+    interface RowHandler {
+        // rowIndex — с нуля, как в Excel минус один; cells[col] == null — пустая ячейка.
+        void row(int rowIndex, String[] cells);
+    }
+
+    static void read(Path file, RowHandler handler) throws Exception {
+        FileMagic magic;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            magic = FileMagic.valueOf(in);
+        }
+        if (magic == FileMagic.OOXML) {
+            readXlsx(file, handler);
+        } else {
+            readWorkbook(file, handler);
+        }
+    }
+
+    private static void readXlsx(Path file, RowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                // formulasNotResults = true — как и раньше, для формул берётся текст формулы.
+                RowCollector collector = new RowCollector(handler);
+                parser.setContentHandler(new SheetHandler(styles, strings, collector));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    private static void readWorkbook(Path file, RowHandler handler) throws Exception {
+        try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet) {
+                String[] cells = new String[COLUMNS];
+                for (int col = 0; col < COLUMNS; col++) {
+                    cells[col] = cellValue(row.getCell(col));
+                }
+                handler.row(row.getRowNum(), cells);
+            }
+        }
+    }
+
+    private static String cellValue(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+        return switch (cell.getCellType()) {
+            case STRING -> cell.getStringCellValue();
+            case NUMERIC -> number(cell.getNumericCellValue());
+            case BOOLEAN -> Boolean.toString(cell.getBooleanCellValue());
+            case FORMULA -> cell.getCellFormula();
+            default -> null;
+        };
+    }
+
+    private static String number(double value) {
+        long longValue = (long) value;
+        return value == longValue ? Long.toString(longValue) : Double.toString(value);
+    }
+
+    // XSSFSheetXMLHandler отдаёт логические ячейки как "TRUE"/"FALSE", не сообщая тип, поэтому тип ячейки
+    // запоминается здесь по атрибуту t="b" элемента <c>.
+    private static final class SheetHandler extends XSSFSheetXMLHandler {
+        private final RowCollector collector;
+
+        private SheetHandler(StylesTable styles, ReadOnlySharedStringsTable strings, RowCollector collector) {
+            super(styles, null, strings, collector, new RawNumberFormatter(), true);
+            this.collector = collector;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            if ("c".equals(localName)) {
+                collector.booleanCell = "b".equals(attributes.getValue("t"));
+            }
+            super.startElement(uri, localName, qName, attributes);
+        }
+    }
+
+    // Формат ячейки (проценты, разделители, даты) не применяется: число пишется так же, как при чтении .xls.
+    private static final class RawNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                boolean use1904Windowing) {
+            return number(value);
+        }
+    }
+
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final String[] cells = new String[COLUMNS];
+        private int nextColumn;
+        private boolean booleanCell;
+
+        private RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, null);
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum, cells.clone());
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Ссылка на ячейку необязательна в разметке — тогда столбец идёт по порядку.
+            int col = cellReference == null ? nextColumn : new CellReference(cellReference).getCol();
+            nextColumn = col + 1;
+            if (col < COLUMNS) {
+                cells[col] = booleanCell ? Boolean.toString("TRUE".equals(formattedValue)) : formattedValue;
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.exception.TooManyRequestsException;
+import com.example.entbridge.repository.ResultExportRepository;
+import com.example.entbridge.repository.ResultExportRepository.ResultRow;
+import com.example.entbridge.repository.SubjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Выгрузка результатов тестов для отчётов. Строки читаются курсором и сразу пишутся в ответ: CSV — напрямую,
+// XLSX — через SXSSFWorkbook, который держит в памяти только окно из window-size строк, а остальное сбрасывает
+// во временный файл. Память не зависит от числа результатов.
+// Выгрузка держит соединение пула всё время потока, поэтому одновременных выгрузок не больше max-concurrent:
+// разрешение берётся до начала ответа (лишняя выгрузка получает 429) и возвращается, когда поток закончен.
+@Service
+@Slf4j
+public class ResultExportService {
+    static final String[] HEADER = { "ID", "Дата", "ID ученика", "Логин", "ФИО", "Email", "Предмет",
+            "Название предмета", "Баллы", "Макс. баллы", "Вопросов", "Верных ответов" };
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final SubjectRepository subjectRepository;
+    private final ResultExportRepository resultExportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final int windowSize;
+    private final Semaphore permits;
+    private final long retryAfterSeconds;
+
+    public ResultExportService(SubjectRepository subjectRepository,
+            ResultExportRepository resultExportRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.results.export.fetch-size:1000}") int fetchSize,
+            @Value("${app.results.export.window-size:100}") int windowSize,
+            @Value("${app.results.export.max-concurrent:2}") int maxConcurrent,
+            @Value("${app.results.export.retry-after-seconds:30}") long retryAfterSeconds) {
+        this.subjectRepository = subjectRepository;
+        this.resultExportRepository = resultExportRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = Math.max(1, fetchSize);
+        this.windowSize = Math.max(1, windowSize);
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "INVALID_EXPORT_FORMAT", "Формат выгрузки: csv или xlsx");
+        }
+    }
+
+    // Фильтры проверяются до начала ответа: после первого байта сообщить об ошибке статусом уже нельзя.
+    // to — включительно, по дате completed_at.
+    public StreamingResponseBody export(Format format, String subjectCode, Long userId, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "INVALID_DATE_RANGE", "Дата начала позже даты окончания");
+        }
+        Long subjectId = null;
+        if (subjectCode != null && !subjectCode.isBlank()) {
+            Subject subject = subjectRepository.findByCode(subjectCode).orElseThrow(
+                    () -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+            subjectId = subject.getId();
+        }
+        Long subjectFilter = subjectId;
+        if (!permits.tryAcquire()) {
+            throw new TooManyRequestsException(retryAfterSeconds,
+                    "Слишком много одновременных выгрузок, повторите позже");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return out -> {
+            long started = System.currentTimeMillis();
+            long[] rows = { 0 };
+            ResultSink sink;
+            try {
+                sink = format == Format.XLSX ? new XlsxSink(out, windowSize) : new CsvSink(out);
+            } catch (IOException | RuntimeException ex) {
+                release(released);
+                throw ex;
+            }
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> resultExportRepository.forEach(subjectFilter, userId,
+                        from == null ? null : from.atStartOfDay(),
+                        to == null ? null : to.plusDays(1).atStartOfDay(),
+                        fetchSize, row -> {
+                            try {
+                                sink.row(row);
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                            rows[0]++;
+                        }));
+                sink.finish();
+            } catch (UncheckedIOException ex) {
+                // Клиент закрыл соединение посреди выгрузки.
+                log.warn("Results export aborted after {} rows: {}", rows[0], ex.getMessage());
+                throw ex.getCause();
+            } finally {
+                try {
+                    sink.close();
+                } finally {
+                    release(released);
+                }
+            }
+            log.info("Exported {} results as {} in {} ms", rows[0], format, System.currentTimeMillis() - started);
+        };
+    }
+
+    int availableExports() {
+        return permits.availablePermits();
+    }
+
+    private void release(AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            permits.release();
+        }
+    }
+
+    interface ResultSink {
+        void row(ResultRow row) throws IOException;
+
+        void finish() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    static final class CsvSink implements ResultSink {
+        private final Writer writer;
+
+        CsvSink(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            // BOM — чтобы Excel открыл UTF-8 с кириллицей без мастера импорта.
+            writer.write('\uFEFF');
+            for (int i = 0; i < HEADER.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(HEADER[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultRow row) throws IOException {
+            writer.write(Long.toString(row.id()));
+            writer.write(',');
+            writer.write(row.completedAt() == null ? "" : CSV_DATE.format(row.completedAt()));
+            writer.write(',');
+            writer.write(Long.toString(row.userId()));
+            text(row.username());
+            text(row.fullName());
+            text(row.email());
+            text(row.subjectCode());
+            text(row.subjectTitle());
+            number(row.score());
+            number(row.maxScore());
+            number(row.totalQuestions());
+            number(row.correctAnswers());
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            // Поток ответа закрывает контейнер.
+        }
+
+        private void number(Integer value) throws IOException {
+            writer.write(',');
+            if (value != null) {
+                writer.write(Integer.toString(value));
+            }
+        }
+
+        // RFC 4180; значения, которые Excel принял бы за формулу, экранируются апострофом.
+        private void text(String value) throws IOException {
+            writer.write(',');
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            String safe = "=+-@\t\r".indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+            if (safe.indexOf(',') >= 0 || safe.indexOf('"') >= 0 || safe.indexOf('\n') >= 0
+                    || safe.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(safe.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(safe);
+            }
+        }
+    }
+
+    static final class XlsxSink implements ResultSink {
+        private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private final CellStyle dateStyle;
+        private SXSSFSheet sheet;
+        private int rowIndex;
+
+        XlsxSink(OutputStream out, int windowSize) {
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(windowSize);
+            this.workbook.setCompressTempFiles(true);
+            this.dateStyle = workbook.createCellStyle();
+            this.dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat()
+                    .getFormat("yyyy-mm-dd hh:mm:ss"));
+            newSheet();
+        }
+
+        @Override
+        public void row(ResultRow result) {
+            // Лист Excel ограничен 1 048 576 строками — дальше продолжается на следующем листе.
+            if (rowIndex == MAX_ROWS) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            row.createCell(0).setCellValue(result.id());
+            if (result.completedAt() != null) {
+                Cell date = row.createCell(1);
+                date.setCellValue(result.completedAt());
+                date.setCellStyle(dateStyle);
+            }
+            row.createCell(2).setCellValue(result.userId());
+            text(row, 3, result.username());
+            text(row, 4, result.fullName());
+            text(row, 5, result.email());
+            text(row, 6, result.subjectCode());
+            text(row, 7, result.subjectTitle());
+            number(row, 8, result.score());
+            number(row, 9, result.maxScore());
+            number(row, 10, result.totalQuestions());
+            number(row, 11, result.correctAnswers());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            workbook.write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Удаляет временные файлы окна строк.
+            workbook.dispose();
+            workbook.close();
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet("Результаты " + (workbook.getNumberOfSheets() + 1));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                header.createCell(i).setCellValue(HEADER[i]);
+            }
+            rowIndex = 1;
+        }
+
+        private static void text(Row row, int col, String value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+
+        private static void number(Row row, int col, Integer value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+    }
+}
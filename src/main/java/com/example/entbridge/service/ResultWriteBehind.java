@@ -0,0 +1,274 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.TestResultBatchRepository;
+import com.example.entbridge.repository.TestResultBatchRepository.PendingResult;
+import com.example.entbridge.repository.UserStatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Отложенная запись результатов. Место в очереди и id результата резервируются внутри транзакции отправки,
+// а сам результат попадает в очередь только после её коммита: откаченная отправка ничего не пишет.
+// Ёмкость очереди ограничена семафором, чтобы резерв можно было взять до коммита и вернуть при откате.
+@Component
+@Slf4j
+public class ResultWriteBehind {
+    private final TestResultBatchRepository testResultBatchRepository;
+    private final UserStatsRepository userStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int maxBatch;
+    private final boolean syncOnShutdown;
+    private final BlockingQueue<PendingResult> queue = new LinkedBlockingQueue<>();
+    private final Semaphore capacity;
+    // enqueue держит read-lock, stop перед остановкой потока берёт write-lock: после этого в очередь никто не пишет.
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter fallbackCounter;
+    private final Counter droppedCounter;
+    private ScheduledExecutorService flusher;
+    private volatile boolean accepting;
+    // Пачка, которую не удалось записать из-за недоступности БД; повторяется первой.
+    private List<PendingResult> retryBatch = List.of();
+
+    public ResultWriteBehind(TestResultBatchRepository testResultBatchRepository,
+            UserStatsRepository userStatsRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.results.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.results.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.results.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${app.results.write-behind.max-batch:500}") int maxBatch,
+            @Value("${app.results.write-behind.sync-on-shutdown:true}") boolean syncOnShutdown) {
+        this.testResultBatchRepository = testResultBatchRepository;
+        this.userStatsRepository = userStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Запись может запускаться из afterCommit чужой транзакции — ей нужна своя.
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBatch = maxBatch;
+        this.syncOnShutdown = syncOnShutdown;
+        this.capacity = new Semaphore(queueCapacity);
+        Gauge.builder("entbridge.results.write_behind.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("entbridge.results.write_behind.flush").register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("entbridge.results.write_behind.flushed");
+        this.fallbackCounter = meterRegistry.counter("entbridge.results.write_behind.fallback");
+        this.droppedCounter = meterRegistry.counter("entbridge.results.write_behind.dropped");
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "result-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        accepting = true;
+        log.info("Result write-behind enabled: interval {} ms, max batch {}", flushIntervalMs, maxBatch);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Резервирует место в очереди и номер будущей строки test_results. null — очередь заполнена или выключена,
+    // вызывающий пишет результат синхронно.
+    public Long reserveId() {
+        if (!accepting) {
+            return null;
+        }
+        if (!capacity.tryAcquire()) {
+            fallbackCounter.increment();
+            return null;
+        }
+        try {
+            return testResultBatchRepository.nextId();
+        } catch (RuntimeException ex) {
+            capacity.release();
+            throw ex;
+        }
+    }
+
+    // Только после reserveId. В транзакции результат встаёт в очередь после коммита, при откате резерв
+    // возвращается; без транзакции — сразу.
+    public void enqueueAfterCommit(PendingResult result) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(result);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    enqueue(result);
+                } else {
+                    capacity.release();
+                }
+            }
+        });
+    }
+
+    private void enqueue(PendingResult result) {
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting) {
+                // Приложение уже останавливается и очередь сброшена — пишем сами.
+                capacity.release();
+                try {
+                    writeInTransaction(List.of(result));
+                    flushedCounter.increment();
+                } catch (RuntimeException ex) {
+                    droppedCounter.increment();
+                    log.error("Dropping test result of user {} for subject {} on shutdown: {}", result.userId(),
+                            result.subjectId(), ex.getMessage());
+                }
+                return;
+            }
+            queue.add(result);
+            if (queue.size() >= maxBatch && flushRequested.compareAndSet(false, true)) {
+                try {
+                    flusher.execute(this::flushSafely);
+                } catch (RejectedExecutionException ex) {
+                    // Результат уже в очереди — его заберёт плановый сброс.
+                    flushRequested.set(false);
+                }
+            }
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.error("Result write-behind flush failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void flush() {
+        if (!retryBatch.isEmpty()) {
+            List<PendingResult> batch = retryBatch;
+            retryBatch = List.of();
+            write(batch);
+            if (!retryBatch.isEmpty()) {
+                return;
+            }
+        }
+        List<PendingResult> batch = new ArrayList<>(maxBatch);
+        while (queue.drainTo(batch, maxBatch) > 0) {
+            capacity.release(batch.size());
+            write(batch);
+            if (!retryBatch.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(maxBatch);
+        }
+    }
+
+    private void write(List<PendingResult> batch) {
+        long start = System.nanoTime();
+        try {
+            writeInTransaction(batch);
+            flushedCounter.increment(batch.size());
+        } catch (DataAccessResourceFailureException | TransientDataAccessException ex) {
+            log.warn("Database unavailable, {} results kept for retry: {}", batch.size(), ex.getMessage());
+            retryBatch = batch;
+        } catch (RuntimeException ex) {
+            log.warn("Batch of {} results rejected, writing one by one: {}", batch.size(), ex.getMessage());
+            for (PendingResult result : batch) {
+                try {
+                    writeInTransaction(List.of(result));
+                    flushedCounter.increment();
+                } catch (RuntimeException rowEx) {
+                    droppedCounter.increment();
+                    log.error("Dropping test result of user {} for subject {}: {}", result.userId(),
+                            result.subjectId(), rowEx.getMessage());
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void writeInTransaction(List<PendingResult> batch) {
+        Map<String, UserStatsRepository.AttemptDelta> deltas = new TreeMap<>();
+        for (PendingResult result : batch) {
+            deltas.merge(result.userId() + ":" + result.subjectId(), result.toAttemptDelta(),
+                    UserStatsRepository.AttemptDelta::merge);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            testResultBatchRepository.insertBatch(batch);
+            userStatsRepository.recordAttemptsBatch(deltas.values());
+        });
+    }
+
+    // Финальный сброс выполняется один раз и только после того, как поток сброса остановился: два сброса
+    // одновременно делили бы retryBatch.
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        flusher.shutdown();
+        if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+            flusher.shutdownNow();
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.error("Result write-behind flusher did not stop, {} results left unwritten",
+                        queue.size() + retryBatch.size());
+                return;
+            }
+        }
+        if (syncOnShutdown) {
+            flush();
+            log.info("Result write-behind drained on shutdown, {} results left unwritten",
+                    queue.size() + retryBatch.size());
+        } else if (!queue.isEmpty()) {
+            log.warn("Result write-behind stopped with {} unwritten results", queue.size());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.ProfileDtos;
+import com.example.entbridge.dto.QuestionDto;
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.mapper.QuestionMapper;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.ReviewCardRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Колода повторения ошибок. Ошибки из проверенных попыток после коммита попадают в ограниченную очередь
+// и пачкой сбрасываются в review_cards, так что отправка теста не ждёт записи колоды.
+@Service
+@Slf4j
+public class ReviewService {
+    private static final double MIN_EASE = 1.3;
+    private static final int MAX_DUE_PAGE = 100;
+
+    private final ReviewCardRepository reviewCardRepository;
+    private final QuestionRepository questionRepository;
+    private final QuestionMapper questionMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<ReviewCardRepository.Mistake> pending;
+    private final AtomicLong dropped = new AtomicLong();
+    private final int maxBatch;
+
+    public ReviewService(ReviewCardRepository reviewCardRepository,
+            QuestionRepository questionRepository,
+            QuestionMapper questionMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.review.queue-capacity:100000}") int queueCapacity,
+            @Value("${app.review.max-batch:1000}") int maxBatch) {
+        this.reviewCardRepository = reviewCardRepository;
+        this.questionRepository = questionRepository;
+        this.questionMapper = questionMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+    }
+
+    public void recordAfterCommit(long userId, byte[] encodedAnswers) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(userId, encodedAnswers);
+                }
+            });
+        } else {
+            record(userId, encodedAnswers);
+        }
+    }
+
+    // В колоду идут только отвеченные неверно вопросы; пропущенные вопросы не считаются ошибками.
+    public void record(long userId, byte[] encodedAnswers) {
+        AnswerEncoding.Decoded answers = AnswerEncoding.decode(encodedAnswers);
+        Instant now = Instant.now();
+        for (int i = 0; i < answers.size(); i++) {
+            if (answers.isAnswered(i) && !answers.isCorrect(i)
+                    && !pending.offer(new ReviewCardRepository.Mistake(userId, answers.questionId(i), now))) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.review.flush-interval-ms:1000}")
+    public void flush() {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            log.warn("Review queue overflow, {} mistakes were not added to review decks", lost);
+        }
+        List<ReviewCardRepository.Mistake> batch = new ArrayList<>(maxBatch);
+        while (pending.drainTo(batch, maxBatch) > 0) {
+            // Повторы одной пары ученик–вопрос в пачке схлопываются, остаётся последняя ошибка.
+            Map<String, ReviewCardRepository.Mistake> unique = new LinkedHashMap<>();
+            batch.forEach(m -> unique.put(m.userId() + ":" + m.questionId(), m));
+            try {
+                // Пачка пишется одной транзакцией: после ошибки в review_cards не остаётся её части, и повтор
+                // не засчитает карточкам lapses дважды.
+                transactionTemplate.executeWithoutResult(
+                        status -> reviewCardRepository.recordMistakes(new ArrayList<>(unique.values())));
+            } catch (RuntimeException ex) {
+                log.warn("Review deck flush failed for {} mistakes, will retry: {}", unique.size(), ex.getMessage());
+                unique.values().forEach(m -> {
+                    if (!pending.offer(m)) {
+                        dropped.incrementAndGet();
+                    }
+                });
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    @Transactional(readOnly = true)
+    public ProfileDtos.ReviewDueDto due(long userId, int limit) {
+        Instant now = Instant.now();
+        List<ReviewCardRepository.Card> cards = reviewCardRepository.findDue(userId, now,
+                Math.max(1, Math.min(limit, MAX_DUE_PAGE)));
+        Map<Long, Question> questions = questionRepository.findByIdIn(cards.stream()
+                        .map(ReviewCardRepository.Card::questionId).toList()).stream()
+                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        List<ProfileDtos.ReviewCardDto> result = new ArrayList<>(cards.size());
+        for (ReviewCardRepository.Card card : cards) {
+            Question question = questions.get(card.questionId());
+            if (question != null) {
+                result.add(toDto(questionMapper.toDto(question), card));
+            }
+        }
+        return new ProfileDtos.ReviewDueDto(reviewCardRepository.countDue(userId, now), result);
+    }
+
+    @Transactional
+    public ProfileDtos.ReviewCardDto review(long userId, long questionId, int quality) {
+        ReviewCardRepository.Card card = reviewCardRepository.find(userId, questionId);
+        if (card == null) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "REVIEW_CARD_NOT_FOUND", "Карточка повторения не найдена");
+        }
+        ReviewCardRepository.Card next = schedule(card, quality, Instant.now());
+        reviewCardRepository.update(userId, next);
+        return toDto(null, next);
+    }
+
+    // Алгоритм SM-2: при оценке ниже 3 карточка начинается заново, иначе интервал растёт 1 → 6 → interval * ease.
+    static ReviewCardRepository.Card schedule(ReviewCardRepository.Card card, int quality, Instant now) {
+        int q = Math.max(0, Math.min(5, quality));
+        double ease = Math.max(MIN_EASE, card.ease() + 0.1 - (5 - q) * (0.08 + (5 - q) * 0.02));
+        if (q < 3) {
+            return new ReviewCardRepository.Card(card.questionId(), ease, 1, 0, card.lapses() + 1,
+                    now.plus(Duration.ofDays(1)));
+        }
+        int repetitions = card.repetitions() + 1;
+        int interval = switch (repetitions) {
+            case 1 -> 1;
+            case 2 -> 6;
+            default -> (int) Math.round(Math.max(1, card.intervalDays()) * card.ease());
+        };
+        return new ReviewCardRepository.Card(card.questionId(), ease, interval, repetitions, card.lapses(),
+                now.plus(Duration.ofDays(interval)));
+    }
+
+    private static ProfileDtos.ReviewCardDto toDto(QuestionDto question, ReviewCardRepository.Card card) {
+        return new ProfileDtos.ReviewCardDto(question, card.dueAt(), card.intervalDays(), card.repetitions(),
+                card.lapses());
+    }
+}
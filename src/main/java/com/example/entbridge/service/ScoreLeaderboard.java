@@ -0,0 +1,79 @@
+package com.example.entbridge.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Лучшие баллы пользователей по одному предмету: дерево Фенвика по значениям баллов + карта пользователь → балл.
+public final class ScoreLeaderboard {
+    private final Map<Long, Integer> bestScores = new HashMap<>();
+    private long[] tree;
+
+    public ScoreLeaderboard(int maxScore) {
+        this.tree = new long[Math.max(1, maxScore) + 2];
+    }
+
+    // Учитывается только улучшение результата; повторная загрузка тех же данных ничего не меняет.
+    public synchronized boolean offer(long userId, int score) {
+        int value = Math.max(0, score);
+        Integer current = bestScores.get(userId);
+        if (current != null && current >= value) {
+            return false;
+        }
+        ensureCapacity(value);
+        if (current != null) {
+            add(current, -1);
+        }
+        add(value, 1);
+        bestScores.put(userId, value);
+        return true;
+    }
+
+    public synchronized Standing standing(long userId) {
+        Integer best = bestScores.get(userId);
+        if (best == null) {
+            return null;
+        }
+        long total = bestScores.size();
+        long atMost = prefix(best);
+        long below = best == 0 ? 0 : prefix(best - 1);
+        return new Standing(best, total - atMost + 1, total, total == 0 ? 0 : 100.0 * below / total);
+    }
+
+    public synchronized int size() {
+        return bestScores.size();
+    }
+
+    private void ensureCapacity(int score) {
+        if (score + 2 <= tree.length) {
+            return;
+        }
+        long[] counts = new long[tree.length - 1];
+        for (int value = 0; value < counts.length; value++) {
+            counts[value] = prefix(value) - (value == 0 ? 0 : prefix(value - 1));
+        }
+        tree = new long[Math.max(score + 2, tree.length * 2)];
+        for (int value = 0; value < counts.length; value++) {
+            if (counts[value] != 0) {
+                add(value, counts[value]);
+            }
+        }
+    }
+
+    private void add(int score, long delta) {
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Число пользователей с лучшим баллом не выше score.
+    private long prefix(int score) {
+        long sum = 0;
+        for (int i = Math.min(score + 1, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    public record Standing(int bestScore, long rank, long total, double percentile) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.entbridge.service;
+
+// Правило начисления за вопрос по маскам выбранных и правильных вариантов (бит i — i-й вариант по id).
+public enum ScoringRule {
+    // Правило по умолчанию, как до введения правил: засчитывается один выбранный вариант, совпадающий с первым
+    // (по id) правильным. Выбор нескольких вариантов не засчитывается.
+    SINGLE_CHOICE(false) {
+        @Override
+        public double credit(long selectedMask, long correctMask) {
+            return correctMask != 0 && selectedMask == Long.lowestOneBit(correctMask) ? 1 : 0;
+        }
+    },
+    // Вопрос засчитывается только при точном совпадении наборов, все вопросы равноценны.
+    ALL_OR_NOTHING(false) {
+        @Override
+        public double credit(long selectedMask, long correctMask) {
+            return correctMask != 0 && selectedMask == correctMask ? 1 : 0;
+        }
+    },
+    // Доля за каждый верный вариант минус штраф за каждый лишний, с весом Question.points.
+    PARTIAL_CREDIT(true) {
+        @Override
+        public double credit(long selectedMask, long correctMask) {
+            if (correctMask == 0) {
+                return 0;
+            }
+            int hits = Long.bitCount(selectedMask & correctMask);
+            int wrong = Long.bitCount(selectedMask & ~correctMask);
+            return Math.max(0, hits - wrong) / (double) Long.bitCount(correctMask);
+        }
+    },
+    // Точное совпадение, но вопрос приносит Question.points.
+    WEIGHTED_POINTS(true) {
+        @Override
+        public double credit(long selectedMask, long correctMask) {
+            return correctMask != 0 && selectedMask == correctMask ? 1 : 0;
+        }
+    };
+
+    private final boolean weighted;
+
+    ScoringRule(boolean weighted) {
+        this.weighted = weighted;
+    }
+
+    public boolean weighted() {
+        return weighted;
+    }
+
+    public abstract double credit(long selectedMask, long correctMask);
+}
@@ -7,19 +7,39 @@ import com.example.entbridge.exception.ApiException;
 import com.example.entbridge.mapper.QuestionMapper;
 import com.example.entbridge.mapper.TestResultMapper;
 import com.example.entbridge.repository.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class TestService {
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final QuestionRepository questionRepository;
     private final OptionRepository optionRepository;
     private final TestResultRepository testResultRepository;
@@ -27,6 +47,17 @@ public class TestService {
     private final SubjectRepository subjectRepository;
     private final TestResultMapper testResultMapper;
     private final QuestionMapper questionMapper;
+    private final AnswerKeyCache answerKeyCache;
+    private final UserStatsRepository userStatsRepository;
+    private final ResultWriteBehind resultWriteBehind;
+    private final ItemStatsService itemStatsService;
+    private final LeaderboardService leaderboardService;
+    private final ReviewService reviewService;
+    private final QuestionCursorRepository questionCursorRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor gradingExecutor;
+    private final EntityManager entityManager;
 
     public TestService(QuestionRepository questionRepository,
             OptionRepository optionRepository,
@@ -34,7 +65,18 @@ public class TestService {
             UserRepository userRepository,
             SubjectRepository subjectRepository,
             TestResultMapper testResultMapper,
-            QuestionMapper questionMapper) {
+            QuestionMapper questionMapper,
+            AnswerKeyCache answerKeyCache,
+            UserStatsRepository userStatsRepository,
+            ResultWriteBehind resultWriteBehind,
+            ItemStatsService itemStatsService,
+            LeaderboardService leaderboardService,
+            ReviewService reviewService,
+            QuestionCursorRepository questionCursorRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("gradingExecutor") Executor gradingExecutor,
+            EntityManager entityManager) {
         this.questionRepository = questionRepository;
         this.optionRepository = optionRepository;
         this.testResultRepository = testResultRepository;
@@ -42,6 +84,18 @@ public class TestService {
         this.subjectRepository = subjectRepository;
         this.testResultMapper = testResultMapper;
         this.questionMapper = questionMapper;
+        this.answerKeyCache = answerKeyCache;
+        this.userStatsRepository = userStatsRepository;
+        this.resultWriteBehind = resultWriteBehind;
+        this.itemStatsService = itemStatsService;
+        this.leaderboardService = leaderboardService;
+        this.reviewService = reviewService;
+        this.questionCursorRepository = questionCursorRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.gradingExecutor = gradingExecutor;
+        this.entityManager = entityManager;
     }
 
     @Transactional
@@ -52,72 +106,214 @@ public class TestService {
                     log.error("Test submission failed: subject with code {} not found", request.subjectId());
                     return new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден");
                 });
-        List<Question> questions = questionRepository.findBySubject_CodeOrderByIdAsc(subject.getCode());
-        if (questions.isEmpty()) {
+        AnswerKey key = answerKeyCache.get(subject.getCode());
+        if (key.size() == 0) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "NO_QUESTIONS", "В этом предмете нет вопросов");
         }
 
-        questions.stream()
-                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        return gradeAndRecord(userId, subject, key, null, request.answers());
+    }
 
-        Map<String, String> userAnswers = request.answers().stream()
-                .filter(a -> a.selectedOptionId() != null && !a.selectedOptionId().isBlank())
-                .collect(Collectors.toMap(TestDtos.Answer::questionId, TestDtos.Answer::selectedOptionId,
-                        (a1, a2) -> a1));
+    @Transactional
+    public TestDtos.ResultDto gradeAndRecord(Long userId, Subject subject, AnswerKey key, int[] positions,
+            List<TestDtos.Answer> answers) {
+        GradedAttempt graded = grade(subject, key, positions, answers);
 
-        int correctAnswers = 0;
-        List<TestDtos.AnswerResultDto> evaluatedAnswers = new java.util.ArrayList<>();
+        @SuppressWarnings("null")
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "USER_NOT_FOUND", "Пользователь не найден"));
 
-        for (Question question : questions) {
-            String qId = question.getId().toString();
-            String selectedOptId = userAnswers.get(qId);
-            boolean isCorrect = false;
+        TestResult tr = toEntity(user, graded);
+        Long reservedId = resultWriteBehind.reserveId();
+        if (reservedId != null) {
+            // Номер результата выдаётся сразу, строка с ним появится в test_results после ближайшего сброса.
+            tr.setId(reservedId);
+            resultWriteBehind.enqueueAfterCommit(new TestResultBatchRepository.PendingResult(tr.getId(),
+                    user.getId(), subject.getId(), graded.score(), graded.maxScore(), graded.totalQuestions(),
+                    graded.correctAnswers(), tr.getCompletedAt(), graded.encodedAnswers()));
+        } else {
+            tr = testResultRepository.save(tr);
+            userStatsRepository.recordAttempt(user.getId(), subject.getId(), graded.score(), tr.getCompletedAt());
+            // Агрегаты пользователя изменены SQL-инкрементом в обход контекста персистентности.
+            entityManager.refresh(user);
+        }
+        itemStatsService.recordAfterCommit(subject.getId(), graded.score(), graded.maxScore(),
+                graded.encodedAnswers());
+        leaderboardService.recordAfterCommit(subject, user.getId(), graded.score());
+        reviewService.recordAfterCommit(user.getId(), graded.encodedAnswers());
 
-            String correctOptId = question.getOptions().stream()
-                    .filter(o -> Boolean.TRUE.equals(o.getIsCorrect()))
-                    .map(o -> o.getId().toString())
-                    .findFirst().orElse(null);
+        log.info("Test submitted successfully by user {}. Score: {}/{}", userId, graded.score(), graded.maxScore());
+        return toResultDto(tr, graded);
+    }
 
-            if (selectedOptId != null && selectedOptId.equals(correctOptId)) {
-                isCorrect = true;
-                correctAnswers++;
+    @Transactional
+    public TestDtos.CombinedResultDto submitCombined(Long userId, TestDtos.CombinedSubmitRequest request) {
+        log.info("Combined test submission by user {} for {} subjects", userId, request.subjects().size());
+        List<String> codes = request.subjects().stream().map(TestDtos.SubjectAnswers::subjectId).toList();
+        if (new HashSet<>(codes).size() != codes.size()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "DUPLICATE_SUBJECT", "Предмет указан несколько раз");
+        }
+        Map<String, Subject> subjects = subjectRepository.findByCodeIn(codes).stream()
+                .collect(Collectors.toMap(Subject::getCode, Function.identity()));
+        List<CompletableFuture<GradedAttempt>> futures = new ArrayList<>(codes.size());
+        for (TestDtos.SubjectAnswers part : request.subjects()) {
+            Subject subject = subjects.get(part.subjectId());
+            if (subject == null) {
+                throw new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден");
             }
-            evaluatedAnswers.add(new TestDtos.AnswerResultDto(qId, selectedOptId, isCorrect, correctOptId));
+            AnswerKey key = answerKeyCache.get(subject.getCode());
+            if (key.size() == 0) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "NO_QUESTIONS", "В этом предмете нет вопросов");
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> grade(subject, key, null, part.answers()),
+                    gradingExecutor));
         }
 
-        int totalQuestions = questions.size();
-        int maxScore = subject.getMaxScore() == null ? totalQuestions : subject.getMaxScore();
-        // Масштабируем результат под максимальный балл предмета.
-        int score = (int) Math.round((double) correctAnswers * maxScore / totalQuestions);
-
         @SuppressWarnings("null")
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "USER_NOT_FOUND", "Пользователь не найден"));
 
+        List<GradedAttempt> graded = new ArrayList<>(futures.size());
+        for (CompletableFuture<GradedAttempt> future : futures) {
+            try {
+                graded.add(future.join());
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+        List<TestResult> entities = testResultRepository.saveAll(graded.stream().map(g -> toEntity(user, g)).toList());
+        userStatsRepository.recordAttemptsBatch(entities.stream()
+                .map(tr -> new UserStatsRepository.AttemptDelta(user.getId(), tr.getSubject().getId(), 1,
+                        tr.getScore(), tr.getScore(), tr.getScore(), tr.getCompletedAt()))
+                .toList());
+        entityManager.refresh(user);
+        for (GradedAttempt g : graded) {
+            itemStatsService.recordAfterCommit(g.subject().getId(), g.score(), g.maxScore(), g.encodedAnswers());
+            leaderboardService.recordAfterCommit(g.subject(), user.getId(), g.score());
+            reviewService.recordAfterCommit(user.getId(), g.encodedAnswers());
+        }
+
+        List<TestDtos.ResultDto> results = new ArrayList<>(graded.size());
+        int totalScore = 0;
+        int maxTotalScore = 0;
+        for (int i = 0; i < graded.size(); i++) {
+            results.add(toResultDto(entities.get(i), graded.get(i)));
+            totalScore += graded.get(i).score();
+            maxTotalScore += graded.get(i).maxScore();
+        }
+        log.info("Combined test submitted by user {}. Score: {}/{}", userId, totalScore, maxTotalScore);
+        return new TestDtos.CombinedResultDto(totalScore, maxTotalScore, results);
+    }
+
+    // positions — индексы вопросов в ключе в порядке показа (ответы возвращаются и сохраняются в нём же);
+    // null означает весь банк.
+    GradedAttempt grade(Subject subject, AnswerKey key, int[] positions, List<TestDtos.Answer> answers) {
+        int totalQuestions = positions == null ? key.size() : positions.length;
+        int pairCount = 0;
+        for (TestDtos.Answer answer : answers) {
+            pairCount += 1 + (answer.selectedOptionIds() == null ? 0 : answer.selectedOptionIds().size());
+        }
+        long[] answerQuestionIds = new long[pairCount];
+        long[] answerOptionIds = new long[pairCount];
+        int n = 0;
+        for (TestDtos.Answer answer : answers) {
+            long questionId = parseLongOrDefault(answer.questionId(), AnswerKey.NO_OPTION);
+            answerQuestionIds[n] = questionId;
+            answerOptionIds[n++] = parseLongOrDefault(answer.selectedOptionId(), AnswerKey.NO_OPTION);
+            if (answer.selectedOptionIds() != null) {
+                for (String optionId : answer.selectedOptionIds()) {
+                    answerQuestionIds[n] = questionId;
+                    answerOptionIds[n++] = parseLongOrDefault(optionId, AnswerKey.NO_OPTION);
+                }
+            }
+        }
+
+        ScoringRule rule = subject.getScoringRule() == null ? ScoringRule.SINGLE_CHOICE : subject.getScoringRule();
+        long[] selectedMasks = new long[totalQuestions];
+        boolean[] correctFlags = new boolean[totalQuestions];
+        int unknown = align(key, positions, answerQuestionIds, answerOptionIds, n, selectedMasks);
+        if (unknown > 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "UNKNOWN_OPTION", "Вариант ответа не относится к вопросу");
+        }
+        double earned = Grading.score(rule, key.correctMasks(), key.pointsArray(), positions, selectedMasks,
+                correctFlags);
+        long possible = Grading.possible(rule, key.pointsArray(), positions);
+
+        int correctAnswers = 0;
+        List<TestDtos.AnswerResultDto> evaluatedAnswers = new ArrayList<>(totalQuestions);
+        long[] questionIds = new long[totalQuestions];
+        long[][] selectedOptionIds = new long[totalQuestions][];
+        for (int slot = 0; slot < totalQuestions; slot++) {
+            int i = positions == null ? slot : positions[slot];
+            if (correctFlags[slot]) {
+                correctAnswers++;
+            }
+            questionIds[slot] = key.questionId(i);
+            selectedOptionIds[slot] = key.selectedOptionIds(i, selectedMasks[slot]);
+            List<String> selectedIds = key.optionIdsOf(i, selectedMasks[slot]);
+            List<String> correctIds = key.optionIdsOf(i, key.correctMask(i));
+            evaluatedAnswers.add(new TestDtos.AnswerResultDto(Long.toString(key.questionId(i)),
+                    selectedIds.isEmpty() ? null : selectedIds.get(0), correctFlags[slot],
+                    correctIds.isEmpty() ? null : correctIds.get(0), selectedIds, correctIds));
+        }
+
+        int maxScore = subject.getMaxScore() == null ? (int) possible : subject.getMaxScore();
+        // Масштабируем результат под максимальный балл предмета.
+        int score = Grading.scale(earned, possible, maxScore);
+        return new GradedAttempt(subject, score, maxScore, totalQuestions, correctAnswers, evaluatedAnswers,
+                AnswerEncoding.encode(questionIds, selectedOptionIds, correctFlags, totalQuestions));
+    }
+
+    // Grading.alignSelections ищет слоты двоичным поиском, поэтому маски строятся по отсортированной копии
+    // и раскладываются обратно в порядок показа.
+    private static int align(AnswerKey key, int[] positions, long[] answerQuestionIds, long[] answerOptionIds,
+            int count, long[] selectedMasks) {
+        if (positions == null || isSorted(positions)) {
+            return Grading.alignSelections(key.questionIds(), key.optionOffsets(), key.optionIds(), positions,
+                    answerQuestionIds, answerOptionIds, count, selectedMasks);
+        }
+        int[] sorted = positions.clone();
+        Arrays.sort(sorted);
+        long[] sortedMasks = new long[sorted.length];
+        int unknown = Grading.alignSelections(key.questionIds(), key.optionOffsets(), key.optionIds(), sorted,
+                answerQuestionIds, answerOptionIds, count, sortedMasks);
+        for (int slot = 0; slot < positions.length; slot++) {
+            selectedMasks[slot] = sortedMasks[Arrays.binarySearch(sorted, positions[slot])];
+        }
+        return unknown;
+    }
+
+    private static boolean isSorted(int[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1] > values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private TestResult toEntity(User user, GradedAttempt graded) {
         TestResult tr = new TestResult();
         tr.setUser(user);
-        tr.setSubject(subject);
-        tr.setScore(score);
-        tr.setMaxScore(maxScore);
-        tr.setTotalQuestions(totalQuestions);
-        tr.setCorrectAnswers(correctAnswers);
-        tr = testResultRepository.save(tr);
-
-        // update user stats
-        int totalScore = (user.getTotalScore() == null ? 0 : user.getTotalScore()) + score;
-        user.setTotalScore(totalScore);
-        List<TestResult> results = testResultRepository.findByUser(user);
-        double avg = results.stream().mapToInt(TestResult::getScore).average().orElse(0.0);
-        user.setAverageScore(avg);
-        userRepository.save(user);
-
-        log.info("Test submitted successfully by user {}. Score: {}/{}", userId, score, maxScore);
+        tr.setSubject(graded.subject());
+        tr.setScore(graded.score());
+        tr.setMaxScore(graded.maxScore());
+        tr.setTotalQuestions(graded.totalQuestions());
+        tr.setCorrectAnswers(graded.correctAnswers());
+        tr.setAnswers(graded.encodedAnswers());
+        return tr;
+    }
 
+    private TestDtos.ResultDto toResultDto(TestResult tr, GradedAttempt graded) {
         TestDtos.ResultDto dto = testResultMapper.toDto(tr);
         return new TestDtos.ResultDto(
                 dto.id(), dto.userId(), dto.subjectId(), dto.subjectName(),
                 dto.score(), dto.maxScore(), dto.totalQuestions(), dto.correctAnswers(), dto.date(),
-                evaluatedAnswers);
+                graded.answers());
+    }
+
+    record GradedAttempt(Subject subject, int score, int maxScore, int totalQuestions, int correctAnswers,
+            List<TestDtos.AnswerResultDto> answers, byte[] encodedAnswers) {
     }
 
     public List<QuestionDto> questions(String subjectCode) {
@@ -128,6 +324,72 @@ public class TestService {
                 .collect(Collectors.toList());
     }
 
+    private static long parseLongOrDefault(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    // afterId — курсор: id последнего вопроса предыдущей страницы (nextAfterId), пустой — с начала.
+    @Transactional(readOnly = true)
+    public TestDtos.QuestionPageDto questionsPage(String subjectCode, String afterId, int limit) {
+        long cursor = parseCursor(afterId);
+        Subject subject = subjectRepository.findByCode(subjectCode)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Long> ids = questionRepository.findIdsBySubjectAfter(subject.getCode(), cursor,
+                PageRequest.of(0, pageSize));
+        if (ids.isEmpty()) {
+            return new TestDtos.QuestionPageDto(List.of(), null);
+        }
+        List<QuestionDto> questions = questionRepository.findByIdIn(ids).stream()
+                .sorted(Comparator.comparing(Question::getId))
+                .map(questionMapper::toDto)
+                .toList();
+        String next = ids.size() < pageSize ? null : ids.get(ids.size() - 1).toString();
+        return new TestDtos.QuestionPageDto(questions, next);
+    }
+
+    // Вопросы пишутся в ответ по мере чтения из курсора, память не зависит от размера банка.
+    public StreamingResponseBody questionStream(String subjectCode) {
+        Subject subject = subjectRepository.findByCode(subjectCode)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "SUBJECT_NOT_FOUND", "Предмет не найден"));
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                readOnlyTransaction.executeWithoutResult(status -> questionCursorRepository.forEachBySubject(
+                        subject.getCode(), STREAM_FETCH_SIZE, question -> {
+                            try {
+                                generator.writeObject(question);
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                        }));
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    private static long parseCursor(String value) {
+        if (value == null || value.isBlank()) {
+            return 0L;
+        }
+        try {
+            long cursor = Long.parseLong(value.trim());
+            if (cursor >= 0) {
+                return cursor;
+            }
+        } catch (NumberFormatException ex) {
+            // Ниже — общий ответ для любого некорректного курсора.
+        }
+        throw new ApiException(HttpStatus.BAD_REQUEST, "INVALID_CURSOR", "Некорректный курсор страницы");
+    }
+
     private Long parseId(String value, String errorCode) {
         if (value == null || value.isBlank()) {
             throw new ApiException(HttpStatus.BAD_REQUEST, errorCode, "Некорректный идентификатор");
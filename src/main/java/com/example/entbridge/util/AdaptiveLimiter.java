@@ -0,0 +1,116 @@
+package com.example.entbridge.util;
+
+// Ограничитель параллельности с короткой очередью ожидания. Лимит пересчитывается раз в окно по градиенту
+// задержки: пока средняя задержка окна близка к минимальной, лимит растёт на sqrt(limit), при росте задержки
+// пропорционально уменьшается.
+public class AdaptiveLimiter {
+    private static final int MIN_WINDOW = 10;
+    private static final int BASELINE_RESET_WINDOWS = 50;
+    // Допустимый рост задержки относительно минимальной, прежде чем лимит начнёт снижаться.
+    private static final double LATENCY_TOLERANCE = 1.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+
+    private int limit;
+    private int inFlight;
+    private int waiting;
+
+    private long windowLatencySum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private long minLatency = Long.MAX_VALUE;
+    private int windows;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    public synchronized Outcome acquire(long maxWaitNanos) throws InterruptedException {
+        if (inFlight < limit) {
+            admit();
+            return Outcome.ADMITTED;
+        }
+        if (waiting >= maxQueue) {
+            return Outcome.REJECTED;
+        }
+        waiting++;
+        try {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (inFlight >= limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return Outcome.REJECTED;
+                }
+                wait(Math.max(1, remaining / 1_000_000));
+            }
+            admit();
+            return Outcome.QUEUED;
+        } finally {
+            waiting--;
+        }
+    }
+
+    public synchronized void release(long latencyNanos) {
+        inFlight--;
+        windowLatencySum += latencyNanos;
+        windowSamples++;
+        if (windowSamples >= Math.max(MIN_WINDOW, limit)) {
+            adjust();
+        }
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int waiting() {
+        return waiting;
+    }
+
+    private void admit() {
+        inFlight++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+    }
+
+    private void adjust() {
+        long average = Math.max(1, windowLatencySum / windowSamples);
+        // Периодически забываем минимум, чтобы базовая задержка могла вырасти (другой план запроса, рост данных).
+        windows++;
+        if (average < minLatency || windows % BASELINE_RESET_WINDOWS == 0) {
+            minLatency = average;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, LATENCY_TOLERANCE * minLatency / average));
+        double target = limit * gradient;
+        // Растём только если лимит действительно упирался, иначе он уползёт вверх без нагрузки.
+        if (gradient == 1.0 && windowMaxInFlight >= limit) {
+            target += Math.sqrt(limit);
+        }
+        double smoothed = limit * 0.8 + target * 0.2;
+        int next = limit;
+        if (target > limit) {
+            next = Math.max(limit + 1, (int) smoothed);
+        } else if (target < limit) {
+            next = Math.min(limit - 1, (int) Math.ceil(smoothed));
+        }
+        limit = Math.min(maxLimit, Math.max(minLimit, next));
+        windowLatencySum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = inFlight;
+    }
+
+    public enum Outcome {
+        ADMITTED,
+        QUEUED,
+        REJECTED
+    }
+}
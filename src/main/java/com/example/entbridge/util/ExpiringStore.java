@@ -0,0 +1,69 @@
+package com.example.entbridge.util;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ExpiringStore<K, V> {
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final Clock clock;
+
+    public ExpiringStore(int maxEntries) {
+        this(maxEntries, Clock.systemUTC());
+    }
+
+    public ExpiringStore(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    // false — хранилище заполнено даже после удаления просроченных записей.
+    public boolean put(K key, V value, long ttlMillis) {
+        if (entries.size() >= maxEntries && purgeExpired() == 0 && entries.size() >= maxEntries) {
+            return false;
+        }
+        entries.put(key, new Entry<>(value, clock.millis() + ttlMillis));
+        return true;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= clock.millis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value();
+    }
+
+    public int purgeExpired() {
+        long now = clock.millis();
+        int removed = 0;
+        for (var it = entries.entrySet().iterator(); it.hasNext();) {
+            var e = it.next();
+            if (e.getValue().expiresAt() <= now) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return maxEntries;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,2 @@
+-- Правило подсчёта баллов по предмету: SINGLE_CHOICE (как раньше), ALL_OR_NOTHING, PARTIAL_CREDIT, WEIGHTED_POINTS
+ALTER TABLE subjects ADD COLUMN IF NOT EXISTS scoring_rule varchar(32) NOT NULL DEFAULT 'SINGLE_CHOICE';
@@ -0,0 +1,10 @@
+-- Черновики ответов экзаменационных сессий (AnswerEncoding без отметок правильности)
+CREATE TABLE IF NOT EXISTS exam_drafts (
+  session_id varchar(36) PRIMARY KEY,
+  user_id integer NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  subject_code varchar(100) NOT NULL,
+  answers bytea NOT NULL,
+  updated_at timestamp NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_exam_drafts_updated_at ON exam_drafts(updated_at);
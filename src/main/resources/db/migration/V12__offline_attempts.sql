@@ -0,0 +1,8 @@
+-- Попытки, принятые из офлайн-пакетов: повторная синхронизация той же попытки не создаёт второй результат
+CREATE TABLE IF NOT EXISTS offline_attempts (
+  package_id varchar(36) NOT NULL,
+  attempt_id varchar(64) NOT NULL,
+  user_id integer NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  synced_at timestamp NOT NULL DEFAULT now(),
+  PRIMARY KEY (package_id, attempt_id)
+);
@@ -0,0 +1,14 @@
+-- Карточки повторения ошибок (SM-2): одна строка на пару ученик–вопрос
+CREATE TABLE IF NOT EXISTS review_cards (
+  user_id integer NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  question_id integer NOT NULL REFERENCES questions(id) ON DELETE CASCADE,
+  ease double precision NOT NULL DEFAULT 2.5,
+  interval_days integer NOT NULL DEFAULT 0,
+  repetitions integer NOT NULL DEFAULT 0,
+  lapses integer NOT NULL DEFAULT 0,
+  due_at timestamp NOT NULL,
+  updated_at timestamp NOT NULL DEFAULT now(),
+  PRIMARY KEY (user_id, question_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_review_cards_user_due ON review_cards(user_id, due_at);
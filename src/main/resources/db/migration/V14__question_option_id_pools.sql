@@ -0,0 +1,4 @@
+-- Hibernate берёт идентификаторы вопросов и вариантов пулом по 50 (pooled optimizer): шаг sequence должен
+-- совпадать с allocationSize. DEFAULT nextval(...) у столбцов продолжает работать для вставок из SQL.
+ALTER SEQUENCE questions_id_seq INCREMENT BY 50;
+ALTER SEQUENCE options_id_seq INCREMENT BY 50;
@@ -0,0 +1,21 @@
+-- Фоновые импорты вопросов. next_row и счётчики обновляются в той же транзакции, что и пачка вопросов,
+-- поэтому прерванный импорт продолжается ровно с последней закоммиченной пачки.
+CREATE TABLE IF NOT EXISTS import_jobs (
+  id varchar(36) PRIMARY KEY,
+  admin_id integer REFERENCES users(id) ON DELETE SET NULL,
+  subject_id integer NOT NULL REFERENCES subjects(id) ON DELETE CASCADE,
+  file_name varchar(255),
+  file_path text,
+  status varchar(16) NOT NULL,
+  next_row integer NOT NULL DEFAULT 0,
+  rows_processed integer NOT NULL DEFAULT 0,
+  created integer NOT NULL DEFAULT 0,
+  skipped integer NOT NULL DEFAULT 0,
+  errors text,
+  message text,
+  created_at timestamp NOT NULL DEFAULT now(),
+  updated_at timestamp NOT NULL DEFAULT now(),
+  finished_at timestamp
+);
+
+CREATE INDEX IF NOT EXISTS idx_import_jobs_finished ON import_jobs(finished_at) WHERE file_path IS NOT NULL;
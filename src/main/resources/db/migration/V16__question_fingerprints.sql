@@ -0,0 +1,7 @@
+-- Отпечаток содержимого вопроса (SHA-256 нормализованного текста и отсортированных вариантов) для поиска
+-- дубликатов при импорте. Заполняется приложением: новые вопросы — при записи, существующие — при старте.
+ALTER TABLE questions ADD COLUMN IF NOT EXISTS fingerprint varchar(64);
+CREATE INDEX IF NOT EXISTS idx_questions_subject_fingerprint ON questions(subject_id, fingerprint);
+
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS mode varchar(8) NOT NULL DEFAULT 'SKIP';
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS duplicates integer NOT NULL DEFAULT 0;
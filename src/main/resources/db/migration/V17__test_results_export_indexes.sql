@@ -0,0 +1,5 @@
+-- Выгрузка результатов идёт в порядке completed_at DESC с фильтрами по предмету и ученику: индексы дают
+-- курсору готовый порядок без сортировки всей таблицы.
+CREATE INDEX IF NOT EXISTS idx_test_results_completed ON test_results(completed_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_test_results_subject_completed ON test_results(subject_id, completed_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_test_results_user_completed ON test_results(user_id, completed_at DESC, id DESC);
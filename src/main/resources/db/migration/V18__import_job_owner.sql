@@ -0,0 +1,8 @@
+-- Узел, который ведёт задание импорта, и время его последнего сигнала. Прерванными считаются только задания
+-- с устаревшим heartbeat_at, поэтому перезапуск одного узла не трогает задания, которые выполняют другие.
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS owner varchar(64);
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS heartbeat_at timestamp;
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS cancel_requested boolean NOT NULL DEFAULT false;
+
+CREATE INDEX IF NOT EXISTS idx_import_jobs_active ON import_jobs(status, heartbeat_at)
+  WHERE status IN ('QUEUED', 'RUNNING');
@@ -0,0 +1,8 @@
+-- Бланки, записанные массовой проверкой: повторная загрузка того же файла (например, после FAILED) не создаёт
+-- второй результат. sheet_hash — SHA-256 предмета и нормализованных ответов строки.
+CREATE TABLE IF NOT EXISTS bulk_graded_sheets (
+  user_id integer NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  sheet_hash varchar(64) NOT NULL,
+  graded_at timestamp NOT NULL DEFAULT now(),
+  PRIMARY KEY (user_id, sheet_hash)
+);
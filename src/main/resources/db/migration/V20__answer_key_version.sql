@@ -0,0 +1,3 @@
+-- Версия ключа ответов предмета. Растёт в той же транзакции, что и запись вопросов/вариантов, поэтому
+-- каждый узел по ней узнаёт, что его кэшированный ключ устарел, даже если писал другой узел.
+ALTER TABLE subjects ADD COLUMN IF NOT EXISTS answer_key_version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Повтор бланка определяется по источнику — SHA-256 содержимого файла и номеру строки, а не по ответам:
+-- те же ответы в другом файле — новая попытка ученика. Прежние ключи с новыми несравнимы, таблица пересоздаётся.
+-- Записи старше app.bulk-grading.sheet-retention-days удаляются по расписанию.
+DROP TABLE IF EXISTS bulk_graded_sheets;
+CREATE TABLE bulk_graded_sheets (
+  file_hash varchar(64) NOT NULL,
+  line_no bigint NOT NULL,
+  graded_at timestamp NOT NULL DEFAULT now(),
+  PRIMARY KEY (file_hash, line_no)
+);
+CREATE INDEX IF NOT EXISTS idx_bulk_graded_sheets_graded_at ON bulk_graded_sheets(graded_at);
@@ -0,0 +1,42 @@
+ALTER TABLE users ADD COLUMN IF NOT EXISTS attempts_count integer NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS score_sum bigint NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS user_subject_stats (
+  user_id integer NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  subject_id integer NOT NULL REFERENCES subjects(id) ON DELETE CASCADE,
+  attempts integer NOT NULL DEFAULT 0,
+  score_sum bigint NOT NULL DEFAULT 0,
+  best_score integer NOT NULL DEFAULT 0,
+  last_score integer NOT NULL DEFAULT 0,
+  last_completed_at timestamp,
+  PRIMARY KEY (user_id, subject_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_subject_stats_subject_best ON user_subject_stats(subject_id, best_score);
+
+-- Backfill from existing results
+UPDATE users u
+SET attempts_count = agg.attempts,
+    score_sum = agg.score_sum,
+    total_score = agg.score_sum,
+    average_score = agg.score_sum::double precision / agg.attempts
+FROM (
+  SELECT user_id, count(*) AS attempts, coalesce(sum(score), 0) AS score_sum
+  FROM test_results
+  WHERE user_id IS NOT NULL
+  GROUP BY user_id
+) agg
+WHERE u.id = agg.user_id;
+
+INSERT INTO user_subject_stats (user_id, subject_id, attempts, score_sum, best_score, last_score, last_completed_at)
+SELECT user_id,
+       subject_id,
+       count(*),
+       coalesce(sum(score), 0),
+       coalesce(max(score), 0),
+       coalesce((array_agg(score ORDER BY completed_at DESC NULLS LAST, id DESC))[1], 0),
+       max(completed_at)
+FROM test_results
+WHERE user_id IS NOT NULL AND subject_id IS NOT NULL
+GROUP BY user_id, subject_id
+ON CONFLICT (user_id, subject_id) DO NOTHING;
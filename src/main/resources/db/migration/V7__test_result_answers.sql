@@ -0,0 +1,2 @@
+-- Ответы попытки в компактном бинарном виде (AnswerEncoding)
+ALTER TABLE test_results ADD COLUMN IF NOT EXISTS answers bytea;
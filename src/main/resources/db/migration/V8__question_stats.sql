@@ -0,0 +1,14 @@
+-- Накопленная статистика по вопросам (item analysis), пополняется из памяти периодическим сбросом
+CREATE TABLE IF NOT EXISTS question_stats (
+  question_id integer PRIMARY KEY REFERENCES questions(id) ON DELETE CASCADE,
+  subject_id integer NOT NULL REFERENCES subjects(id) ON DELETE CASCADE,
+  attempts bigint NOT NULL DEFAULT 0,
+  correct bigint NOT NULL DEFAULT 0,
+  upper_attempts bigint NOT NULL DEFAULT 0,
+  upper_correct bigint NOT NULL DEFAULT 0,
+  lower_attempts bigint NOT NULL DEFAULT 0,
+  lower_correct bigint NOT NULL DEFAULT 0,
+  updated_at timestamp NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_question_stats_subject ON question_stats(subject_id);
@@ -0,0 +1,11 @@
+-- Ключи идемпотентности отправки тестов: уникальность (user_id, idem_key) гарантирует одну запись даже при гонке узлов
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+  user_id integer NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+  idem_key varchar(128) NOT NULL,
+  request_hash varchar(64) NOT NULL,
+  response text,
+  created_at timestamp NOT NULL DEFAULT now(),
+  CONSTRAINT uq_idempotency_keys_user_key UNIQUE (user_id, idem_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys(created_at);
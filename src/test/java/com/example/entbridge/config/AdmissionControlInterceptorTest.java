@@ -0,0 +1,197 @@
+package com.example.entbridge.config;
+
+import com.example.entbridge.exception.ApiError;
+import com.example.entbridge.exception.GlobalExceptionHandler;
+import com.example.entbridge.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlInterceptorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void preHandle_ShouldRejectWith429AndRetryAfter_WhenLimitAndQueueAreFull() throws Exception {
+        // Arrange: один слот, без очереди
+        AdmissionControlInterceptor interceptor = interceptor(true, 10, group("submit", 1, 1, 1, 0));
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                handler("submit")));
+
+        // Act
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                        handler("submit")));
+        ResponseEntity<ApiError> response = new GlobalExceptionHandler().handleTooManyRequests(exception);
+
+        // Assert
+        assertEquals(429, response.getStatusCode().value());
+        assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1.0, count("submit", "rejected"));
+        assertEquals(1.0, gauge("entbridge.admission.in_flight", "submit"));
+    }
+
+    @Test
+    void preHandle_ShouldQueueRequest_UntilPermitIsReleased() throws Exception {
+        // Arrange
+        AdmissionControlInterceptor interceptor = interceptor(true, 5_000, group("submit", 1, 1, 1, 1));
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        HandlerMethod submit = handler("submit");
+        interceptor.preHandle(first, firstResponse, submit);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), submit);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        waitUntil(() -> gauge("entbridge.admission.waiting", "submit") == 1.0);
+
+        // Act
+        interceptor.afterCompletion(first, firstResponse, submit, null);
+
+        // Assert
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, count("submit", "queued"));
+        assertEquals(0.0, gauge("entbridge.admission.waiting", "submit"));
+        assertEquals(1.0, gauge("entbridge.admission.in_flight", "submit"));
+    }
+
+    @Test
+    void preHandle_ShouldKeepGroupsIndependent_WhenAdminGroupIsSaturated() throws Exception {
+        // Arrange: тяжёлые админские запросы заняли свой единственный слот
+        AdmissionControlInterceptor interceptor = interceptor(true, 10,
+                group("admin", 1, 1, 1, 0), group("submit", 4, 1, 4, 0));
+        interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler("admin"));
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(new MockHttpServletRequest(),
+                new MockHttpServletResponse(), handler("admin")));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                    handler("submit")));
+        }
+        assertEquals(4.0, gauge("entbridge.admission.in_flight", "submit"));
+        assertEquals(0.0, count("submit", "rejected"));
+    }
+
+    @Test
+    void afterCompletion_ShouldShrinkLimit_WhenRequestsFailWithServerErrors() throws Exception {
+        // Arrange: первое окно быстрых ответов задаёт базовую задержку
+        AdmissionControlInterceptor interceptor = interceptor(true, 200, group("submit", 10, 2, 10, 0));
+        window(interceptor, 10, 200);
+        assertEquals(10.0, gauge("entbridge.admission.limit", "submit"));
+
+        // Act: ответы 5xx считаются медленными (max-wait), средняя задержка окна резко растёт
+        window(interceptor, 10, 500);
+        double afterFirstFailure = gauge("entbridge.admission.limit", "submit");
+        for (int i = 0; i < 20; i++) {
+            window(interceptor, (int) gauge("entbridge.admission.limit", "submit"), 503);
+        }
+
+        // Assert
+        assertTrue(afterFirstFailure < 10.0, "limit should shrink, was " + afterFirstFailure);
+        assertEquals(2.0, gauge("entbridge.admission.limit", "submit"));
+        assertEquals(0.0, gauge("entbridge.admission.in_flight", "submit"));
+    }
+
+    @Test
+    void preHandle_ShouldPassThrough_WhenHandlerIsNotControlledOrControlIsDisabled() throws Exception {
+        // Arrange
+        AdmissionControlInterceptor disabled = interceptor(false, 10, group("submit", 1, 1, 1, 0));
+        AdmissionControlInterceptor enabled = interceptor(true, 10, group("submit", 1, 1, 1, 0));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertTrue(disabled.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                    handler("submit")));
+            assertTrue(enabled.preHandle(request, new MockHttpServletResponse(), handler("plain")));
+            assertTrue(enabled.preHandle(request, new MockHttpServletResponse(), new Object()));
+        }
+        enabled.afterCompletion(request, new MockHttpServletResponse(), handler("plain"), null);
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+
+    // Один «насыщенный» поток ответов: limit запросов одновременно, затем все завершаются со статусом status.
+    private static void window(AdmissionControlInterceptor interceptor, int requests, int status) throws Exception {
+        List<MockHttpServletRequest> inFlight = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler("submit")));
+            inFlight.add(request);
+        }
+        for (MockHttpServletRequest request : inFlight) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            response.setStatus(status);
+            interceptor.afterCompletion(request, response, handler("submit"), null);
+        }
+    }
+
+    private AdmissionControlInterceptor interceptor(boolean enabled, long maxWaitMs, String[]... groups) {
+        MockEnvironment environment = new MockEnvironment();
+        for (String[] group : groups) {
+            String prefix = "app.admission." + group[0] + ".";
+            environment.setProperty(prefix + "initial-limit", group[1]);
+            environment.setProperty(prefix + "min-limit", group[2]);
+            environment.setProperty(prefix + "max-limit", group[3]);
+            environment.setProperty(prefix + "queue-size", group[4]);
+        }
+        return new AdmissionControlInterceptor(environment, meterRegistry, enabled, maxWaitMs, 7);
+    }
+
+    private static String[] group(String name, int initialLimit, int minLimit, int maxLimit, int queueSize) {
+        return new String[] { name, Integer.toString(initialLimit), Integer.toString(minLimit),
+                Integer.toString(maxLimit), Integer.toString(queueSize) };
+    }
+
+    private static HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Handlers(), method);
+    }
+
+    private double count(String group, String outcome) {
+        var counter = meterRegistry.find("entbridge.admission.requests").tags("group", group, "outcome", outcome)
+                .counter();
+        return counter == null ? 0.0 : counter.count();
+    }
+
+    private double gauge(String name, String group) {
+        return meterRegistry.get(name).tag("group", group).gauge().value();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+
+    static class Handlers {
+        @AdmissionControlled("submit")
+        public void submit() {
+        }
+
+        @AdmissionControlled("admin")
+        public void admin() {
+        }
+
+        public void plain() {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.entbridge.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.annotation.UserConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+            .withConfiguration(UserConfigurations.of(ExecutorConfig.class));
+
+    @Test
+    void applicationTaskExecutor_ShouldKeepBootDefaults_AndHonourTaskExecutionProperties() {
+        contextRunner
+                .withPropertyValues("spring.task.execution.thread-name-prefix=app-task-",
+                        "spring.task.execution.pool.core-size=3")
+                .run(context -> {
+                    // Arrange
+                    ThreadPoolTaskExecutor executor = context.getBean(
+                            TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                            ThreadPoolTaskExecutor.class);
+
+                    // Assert: тот же бин под именем для @Async, настройки spring.task.execution.* применены
+                    assertSame(executor,
+                            context.getBean(AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME));
+                    assertEquals("app-task-", executor.getThreadNamePrefix());
+                    assertEquals(3, executor.getCorePoolSize());
+                    assertNotSame(executor, context.getBean("gradingExecutor"));
+                });
+    }
+
+    @Test
+    void gradingExecutor_ShouldUseConfiguredPoolSize() {
+        contextRunner
+                .withPropertyValues("app.grading.pool-size=3", "app.grading.queue-capacity=7")
+                .run(context -> {
+                    // Arrange
+                    ThreadPoolTaskExecutor executor = context.getBean("gradingExecutor", ThreadPoolTaskExecutor.class);
+
+                    // Assert
+                    assertEquals(3, executor.getCorePoolSize());
+                    assertEquals(3, executor.getMaxPoolSize());
+                    assertEquals(7, executor.getQueueCapacity());
+                    assertEquals("grading-", executor.getThreadNamePrefix());
+                });
+    }
+}
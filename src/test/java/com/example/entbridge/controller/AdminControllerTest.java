@@ -0,0 +1,92 @@
+package com.example.entbridge.controller;
+
+import com.example.entbridge.mapper.SubjectMapper;
+import com.example.entbridge.repository.ResultExportRepository;
+import com.example.entbridge.repository.ResultExportRepository.ResultRow;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.service.AdminService;
+import com.example.entbridge.service.BulkGradingService;
+import com.example.entbridge.service.ItemStatsService;
+import com.example.entbridge.service.QuestionImportService;
+import com.example.entbridge.service.ResultExportService;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminControllerTest {
+    private static final long ASYNC_TIMEOUT_MS = 100;
+    private static final int ROWS = 4;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // Каждая строка читается 50 мс: вся выгрузка заметно дольше общего async-таймаута
+        ResultExportRepository repository = mock(ResultExportRepository.class);
+        doAnswer(invocation -> {
+            Consumer<ResultRow> consumer = invocation.getArgument(5);
+            for (int i = 1; i <= ROWS; i++) {
+                Thread.sleep(50);
+                consumer.accept(new ResultRow(i, LocalDateTime.of(2026, 5, 20, 14, 30), 3, "ivan", "Иван",
+                        "ivan@example.com", "math", "Математика", i, 20, 20, i));
+            }
+            return null;
+        }).when(repository).forEach(any(), any(), any(), any(), anyInt(), any());
+        ResultExportService exportService = new ResultExportService(mock(SubjectRepository.class), repository,
+                mock(PlatformTransactionManager.class), 100, 10, 2, 30);
+        AdminController controller = new AdminController(mock(AdminService.class), mock(SubjectMapper.class),
+                mock(ItemStatsService.class), mock(BulkGradingService.class), mock(QuestionImportService.class),
+                exportService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setAsyncRequestTimeout(ASYNC_TIMEOUT_MS).build();
+    }
+
+    @Test
+    void exportResults_ShouldStreamWholeCsv_WhenExportOutlastsAsyncTimeout() throws Exception {
+        // Act
+        long started = System.nanoTime();
+        MvcResult result = mockMvc.perform(get("/api/v1/admin/results/export").param("format", "csv"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andReturn();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        // Assert
+        assertTrue(elapsedMs > ASYNC_TIMEOUT_MS, "export took " + elapsedMs + " ms");
+        String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(ROWS + 1, lines.length);
+        assertTrue(lines[ROWS].startsWith(ROWS + ","));
+        assertTrue(result.getResponse().getContentType().startsWith("text/csv"));
+    }
+
+    @Test
+    void exportResults_ShouldWriteXlsxAfterReadingAllRows_WhenExportOutlastsAsyncTimeout() throws Exception {
+        // Act: XLSX пишется только после чтения всех строк — именно он раньше упирался в 503 по таймауту
+        MvcResult result = mockMvc.perform(get("/api/v1/admin/results/export").param("format", "xlsx"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        try (XSSFWorkbook workbook = new XSSFWorkbook(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertEquals(ROWS, workbook.getSheetAt(0).getLastRowNum());
+        }
+        assertTrue(result.getResponse().getHeader("Content-Disposition").endsWith(".xlsx\""));
+    }
+}
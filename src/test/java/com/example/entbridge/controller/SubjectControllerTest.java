@@ -0,0 +1,118 @@
+package com.example.entbridge.controller;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.dto.SubjectDto;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.mapper.SubjectMapper;
+import com.example.entbridge.mapper.TestResultMapper;
+import com.example.entbridge.mapper.UserMapper;
+import com.example.entbridge.mapper.VideoLessonMapper;
+import com.example.entbridge.repository.AuditLogRepository;
+import com.example.entbridge.repository.OptionRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.repository.TestResultRepository;
+import com.example.entbridge.repository.UserRepository;
+import com.example.entbridge.repository.VideoLessonRepository;
+import com.example.entbridge.service.AdminService;
+import com.example.entbridge.service.AnswerKeyCache;
+import com.example.entbridge.service.CatalogVersions;
+import com.example.entbridge.service.HomeworkService;
+import com.example.entbridge.service.QuestionBankWriter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SubjectControllerTest {
+
+    private SubjectRepository subjectRepository;
+    private CatalogVersions catalogVersions;
+    private SubjectController subjectController;
+    private AdminService adminService;
+
+    @BeforeEach
+    void setUp() {
+        subjectRepository = mock(SubjectRepository.class);
+        SubjectMapper mapper = mock(SubjectMapper.class);
+        catalogVersions = new CatalogVersions();
+        subjectController = new SubjectController(subjectRepository, mapper, catalogVersions);
+        adminService = new AdminService(mock(UserRepository.class), mock(TestResultRepository.class),
+                subjectRepository, mock(QuestionRepository.class), mock(OptionRepository.class),
+                mock(UserMapper.class), mock(TestResultMapper.class), mock(HomeworkService.class),
+                mock(AuditLogRepository.class), mock(VideoLessonRepository.class), mock(VideoLessonMapper.class),
+                mock(AnswerKeyCache.class), catalogVersions, mock(QuestionBankWriter.class),
+                mock(EntityManager.class), 500);
+        when(subjectRepository.findAll(any(Sort.class))).thenReturn(List.of(new Subject()));
+        when(mapper.toDto(any())).thenReturn(mock(SubjectDto.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void list_ShouldReturnNotModified_WhenIfNoneMatchMatchesEtag() {
+        // Arrange
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        subjectController.list(new ServletWebRequest(get(null), first));
+        String etag = first.getHeader("ETag");
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        // Act
+        List<SubjectDto> body = subjectController.list(new ServletWebRequest(get(etag), second));
+
+        // Assert
+        assertNotNull(etag);
+        assertNull(body);
+        assertEquals(304, second.getStatus());
+        verify(subjectRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void list_ShouldReturnFreshBody_AfterAdminCreatesSubject() {
+        // Arrange
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        subjectController.list(new ServletWebRequest(get(null), first));
+        String etag = first.getHeader("ETag");
+        when(subjectRepository.save(any(Subject.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act: запись в транзакции, затем коммит
+        TransactionSynchronizationManager.initSynchronization();
+        adminService.createSubject(1L, new AdminDtos.CreateSubjectRequest("bio", "Биология", null, false,
+                null, null, null));
+        String etagBeforeCommit = catalogVersions.etag(CatalogVersions.SUBJECTS);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        List<SubjectDto> body = subjectController.list(new ServletWebRequest(get(etag), second));
+
+        // Assert
+        assertNotEquals(etag, etagBeforeCommit);
+        assertNotEquals(etagBeforeCommit, second.getHeader("ETag"));
+        assertNotNull(body);
+        assertEquals(200, second.getStatus());
+    }
+
+    private static MockHttpServletRequest get(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/subjects");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.entbridge.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BatchUpsertTest {
+    private static final String UPDATE = "UPDATE t SET v = v + ? WHERE id = ?";
+    private static final String INSERT = "INSERT INTO t (id, v) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final Function<Long, Object[]> ARGS = id -> new Object[] { id };
+
+    @Test
+    void upsert_ShouldGiveUpAfterMaxAttempts_WhenRowNeverAppears() {
+        // Arrange: INSERT всё время упирается в конфликт, а UPDATE строку не находит
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(eq(UPDATE), any(Object[].class))).thenReturn(0);
+        when(jdbcTemplate.update(eq(INSERT), any(Object[].class))).thenReturn(0);
+
+        // Act
+        boolean written = BatchUpsert.upsert(jdbcTemplate, 1L, UPDATE, ARGS, INSERT, ARGS);
+
+        // Assert: цикл ограничен, а не крутится бесконечно
+        assertFalse(written);
+        verify(jdbcTemplate, times(BatchUpsert.MAX_ATTEMPTS)).update(eq(INSERT), any(Object[].class));
+        verify(jdbcTemplate, times(BatchUpsert.MAX_ATTEMPTS - 1)).update(eq(UPDATE), any(Object[].class));
+    }
+
+    @Test
+    void apply_ShouldRetryUpdate_WhenConcurrentInsertWonTheRace() {
+        // Arrange: строки 1 нет, её INSERT проигрывает параллельному, повторный UPDATE её находит
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(eq(UPDATE), anyList())).thenReturn(new int[] { 0, 1 });
+        when(jdbcTemplate.update(eq(INSERT), any(Object[].class))).thenReturn(0);
+        when(jdbcTemplate.update(eq(UPDATE), any(Object[].class))).thenReturn(1);
+
+        // Act
+        List<Long> skipped = BatchUpsert.apply(jdbcTemplate, List.of(1L, 2L), UPDATE, ARGS, INSERT, ARGS);
+
+        // Assert
+        assertTrue(skipped.isEmpty());
+        verify(jdbcTemplate, times(1)).update(eq(INSERT), any(Object[].class));
+        verify(jdbcTemplate, times(1)).update(eq(UPDATE), any(Object[].class));
+    }
+}
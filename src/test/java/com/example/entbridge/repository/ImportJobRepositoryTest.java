@@ -0,0 +1,165 @@
+package com.example.entbridge.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportJobRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ImportJobRepository importJobRepository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import_jobs;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE subjects (id integer PRIMARY KEY, code varchar(100) NOT NULL)");
+        jdbcTemplate.execute("""
+                CREATE TABLE import_jobs (
+                  id varchar(36) PRIMARY KEY,
+                  admin_id integer,
+                  subject_id integer NOT NULL,
+                  file_name varchar(255),
+                  file_path text,
+                  status varchar(16) NOT NULL,
+                  mode varchar(8) NOT NULL DEFAULT 'SKIP',
+                  next_row integer NOT NULL DEFAULT 0,
+                  rows_processed integer NOT NULL DEFAULT 0,
+                  created integer NOT NULL DEFAULT 0,
+                  skipped integer NOT NULL DEFAULT 0,
+                  duplicates integer NOT NULL DEFAULT 0,
+                  errors text,
+                  message text,
+                  created_at timestamp NOT NULL DEFAULT now(),
+                  updated_at timestamp NOT NULL DEFAULT now(),
+                  finished_at timestamp,
+                  owner varchar(64),
+                  heartbeat_at timestamp,
+                  cancel_requested boolean NOT NULL DEFAULT false
+                )""");
+        jdbcTemplate.update("INSERT INTO subjects (id, code) VALUES (1, 'math')");
+        importJobRepository = new ImportJobRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void transition_ShouldKeepCommittedProgress_WhenFailedJobIsResumed() {
+        // Arrange
+        importJobRepository.insert("job-1", 7L, 1, "bank.xlsx", "/tmp/job-1.upload", "UPDATE", "node-a");
+        importJobRepository.start("job-1", "node-a");
+        importJobRepository.updateProgress("job-1", "node-a", 501, 500, 470, 20, 10, "Строка 12: ошибка");
+        importJobRepository.finish("job-1", "node-a", ImportJobRepository.FAILED, "Импорт прерван");
+
+        // Act
+        boolean resumed = importJobRepository.requeue("job-1",
+                List.of(ImportJobRepository.FAILED, ImportJobRepository.CANCELLED), "node-b");
+
+        // Assert
+        ImportJobRepository.ImportJob job = importJobRepository.find("job-1").orElseThrow();
+        assertTrue(resumed);
+        assertEquals(ImportJobRepository.QUEUED, job.status());
+        assertEquals("math", job.subjectCode());
+        assertEquals(501, job.nextRow());
+        assertEquals("UPDATE", job.mode());
+        assertEquals(470, job.created());
+        assertEquals(20, job.skipped());
+        assertEquals(10, job.duplicates());
+        assertNull(job.finishedAt());
+        assertNull(job.message());
+        assertFalse(importJobRepository.start("job-1", "node-a"));
+        assertTrue(importJobRepository.start("job-1", "node-b"));
+    }
+
+    @Test
+    void transition_ShouldRefuse_WhenJobIsNotInExpectedStatus() {
+        // Arrange
+        importJobRepository.insert("job-2", null, 1, "bank.xlsx", "/tmp/job-2.upload", "SKIP", "node-a");
+        importJobRepository.start("job-2", "node-a");
+        importJobRepository.finish("job-2", "node-a", ImportJobRepository.COMPLETED, null);
+
+        // Act
+        boolean cancelled = importJobRepository.transition("job-2", List.of(ImportJobRepository.QUEUED),
+                ImportJobRepository.CANCELLED, "Импорт отменён");
+        boolean restarted = importJobRepository.transition("job-2", List.of(ImportJobRepository.QUEUED),
+                ImportJobRepository.RUNNING, null);
+
+        // Assert
+        ImportJobRepository.ImportJob job = importJobRepository.find("job-2").orElseThrow();
+        assertFalse(cancelled);
+        assertFalse(restarted);
+        assertEquals(ImportJobRepository.COMPLETED, job.status());
+        assertTrue(job.isFinished());
+        assertEquals(1, importJobRepository.findFilesFinishedBefore(Instant.now().plusSeconds(1)).size());
+    }
+
+    @Test
+    void failStale_ShouldKeepJobsWithFreshHeartbeat_WhenAnotherNodeStarts() {
+        // Arrange
+        importJobRepository.insert("live", null, 1, "a.xlsx", "/tmp/live.upload", "SKIP", "node-a");
+        importJobRepository.insert("dead", null, 1, "b.xlsx", "/tmp/dead.upload", "SKIP", "node-b");
+        importJobRepository.start("live", "node-a");
+        importJobRepository.start("dead", "node-b");
+        jdbcTemplate.update("UPDATE import_jobs SET heartbeat_at = ? WHERE id = 'dead'",
+                Timestamp.from(Instant.now().minusSeconds(600)));
+
+        // Act
+        int failed = importJobRepository.failStale(Instant.now().minusSeconds(60), "Импорт прерван");
+
+        // Assert
+        assertEquals(1, failed);
+        assertEquals(ImportJobRepository.RUNNING, importJobRepository.find("live").orElseThrow().status());
+        assertEquals(ImportJobRepository.FAILED, importJobRepository.find("dead").orElseThrow().status());
+    }
+
+    @Test
+    void updateProgress_ShouldRefuse_WhenJobWasTakenOverByAnotherNode() {
+        // Arrange
+        importJobRepository.insert("job-3", null, 1, "bank.xlsx", "/tmp/job-3.upload", "SKIP", "node-a");
+        importJobRepository.start("job-3", "node-a");
+        importJobRepository.updateProgress("job-3", "node-a", 501, 500, 500, 0, 0, null);
+        importJobRepository.failStale(Instant.now().plusSeconds(1), "Импорт прерван");
+        importJobRepository.requeue("job-3", List.of(ImportJobRepository.FAILED), "node-b");
+        importJobRepository.start("job-3", "node-b");
+
+        // Act
+        boolean staleRunner = importJobRepository.updateProgress("job-3", "node-a", 1001, 1000, 1000, 0, 0, null);
+        boolean staleFinish = importJobRepository.finish("job-3", "node-a", ImportJobRepository.COMPLETED, null);
+        boolean owner = importJobRepository.updateProgress("job-3", "node-b", 1001, 1000, 1000, 0, 0, null);
+
+        // Assert
+        assertFalse(staleRunner);
+        assertFalse(staleFinish);
+        assertTrue(owner);
+        assertEquals(ImportJobRepository.RUNNING, importJobRepository.find("job-3").orElseThrow().status());
+    }
+
+    @Test
+    void requestCancel_ShouldBeVisibleToOwner_WhenJobRunsOnAnotherNode() {
+        // Arrange
+        importJobRepository.insert("job-4", null, 1, "bank.xlsx", "/tmp/job-4.upload", "SKIP", "node-a");
+        boolean queuedCancel = importJobRepository.requestCancel("job-4");
+        importJobRepository.start("job-4", "node-a");
+
+        // Act
+        boolean requested = importJobRepository.requestCancel("job-4");
+
+        // Assert
+        assertFalse(queuedCancel);
+        assertTrue(requested);
+        assertEquals(List.of("job-4"), importJobRepository.findCancelRequested("node-a"));
+        assertTrue(importJobRepository.findCancelRequested("node-b").isEmpty());
+    }
+}
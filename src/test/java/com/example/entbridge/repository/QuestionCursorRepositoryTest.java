@@ -0,0 +1,74 @@
+package com.example.entbridge.repository;
+
+import com.example.entbridge.dto.OptionDto;
+import com.example.entbridge.dto.QuestionDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionCursorRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private QuestionCursorRepository questionCursorRepository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:question_cursor;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE subjects (id integer PRIMARY KEY, code varchar(100) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE questions (id integer PRIMARY KEY, subject_id integer NOT NULL, text text)");
+        jdbcTemplate.execute("CREATE TABLE options (id integer PRIMARY KEY, question_id integer NOT NULL, text text)");
+        jdbcTemplate.update("INSERT INTO subjects (id, code) VALUES (1, 'math'), (2, 'physics'), (3, 'history')");
+        questionCursorRepository = new QuestionCursorRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void forEachBySubject_ShouldEmitEachQuestionOnceWithOptionsInIdOrder_AcrossFetchBatches() {
+        // Arrange: вставка не по порядку id; вопрос 20 без вариантов; вопрос 15 — другого предмета
+        jdbcTemplate.update("INSERT INTO questions (id, subject_id, text) VALUES (30, 1, 'q30'), (10, 1, 'q10'), "
+                + "(20, 1, 'q20'), (15, 2, 'p15')");
+        jdbcTemplate.update("INSERT INTO options (id, question_id, text) VALUES (302, 30, 'b'), (101, 10, 'a'), "
+                + "(301, 30, 'a'), (102, 10, 'b'), (151, 15, 'x')");
+        List<QuestionDto> emitted = new ArrayList<>();
+
+        // Act: fetchSize 1 — граница вопроса совпадает с границей каждой порции курсора
+        questionCursorRepository.forEachBySubject("math", 1, emitted::add);
+
+        // Assert
+        assertEquals(List.of("10", "20", "30"), emitted.stream().map(QuestionDto::id).toList());
+        assertEquals(List.of("101", "102"), optionIds(emitted.get(0)));
+        assertEquals(List.of(), optionIds(emitted.get(1)));
+        assertEquals(List.of("301", "302"), optionIds(emitted.get(2)));
+        assertTrue(emitted.stream().allMatch(q -> "math".equals(q.subjectId())));
+    }
+
+    @Test
+    void forEachBySubject_ShouldEmitNothing_WhenSubjectHasNoQuestions() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO questions (id, subject_id, text) VALUES (1, 1, 'q1')");
+        List<QuestionDto> emitted = new ArrayList<>();
+
+        // Act
+        questionCursorRepository.forEachBySubject("history", 100, emitted::add);
+
+        // Assert
+        assertTrue(emitted.isEmpty());
+    }
+
+    private static List<String> optionIds(QuestionDto question) {
+        return question.options().stream().map(OptionDto::id).toList();
+    }
+}
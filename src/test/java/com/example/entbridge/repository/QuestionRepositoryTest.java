@@ -0,0 +1,73 @@
+package com.example.entbridge.repository;
+
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.entity.Subject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop" })
+class QuestionRepositoryTest {
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void findIdsBySubjectAfter_ShouldWalkAllQuestionsOnce_AndEndWithEmptyPage() {
+        // Arrange: 5 вопросов по математике вперемешку с вопросами по физике
+        Subject math = subject("math");
+        Subject physics = subject("physics");
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(question(math));
+            question(physics);
+        }
+        entityManager.flush();
+
+        // Act: страницы по 2, курсор — последний id страницы
+        List<List<Long>> pages = new ArrayList<>();
+        long cursor = 0L;
+        List<Long> page;
+        do {
+            page = questionRepository.findIdsBySubjectAfter("math", cursor, PageRequest.of(0, 2));
+            pages.add(page);
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1);
+            }
+        } while (page.size() == 2);
+
+        // Assert
+        assertEquals(List.of(2, 2, 1), pages.stream().map(List::size).toList());
+        assertEquals(expected, pages.stream().flatMap(List::stream).toList());
+        assertTrue(questionRepository.findIdsBySubjectAfter("math", cursor, PageRequest.of(0, 2)).isEmpty());
+    }
+
+    private Subject subject(String code) {
+        Subject subject = new Subject();
+        subject.setCode(code);
+        subject.setTitle(code);
+        entityManager.persist(subject);
+        return subject;
+    }
+
+    private long question(Subject subject) {
+        Question question = new Question();
+        question.setText("Вопрос");
+        question.setPoints(1);
+        question.setSubject(subject);
+        entityManager.persist(question);
+        return question.getId();
+    }
+}
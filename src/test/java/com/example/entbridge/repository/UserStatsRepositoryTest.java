@@ -0,0 +1,127 @@
+package com.example.entbridge.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserStatsRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private UserStatsRepository userStatsRepository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:user_stats;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE users (
+                  id integer PRIMARY KEY,
+                  average_score double precision DEFAULT 0,
+                  total_score integer DEFAULT 0,
+                  attempts_count integer NOT NULL DEFAULT 0,
+                  score_sum bigint NOT NULL DEFAULT 0
+                )""");
+        jdbcTemplate.execute("""
+                CREATE TABLE user_subject_stats (
+                  user_id integer NOT NULL,
+                  subject_id integer NOT NULL,
+                  attempts integer NOT NULL DEFAULT 0,
+                  score_sum bigint NOT NULL DEFAULT 0,
+                  best_score integer NOT NULL DEFAULT 0,
+                  last_score integer NOT NULL DEFAULT 0,
+                  last_completed_at timestamp,
+                  PRIMARY KEY (user_id, subject_id)
+                )""");
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (1)");
+        userStatsRepository = new UserStatsRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void recordAttempt_ShouldNotLoseUpdates_WhenSubmitsRace() throws Exception {
+        // Arrange
+        int threads = 8;
+        int attemptsPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    int score = (thread * attemptsPerThread + i) % 40;
+                    userStatsRepository.recordAttempt(1L, 7L, score, base.plusSeconds(thread * attemptsPerThread + i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        long expectedSum = 0;
+        for (int n = 0; n < threads * attemptsPerThread; n++) {
+            expectedSum += n % 40;
+        }
+        Map<String, Object> user = jdbcTemplate.queryForMap("SELECT * FROM users WHERE id = 1");
+        assertEquals(threads * attemptsPerThread, ((Number) user.get("ATTEMPTS_COUNT")).intValue());
+        assertEquals(expectedSum, ((Number) user.get("SCORE_SUM")).longValue());
+        assertEquals(expectedSum, ((Number) user.get("TOTAL_SCORE")).longValue());
+        assertEquals((double) expectedSum / (threads * attemptsPerThread),
+                ((Number) user.get("AVERAGE_SCORE")).doubleValue(), 1e-9);
+
+        Map<String, Object> subject = jdbcTemplate.queryForMap("SELECT * FROM user_subject_stats");
+        assertEquals(threads * attemptsPerThread, ((Number) subject.get("ATTEMPTS")).intValue());
+        assertEquals(expectedSum, ((Number) subject.get("SCORE_SUM")).longValue());
+        assertEquals(39, ((Number) subject.get("BEST_SCORE")).intValue());
+        assertEquals((threads * attemptsPerThread - 1) % 40, ((Number) subject.get("LAST_SCORE")).intValue());
+    }
+
+    @Test
+    void recordAttemptsBatch_ShouldApplyMergedDeltas() {
+        // Arrange
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        UserStatsRepository.AttemptDelta first = new UserStatsRepository.AttemptDelta(1L, 3L, 1, 10, 10, 10, base);
+        UserStatsRepository.AttemptDelta second = new UserStatsRepository.AttemptDelta(1L, 3L, 1, 4, 4, 4,
+                base.plusSeconds(60));
+        UserStatsRepository.AttemptDelta other = new UserStatsRepository.AttemptDelta(1L, 5L, 1, 7, 7, 7, base);
+
+        // Act
+        userStatsRepository.recordAttemptsBatch(List.of(first.merge(second), other));
+
+        // Assert
+        Map<String, Object> user = jdbcTemplate.queryForMap("SELECT * FROM users WHERE id = 1");
+        assertEquals(3, ((Number) user.get("ATTEMPTS_COUNT")).intValue());
+        assertEquals(21L, ((Number) user.get("SCORE_SUM")).longValue());
+        assertEquals(7.0, ((Number) user.get("AVERAGE_SCORE")).doubleValue(), 1e-9);
+        Map<String, Object> subject = jdbcTemplate.queryForMap("SELECT * FROM user_subject_stats WHERE subject_id = 3");
+        assertEquals(2, ((Number) subject.get("ATTEMPTS")).intValue());
+        assertEquals(10, ((Number) subject.get("BEST_SCORE")).intValue());
+        assertEquals(4, ((Number) subject.get("LAST_SCORE")).intValue());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.QuestionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerEncodingTest {
+
+    @Test
+    void decode_ShouldRestoreEncodedAnswers() {
+        // Arrange
+        long[] questionIds = { 1500, 1502, 1499, 90000 };
+        long[][] selected = { { 15003 }, {}, { 14990, 14992 }, { 900001 } };
+        boolean[] correct = { true, false, false, true };
+
+        // Act
+        byte[] encoded = AnswerEncoding.encode(questionIds, selected, correct, questionIds.length);
+        AnswerEncoding.Decoded decoded = AnswerEncoding.decode(encoded);
+
+        // Assert
+        assertEquals(4, decoded.size());
+        for (int i = 0; i < questionIds.length; i++) {
+            assertEquals(questionIds[i], decoded.questionId(i));
+            assertArrayEquals(selected[i], decoded.selectedOptionIds(i));
+            assertEquals(correct[i], decoded.isCorrect(i));
+        }
+        assertFalse(decoded.isAnswered(1));
+    }
+
+    @Test
+    void decode_ShouldKeepOptionIds_WhenKeyOptionsChangeLater() {
+        // Arrange: ответ записан, пока у вопроса 1 были варианты 10 и 11
+        AnswerKey before = key(new long[] { 10, 11 });
+        byte[] encoded = AnswerEncoding.encode(new long[] { 1 },
+                new long[][] { before.selectedOptionIds(0, 0b10) }, new boolean[] { true }, 1);
+
+        // Act: вариант 9 добавлен перед ними — индексы сдвинулись, id нет
+        AnswerKey after = key(new long[] { 9, 10, 11 });
+        long[] selected = AnswerEncoding.decode(encoded).selectedOptionIds(0);
+
+        // Assert
+        assertArrayEquals(new long[] { 11 }, selected);
+        assertEquals(2, after.optionIndex(0, selected[0]));
+    }
+
+    @Test
+    void decode_ShouldReturnEmpty_WhenNoData() {
+        // Act & Assert
+        assertEquals(0, AnswerEncoding.decode(null).size());
+    }
+
+    private static AnswerKey key(long[] optionIds) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long optionId : optionIds) {
+            rows.add(new QuestionRepository.AnswerKeyRow() {
+                @Override
+                public Long getQuestionId() {
+                    return 1L;
+                }
+
+                @Override
+                public Integer getPoints() {
+                    return 1;
+                }
+
+                @Override
+                public Long getOptionId() {
+                    return optionId;
+                }
+
+                @Override
+                public Boolean getCorrect() {
+                    return optionId == 11;
+                }
+            });
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.AnswerKeyVersionRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnswerKeyCacheTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private AnswerKeyVersionRepository versionRepository;
+    private QuestionRepository questionRepository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:answer_keys;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE subjects (
+                  id integer PRIMARY KEY,
+                  code varchar(64) NOT NULL UNIQUE,
+                  answer_key_version bigint NOT NULL DEFAULT 0
+                )""");
+        jdbcTemplate.update("INSERT INTO subjects (id, code) VALUES (1, 'math')");
+        versionRepository = new AnswerKeyVersionRepository(jdbcTemplate);
+        questionRepository = mock(QuestionRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void get_ShouldReloadKey_WhenAnotherNodeRewroteCorrectOption() {
+        // Arrange: два узла с общей базой; узел A уже проверяет по ключу, где верен вариант 10
+        AnswerKeyCache nodeA = new AnswerKeyCache(questionRepository, versionRepository, 0);
+        AnswerKeyCache nodeB = new AnswerKeyCache(questionRepository, versionRepository, 0);
+        when(questionRepository.findAnswerKeyRows("math"))
+                .thenReturn(List.of(row(1, 10, true), row(1, 11, false)))
+                .thenReturn(List.of(row(1, 10, false), row(1, 11, true)));
+        AnswerKey before = nodeA.get("math");
+
+        // Act: импорт в режиме UPDATE на узле B переписал is_correct
+        nodeB.invalidateAfterCommit("math");
+        AnswerKey after = nodeA.get("math");
+
+        // Assert
+        assertEquals(10L, before.correctOptionId(0));
+        assertEquals(11L, after.correctOptionId(0));
+        assertEquals(1L, after.version());
+    }
+
+    @Test
+    void get_ShouldNotRereadRows_WhileVersionIsUnchanged() {
+        // Arrange
+        AnswerKeyCache cache = new AnswerKeyCache(questionRepository, versionRepository, 0);
+        when(questionRepository.findAnswerKeyRows("math")).thenReturn(List.of(row(1, 10, true)));
+
+        // Act
+        AnswerKey first = cache.get("math");
+        AnswerKey second = cache.get("math");
+
+        // Assert: версия сверяется каждый раз, а строки ключа читаются один раз
+        assertSame(first, second);
+        verify(questionRepository, times(1)).findAnswerKeyRows("math");
+    }
+
+    @Test
+    void get_ShouldServeCachedKey_OnlyUntilCheckIntervalPasses() throws InterruptedException {
+        // Arrange
+        AnswerKeyCache nodeA = new AnswerKeyCache(questionRepository, versionRepository, 100);
+        when(questionRepository.findAnswerKeyRows("math"))
+                .thenReturn(List.of(row(1, 10, true)))
+                .thenReturn(List.of(row(1, 11, true)));
+        AnswerKey before = nodeA.get("math");
+        versionRepository.bump("math");
+
+        // Act
+        AnswerKey withinInterval = nodeA.get("math");
+        Thread.sleep(150);
+        AnswerKey afterInterval = nodeA.get("math");
+
+        // Assert
+        assertSame(before, withinInterval);
+        assertEquals(11L, afterInterval.correctOptionId(0));
+    }
+
+    private static QuestionRepository.AnswerKeyRow row(long questionId, long optionId, boolean correct) {
+        return new QuestionRepository.AnswerKeyRow() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+
+            @Override
+            public Integer getPoints() {
+                return 1;
+            }
+
+            @Override
+            public Long getOptionId() {
+                return optionId;
+            }
+
+            @Override
+            public Boolean getCorrect() {
+                return correct;
+            }
+        };
+    }
+}
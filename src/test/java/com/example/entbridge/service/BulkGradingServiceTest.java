@@ -0,0 +1,229 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.entity.User;
+import com.example.entbridge.repository.BulkGradedSheetRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkGradingServiceTest {
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void parse_ShouldReadStudentSubjectAndMultiOptionAnswers() {
+        // Act
+        BulkGradingService.Row row = BulkGradingService.parse(2, "\"ivan@example.com\",math,10:100;11:103|104;12:");
+
+        // Assert
+        assertNull(row.error);
+        assertEquals("ivan@example.com", row.student);
+        assertEquals("math", row.subjectCode);
+        assertEquals(List.of(
+                new TestDtos.Answer("10", null, List.of("100")),
+                new TestDtos.Answer("11", null, List.of("103", "104")),
+                new TestDtos.Answer("12", null, List.of())), row.answers);
+    }
+
+    @Test
+    void parse_ShouldReportError_WhenAnswerHasNoQuestionId() {
+        // Act
+        BulkGradingService.Row row = BulkGradingService.parse(5, "42,math,10:100;bad");
+
+        // Assert
+        assertNotNull(row.error);
+        assertEquals(5, row.line);
+    }
+
+    @Test
+    void isHeader_ShouldMatchExactColumns_AndNotSkipStudentLogins() {
+        // Act & Assert
+        assertTrue(BulkGradingService.isHeader("student,subject,answers"));
+        assertTrue(BulkGradingService.isHeader("\"Student\", SUBJECT ,answers"));
+        assertFalse(BulkGradingService.isHeader("student1,math,10:100"));
+        assertFalse(BulkGradingService.isHeader("students@example.com,math,"));
+    }
+
+    @Test
+    void start_ShouldWriteOnlyMissingRows_WhenFileIsUploadedAgain() throws Exception {
+        // Arrange: вторая пачка первой загрузки падает при записи и откатывается вместе со своими строками
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        List<Long> recorded = new ArrayList<>();
+        BulkGradingService service = service(recorded, failOnce);
+        byte[] csv = "\uFEFFstudent,subject,answers\n1,math,1:10\n2,math,1:11\n3,math,1:10\n4,math,1:10\n"
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        AdminDtos.BulkGradingJobDto first = await(service, service.start(new MockMultipartFile("file", csv)));
+        AdminDtos.BulkGradingJobDto second = await(service, service.start(new MockMultipartFile("file", csv)));
+
+        // Assert
+        assertEquals(4, first.rowsRead());
+        assertEquals(2, first.written());
+        assertEquals(2, first.failed());
+        assertEquals(2, second.written());
+        assertEquals(2, second.duplicates());
+        assertEquals(0, second.failed());
+        assertEquals(List.of(1L, 2L, 3L, 4L), recorded.stream().sorted().toList());
+    }
+
+    @Test
+    void start_ShouldWriteSecondAttempt_WhenSameAnswersComeInAnotherFile() throws Exception {
+        // Arrange: тот же пробник и пустой бланк сдают повторно, а в одном файле два одинаковых бланка
+        List<Long> recorded = new ArrayList<>();
+        BulkGradingService service = service(recorded, new AtomicBoolean(false));
+        byte[] morning = "1,math,1:10\n2,math,\n2,math,\n".getBytes(StandardCharsets.UTF_8);
+        byte[] evening = "student,subject,answers\n1,math,1:10\n2,math,\n".getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        AdminDtos.BulkGradingJobDto first = await(service, service.start(new MockMultipartFile("file", morning)));
+        AdminDtos.BulkGradingJobDto second = await(service, service.start(new MockMultipartFile("file", evening)));
+
+        // Assert
+        assertEquals(3, first.written());
+        assertEquals(0, first.duplicates());
+        assertEquals(2, second.written());
+        assertEquals(0, second.duplicates());
+        assertEquals(List.of(1L, 1L, 2L, 2L, 2L), recorded.stream().sorted().toList());
+    }
+
+    @Test
+    void purgeGradedSheets_ShouldForgetRowsOlderThanRetention() {
+        // Arrange
+        BulkGradingService service = service(new ArrayList<>(), new AtomicBoolean(false));
+        jdbcTemplate.update("INSERT INTO bulk_graded_sheets (file_hash, line_no, graded_at) VALUES (?, ?, ?)",
+                "old", 1, Timestamp.from(Instant.now().minus(Duration.ofDays(31))));
+        jdbcTemplate.update("INSERT INTO bulk_graded_sheets (file_hash, line_no, graded_at) VALUES (?, ?, ?)",
+                "recent", 1, Timestamp.from(Instant.now().minus(Duration.ofDays(1))));
+
+        // Act
+        service.purgeGradedSheets();
+
+        // Assert
+        assertEquals(List.of("recent"), jdbcTemplate.queryForList("SELECT file_hash FROM bulk_graded_sheets",
+                String.class));
+    }
+
+    // Сервис над H2: ученики — любые id, каждая строка проверяется на 1 балл; записанные userId копятся в recorded.
+    private BulkGradingService service(List<Long> recorded, AtomicBoolean failOnce) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bulk_grading;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE bulk_graded_sheets (
+                  file_hash varchar(64) NOT NULL,
+                  line_no bigint NOT NULL,
+                  graded_at timestamp NOT NULL,
+                  PRIMARY KEY (file_hash, line_no)
+                )""");
+        Subject subject = new Subject();
+        subject.setId(1L);
+        subject.setCode("math");
+        SubjectRepository subjectRepository = mock(SubjectRepository.class);
+        when(subjectRepository.findByCode("math")).thenReturn(Optional.of(subject));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>();
+            for (Object id : (Collection<?>) invocation.getArgument(0)) {
+                User user = new User();
+                user.setId((Long) id);
+                users.add(user);
+            }
+            return users;
+        });
+        AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+        when(answerKeyCache.get("math")).thenReturn(key());
+        TestService testService = mock(TestService.class);
+        when(testService.grade(eq(subject), any(), isNull(), anyList())).thenReturn(
+                new TestService.GradedAttempt(subject, 1, 1, 1, 1, List.of(), new byte[0]));
+        BatchResultRecorder recorder = mock(BatchResultRecorder.class);
+        doAnswer(invocation -> {
+            List<BatchResultRecorder.Entry> entries = invocation.getArgument(0);
+            if (entries.stream().anyMatch(e -> e.userId() == 3) && failOnce.getAndSet(false)) {
+                throw new IllegalStateException("db down");
+            }
+            entries.forEach(e -> recorded.add(e.userId()));
+            return null;
+        }).when(recorder).record(anyList());
+        return new BulkGradingService(subjectRepository, userRepository, answerKeyCache, testService, recorder,
+                new BulkGradedSheetRepository(jdbcTemplate), new DataSourceTransactionManager(dataSource),
+                executor(2), executor(1), 2, 100, 1, 30);
+    }
+
+    private ThreadPoolTaskExecutor executor(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.initialize();
+        executors.add(executor);
+        return executor;
+    }
+
+    private static AdminDtos.BulkGradingJobDto await(BulkGradingService service, AdminDtos.BulkGradingJobDto job)
+            throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            AdminDtos.BulkGradingJobDto status = service.status(job.jobId());
+            if (!BulkGradingService.RUNNING.equals(status.status())) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Bulk grading job did not finish");
+    }
+
+    private static AnswerKey key() {
+        return AnswerKey.build("math", 1L, List.of(new QuestionRepository.AnswerKeyRow() {
+            @Override
+            public Long getQuestionId() {
+                return 1L;
+            }
+
+            @Override
+            public Integer getPoints() {
+                return 1;
+            }
+
+            @Override
+            public Long getOptionId() {
+                return 10L;
+            }
+
+            @Override
+            public Boolean getCorrect() {
+                return true;
+            }
+        }));
+    }
+}
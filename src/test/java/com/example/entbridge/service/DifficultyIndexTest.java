@@ -0,0 +1,98 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.QuestionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DifficultyIndexTest {
+
+    @Test
+    void pick_ShouldPreferQuestionsNearAbility_AndNeverRepeat() {
+        // Arrange: вопрос 1 — лёгкий (90% верных), 2 — средний, 3 — трудный (10% верных)
+        AnswerKey key = key(3);
+        DifficultyIndex index = DifficultyIndex.build(key, new long[] { 1000, 1000, 1000 },
+                new long[] { 900, 500, 100 }, 0L);
+        BitSet used = new BitSet();
+        SplittableRandom random = new SplittableRandom(1L);
+
+        // Act
+        int hard = index.pick(2.2, used, random);
+        used.set(hard);
+        int next = index.pick(2.2, used, random);
+        used.set(next);
+        int last = index.pick(2.2, used, random);
+        used.set(last);
+
+        // Assert
+        assertEquals(3L, key.questionId(hard));
+        assertEquals(2L, key.questionId(next));
+        assertEquals(1L, key.questionId(last));
+        assertEquals(-1, index.pick(2.2, used, random));
+    }
+
+    @Test
+    void pick_ShouldFindLastUnusedQuestion_WhenWholeBankIsUnrated() {
+        // Arrange: без статистики все 1000 вопросов попадают в одну корзину, выдан каждый, кроме одного
+        int size = 1000;
+        DifficultyIndex index = DifficultyIndex.build(key(size), new long[size], new long[size], 0L);
+        BitSet used = new BitSet();
+        used.set(0, size);
+        used.clear(617);
+
+        // Act
+        int picked = index.pick(0.0, used, new SplittableRandom(1L));
+
+        // Assert
+        assertEquals(617, picked);
+        used.set(picked);
+        assertEquals(-1, index.pick(0.0, used, new SplittableRandom(1L)));
+    }
+
+    @Test
+    void updateAbility_ShouldMoveTowardsOutcome() {
+        // Act & Assert
+        assertTrue(PracticeService.updateAbility(0.0, 0.0, true, 0) > 0.0);
+        assertTrue(PracticeService.updateAbility(0.0, 0.0, false, 0) < 0.0);
+        // Верный ответ на очень лёгкий вопрос почти ничего не добавляет.
+        assertTrue(PracticeService.updateAbility(0.0, -4.0, true, 0) < 0.05);
+    }
+
+    private static AnswerKey key(int questions) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long q = 1; q <= questions; q++) {
+            rows.add(row(q, q * 10, true));
+            rows.add(row(q, q * 10 + 1, false));
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+
+    private static QuestionRepository.AnswerKeyRow row(long questionId, long optionId, boolean correct) {
+        return new QuestionRepository.AnswerKeyRow() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+
+            @Override
+            public Integer getPoints() {
+                return 1;
+            }
+
+            @Override
+            public Long getOptionId() {
+                return optionId;
+            }
+
+            @Override
+            public Boolean getCorrect() {
+                return correct;
+            }
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.ExamDraftRepository;
+import com.example.entbridge.repository.QuestionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DraftServiceTest {
+    private final ExamDraftRepository repository = mock(ExamDraftRepository.class);
+    private final AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+    private final ExamSession session = new ExamSession("s1", 7L, "math", 1L, new long[] { 1, 2, 3 },
+            Instant.now(), Instant.now().plusSeconds(3600));
+
+    @BeforeEach
+    void setUp() {
+        when(answerKeyCache.get("math")).thenReturn(key(3));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void save_ShouldCoalesceRepeatedAnswers_IntoOneFlushedRow() {
+        // Arrange
+        DraftService service = new DraftService(repository, answerKeyCache, 100, 24);
+
+        // Act
+        service.save(session, List.of(answer(1, 10)));
+        service.save(session, List.of(answer(1, 11), answer(2, 20)));
+        service.flush();
+        service.flush();
+
+        // Assert: один сброс, последняя маска по вопросу 1
+        ArgumentCaptor<List<ExamDraftRepository.DraftRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).saveBatch(rows.capture());
+        assertEquals(1, rows.getValue().size());
+        AnswerEncoding.Decoded decoded = AnswerEncoding.decode(rows.getValue().get(0).answers());
+        assertEquals(2, decoded.size());
+        assertEquals(1L, decoded.questionId(0));
+        assertArrayEquals(new long[] { 11 }, decoded.selectedOptionIds(0));
+    }
+
+    @Test
+    void save_ShouldRejectWholeBatch_WhenLimitReached() {
+        // Arrange
+        DraftService service = new DraftService(repository, answerKeyCache, 2, 24);
+        service.save(session, List.of(answer(1, 10)));
+
+        // Act
+        ApiException ex = assertThrows(ApiException.class,
+                () -> service.save(session, List.of(answer(2, 20), answer(3, 30))));
+
+        // Assert: ни один ответ из отклонённой пачки не попал в черновик, а перезапись уже сохранённого разрешена
+        assertEquals("DRAFT_LIMIT", ex.getError());
+        TestDtos.DraftDto draft = service.load(7L, "s1");
+        assertEquals(List.of("1"), draft.answers().stream().map(TestDtos.Answer::questionId).toList());
+        assertDoesNotThrow(() -> service.save(session, List.of(answer(1, 11), answer(2, 20))));
+    }
+
+    @Test
+    void save_ShouldRejectUnknownOption_InsteadOfStoringEmptyAnswer() {
+        // Arrange
+        DraftService service = new DraftService(repository, answerKeyCache, 100, 24);
+
+        // Act
+        ApiException ex = assertThrows(ApiException.class,
+                () -> service.save(session, List.of(answer(1, 10), answer(2, 999))));
+
+        // Assert
+        assertEquals("UNKNOWN_OPTION", ex.getError());
+        assertTrue(service.load(7L, "s1").answers().isEmpty());
+    }
+
+    @Test
+    void load_ShouldKeepRestoredDraft_SoNextSaveContinuesIt() {
+        // Arrange: черновик есть только в базе
+        byte[] stored = AnswerEncoding.encode(new long[] { 1 }, new long[][] { { 10 } }, new boolean[1], 1);
+        when(repository.find("s1", 7L))
+                .thenReturn(new ExamDraftRepository.DraftRow("s1", 7L, "math", stored, Instant.now()));
+        DraftService service = new DraftService(repository, answerKeyCache, 100, 24);
+
+        // Act
+        service.load(7L, "s1");
+        TestDtos.DraftDto saved = service.save(session, List.of(answer(2, 20)));
+
+        // Assert
+        assertEquals(List.of("1", "2"), saved.answers().stream().map(TestDtos.Answer::questionId).toList());
+        verify(repository, times(1)).find("s1", 7L);
+    }
+
+    @Test
+    void flush_ShouldRetryDraft_WhenSaveBatchFails() {
+        // Arrange
+        DraftService service = new DraftService(repository, answerKeyCache, 100, 24);
+        doThrow(new IllegalStateException("db down")).doNothing().when(repository).saveBatch(anyList());
+        service.save(session, List.of(answer(1, 10)));
+
+        // Act
+        service.flush();
+        service.flush();
+        service.flush();
+
+        // Assert: после ошибки черновик снова грязный, после успешного сброса — нет
+        verify(repository, times(2)).saveBatch(anyList());
+    }
+
+    @Test
+    void discard_ShouldDeleteRow_WrittenByConcurrentFlush() {
+        // Arrange: discard срабатывает, пока flush пишет снимок
+        DraftService service = new DraftService(repository, answerKeyCache, 100, 24);
+        service.save(session, List.of(answer(1, 10)));
+        List<String> calls = new ArrayList<>();
+        doAnswer(invocation -> {
+            calls.add("save");
+            service.discard("s1");
+            return null;
+        }).when(repository).saveBatch(anyList());
+        doAnswer(invocation -> calls.add("delete")).when(repository).delete("s1");
+
+        // Act
+        service.flush();
+
+        // Assert: последней операцией по строке остаётся удаление
+        assertEquals("delete", calls.get(calls.size() - 1));
+        assertThrows(ApiException.class, () -> service.load(7L, "s1"));
+    }
+
+    private static TestDtos.Answer answer(long questionId, long optionId) {
+        return new TestDtos.Answer(Long.toString(questionId), Long.toString(optionId), null);
+    }
+
+    private static AnswerKey key(int questions) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long q = 1; q <= questions; q++) {
+            rows.add(row(q, q * 10, true));
+            rows.add(row(q, q * 10 + 1, false));
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+
+    private static QuestionRepository.AnswerKeyRow row(long questionId, long optionId, boolean correct) {
+        return new QuestionRepository.AnswerKeyRow() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+
+            @Override
+            public Integer getPoints() {
+                return 1;
+            }
+
+            @Override
+            public Long getOptionId() {
+                return optionId;
+            }
+
+            @Override
+            public Boolean getCorrect() {
+                return correct;
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.QuestionDto;
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.mapper.QuestionMapper;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExamSessionServiceTest {
+    private static final int BANK_SIZE = 30;
+
+    private final SubjectRepository subjectRepository = mock(SubjectRepository.class);
+    private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+    private final QuestionMapper questionMapper = mock(QuestionMapper.class);
+    private final AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+    private final TestService testService = mock(TestService.class);
+    private final DraftService draftService = mock(DraftService.class);
+    private final AnswerKey key = key(BANK_SIZE);
+    private final Subject subject = new Subject();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void sample_ShouldReturnDistinctIndexesInRange() {
+        // Act
+        int[] sample = ExamSessionService.sample(1000, 120, 42L);
+
+        // Assert
+        assertEquals(120, sample.length);
+        assertEquals(120, Arrays.stream(sample).distinct().count());
+        assertTrue(Arrays.stream(sample).allMatch(i -> i >= 0 && i < 1000));
+    }
+
+    @Test
+    void sample_ShouldBeDeterministicForSeed() {
+        // Act & Assert
+        assertArrayEquals(ExamSessionService.sample(500, 40, 7L), ExamSessionService.sample(500, 40, 7L));
+        assertFalse(Arrays.equals(ExamSessionService.sample(500, 40, 7L), ExamSessionService.sample(500, 40, 8L)));
+    }
+
+    @Test
+    void sample_ShouldReturnWholeBank_WhenCountEqualsBankSize() {
+        // Act
+        int[] sample = ExamSessionService.sample(30, 30, 1L);
+
+        // Assert
+        assertArrayEquals(IntStream.range(0, 30).toArray(), Arrays.stream(sample).sorted().toArray());
+    }
+
+    @Test
+    void shuffleOptions_ShouldPermuteDeterministicallyPerQuestion() {
+        // Arrange
+        List<Integer> options = List.of(1, 2, 3, 4, 5);
+
+        // Act
+        List<Integer> first = ExamSessionService.shuffleOptions(options, 99L, 10L);
+        List<Integer> again = ExamSessionService.shuffleOptions(options, 99L, 10L);
+
+        // Assert
+        assertEquals(first, again);
+        assertEquals(options, first.stream().sorted().toList());
+        assertTrue(IntStream.range(0, 20)
+                .anyMatch(q -> !ExamSessionService.shuffleOptions(options, 99L, q).equals(first)));
+    }
+
+    @Test
+    void submit_ShouldGradeInPresentedOrder() {
+        // Arrange
+        ExamSessionService service = service();
+        TestDtos.SessionDto session = service.start(7L, new TestDtos.StartSessionRequest("math", BANK_SIZE, 60));
+        List<String> presented = service.questions(7L, session.sessionId(), 0, BANK_SIZE).questions().stream()
+                .map(QuestionDto::id).toList();
+
+        // Act
+        service.submit(7L, session.sessionId(), new TestDtos.SessionSubmitRequest(List.of()));
+
+        // Assert
+        ArgumentCaptor<int[]> positions = ArgumentCaptor.forClass(int[].class);
+        verify(testService).gradeAndRecord(eq(7L), eq(subject), eq(key), positions.capture(), anyList());
+        assertEquals(presented, Arrays.stream(positions.getValue())
+                .mapToObj(i -> Long.toString(key.questionId(i))).toList());
+    }
+
+    @Test
+    void submit_ShouldDiscardSessionAndDraft_OnlyAfterCommit() {
+        // Arrange
+        ExamSessionService service = service();
+        TestDtos.SessionDto session = service.start(7L, new TestDtos.StartSessionRequest("math", 5, 60));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        service.submit(7L, session.sessionId(), new TestDtos.SessionSubmitRequest(List.of()));
+
+        // Assert: до коммита сессия на месте, повторная отправка отклоняется
+        verify(draftService, never()).discard(any());
+        ApiException repeated = assertThrows(ApiException.class,
+                () -> service.submit(7L, session.sessionId(), new TestDtos.SessionSubmitRequest(List.of())));
+        assertEquals("SESSION_SUBMITTED", repeated.getError());
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        verify(draftService).discard(session.sessionId());
+        assertThrows(ApiException.class, () -> service.questions(7L, session.sessionId(), 0, 1));
+    }
+
+    @Test
+    void submit_ShouldAllowRetry_WhenTransactionRollsBack() {
+        // Arrange
+        ExamSessionService service = service();
+        TestDtos.SessionDto session = service.start(7L, new TestDtos.StartSessionRequest("math", 5, 60));
+        TransactionSynchronizationManager.initSynchronization();
+        service.submit(7L, session.sessionId(), new TestDtos.SessionSubmitRequest(List.of()));
+
+        // Act
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Assert
+        verify(draftService, never()).discard(any());
+        assertDoesNotThrow(() -> service.submit(7L, session.sessionId(), new TestDtos.SessionSubmitRequest(List.of())));
+    }
+
+    private ExamSessionService service() {
+        subject.setId(1L);
+        subject.setCode("math");
+        when(subjectRepository.findByCode("math")).thenReturn(Optional.of(subject));
+        when(answerKeyCache.get("math")).thenReturn(key);
+        when(questionRepository.findByIdIn(anyCollection())).thenAnswer(invocation -> {
+            List<Question> questions = new ArrayList<>();
+            for (Object id : (Collection<?>) invocation.getArgument(0)) {
+                Question question = new Question();
+                question.setId((Long) id);
+                questions.add(question);
+            }
+            return questions;
+        });
+        when(questionMapper.toDto(any())).thenAnswer(invocation -> {
+            Question question = invocation.getArgument(0);
+            return new QuestionDto(question.getId().toString(), "math", "?", List.of());
+        });
+        return new ExamSessionService(subjectRepository, questionRepository, questionMapper, answerKeyCache,
+                testService, draftService, 100, 200, 50, 120);
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+
+    private static AnswerKey key(int questions) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long q = 1; q <= questions; q++) {
+            long questionId = q;
+            rows.add(new QuestionRepository.AnswerKeyRow() {
+                @Override
+                public Long getQuestionId() {
+                    return questionId;
+                }
+
+                @Override
+                public Integer getPoints() {
+                    return 1;
+                }
+
+                @Override
+                public Long getOptionId() {
+                    return questionId * 10;
+                }
+
+                @Override
+                public Boolean getCorrect() {
+                    return true;
+                }
+            });
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+}
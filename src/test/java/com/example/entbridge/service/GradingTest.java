@@ -0,0 +1,76 @@
+package com.example.entbridge.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradingTest {
+
+    // Вопросы 10, 20, 30, 40 с вариантами id*10+k; правильные: 101 | 201, 202 | нет | 401.
+    private static final long[] QUESTION_IDS = { 10, 20, 30, 40 };
+    private static final int[] OPTION_OFFSETS = { 0, 2, 5, 7, 9 };
+    private static final long[] OPTION_IDS = { 101, 102, 201, 202, 203, 301, 302, 401, 402 };
+    private static final long[] CORRECT_MASKS = { 0b01, 0b011, 0, 0b01 };
+    private static final int[] POINTS = { 1, 2, 1, 3 };
+
+    @Test
+    void alignSelections_ShouldBuildMasks_WhenPositionsGiven() {
+        // Arrange
+        int[] positions = { 1, 2, 3 };
+        long[] answerQuestionIds = { 40, 20, 20, 10, 30, 20 };
+        long[] answerOptionIds = { 401, 201, 202, 101, Grading.NO_OPTION, 999 };
+        long[] selected = new long[3];
+
+        // Act
+        int unknown = Grading.alignSelections(QUESTION_IDS, OPTION_OFFSETS, OPTION_IDS, positions, answerQuestionIds,
+                answerOptionIds, 6, selected);
+
+        // Assert: ответ на вопрос 10 вне попытки пропущен, чужой вариант 999 посчитан
+        assertArrayEquals(new long[] { 0b011, 0, 0b01 }, selected);
+        assertEquals(1, unknown);
+    }
+
+    @Test
+    void score_ShouldApplyRules_WhenMultiAnswerPartlyCorrect() {
+        // Arrange
+        long[] selected = { 0b01, 0b001, 0, 0b10 };
+        boolean[] correct = new boolean[4];
+
+        // Act
+        double allOrNothing = Grading.score(ScoringRule.ALL_OR_NOTHING, CORRECT_MASKS, POINTS, null, selected,
+                correct);
+        double partial = Grading.score(ScoringRule.PARTIAL_CREDIT, CORRECT_MASKS, POINTS, null, selected, correct);
+        double weighted = Grading.score(ScoringRule.WEIGHTED_POINTS, CORRECT_MASKS, POINTS, null, selected,
+                correct);
+
+        // Assert
+        assertArrayEquals(new boolean[] { true, false, false, false }, correct);
+        assertEquals(1.0, allOrNothing);
+        assertEquals(2.0, partial);
+        assertEquals(1.0, weighted);
+        assertEquals(4, Grading.possible(ScoringRule.ALL_OR_NOTHING, POINTS, null));
+        assertEquals(7, Grading.possible(ScoringRule.WEIGHTED_POINTS, POINTS, null));
+        assertEquals(29, Grading.scale(partial, 7, 100));
+    }
+
+    @Test
+    void score_ShouldKeepLegacySingleChoice_WhenQuestionHasSeveralCorrectOptions() {
+        // Arrange: у вопроса 20 два правильных варианта (201, 202)
+        long[] firstCorrect = { 0, 0b001, 0, 0 };
+        long[] secondCorrect = { 0, 0b010, 0, 0 };
+        long[] both = { 0, 0b011, 0, 0 };
+        boolean[] correct = new boolean[4];
+
+        // Act & Assert: как до введения правил засчитывается только первый правильный вариант
+        assertEquals(1.0, Grading.score(ScoringRule.SINGLE_CHOICE, CORRECT_MASKS, POINTS, null, firstCorrect,
+                correct));
+        assertTrue(correct[1]);
+        assertEquals(0.0, Grading.score(ScoringRule.SINGLE_CHOICE, CORRECT_MASKS, POINTS, null, secondCorrect,
+                correct));
+        assertEquals(0.0, Grading.score(ScoringRule.SINGLE_CHOICE, CORRECT_MASKS, POINTS, null, both, correct));
+        assertFalse(correct[1]);
+        // ALL_OR_NOTHING требует полный набор
+        assertEquals(1.0, Grading.score(ScoringRule.ALL_OR_NOTHING, CORRECT_MASKS, POINTS, null, both, correct));
+        assertTrue(correct[1]);
+    }
+}
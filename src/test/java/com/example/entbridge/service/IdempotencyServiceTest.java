@@ -0,0 +1,114 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:idempotency;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE idempotency_keys (
+                  user_id integer NOT NULL,
+                  idem_key varchar(128) NOT NULL,
+                  request_hash varchar(64) NOT NULL,
+                  response text,
+                  created_at timestamp NOT NULL DEFAULT now(),
+                  CONSTRAINT uq_idempotency_keys_user_key UNIQUE (user_id, idem_key)
+                )""");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WhenKeyRepeatedOnAnotherNode() {
+        // Arrange
+        AtomicInteger graded = new AtomicInteger();
+        TestDtos.SubmitRequest request = request("1");
+        TestDtos.ResultDto result = new TestDtos.ResultDto("5", "1", "math", "Математика", 10, 20, 2, 1,
+                Instant.parse("2026-01-01T10:00:00Z"),
+                List.of(new TestDtos.AnswerResultDto("7", "1", true, "1", List.of("1"), List.of("1"))));
+
+        // Act
+        TestDtos.ResultDto first = newService().execute(1L, "k-1", "submit", request, TestDtos.ResultDto.class,
+                () -> {
+                    graded.incrementAndGet();
+                    return result;
+                });
+        TestDtos.ResultDto replayed = newService().execute(1L, "k-1", "submit", request, TestDtos.ResultDto.class,
+                () -> {
+                    graded.incrementAndGet();
+                    return result;
+                });
+
+        // Assert
+        assertEquals(1, graded.get());
+        assertEquals(first, replayed);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_keys", Integer.class));
+    }
+
+    @Test
+    void execute_ShouldRejectKey_WhenReusedForDifferentRequest() {
+        // Arrange
+        IdempotencyService service = newService();
+        service.execute(1L, "k-2", "submit", request("1"), String.class, () -> "ok");
+
+        // Act
+        ApiException ex = assertThrows(ApiException.class,
+                () -> service.execute(1L, "k-2", "submit", request("2"), String.class, () -> "other"));
+
+        // Assert
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+    }
+
+    @Test
+    void execute_ShouldReleaseKey_WhenActionFails() {
+        // Arrange
+        IdempotencyService service = newService();
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> service.execute(1L, "k-3", "submit", request("1"),
+                String.class, () -> {
+                    throw new IllegalStateException("boom");
+                }));
+        String retried = service.execute(1L, "k-3", "submit", request("1"), String.class, () -> "ok");
+
+        // Assert
+        assertEquals("ok", retried);
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(new IdempotencyKeyRepository(jdbcTemplate), objectMapper, transactionManager,
+                100, 24);
+    }
+
+    private static TestDtos.SubmitRequest request(String optionId) {
+        return new TestDtos.SubmitRequest("math", List.of(new TestDtos.Answer("7", optionId, null)));
+    }
+}
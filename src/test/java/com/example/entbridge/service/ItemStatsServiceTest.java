@@ -0,0 +1,145 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.QuestionStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ItemStatsServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteAccumulatedCountersWithGroups() {
+        // Arrange
+        QuestionStatsRepository repository = mock(QuestionStatsRepository.class);
+        ItemStatsService service = new ItemStatsService(repository, mock(PlatformTransactionManager.class), 10);
+        long[] questionIds = { 10, 20 };
+        for (int i = 0; i < 303; i++) {
+            int score = i * 37 % 101;
+            boolean strong = score >= 50;
+            byte[] answers = AnswerEncoding.encode(questionIds, new long[][] { { 1 }, { 1 } },
+                    new boolean[] { strong, true }, 2);
+            service.record(1L, score, 100, answers);
+        }
+
+        // Act
+        service.flush();
+        service.flush();
+
+        // Assert
+        ArgumentCaptor<List<QuestionStatsRepository.StatsDelta>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).applyDeltas(captor.capture());
+        QuestionStatsRepository.StatsDelta first = captor.getValue().stream()
+                .filter(d -> d.questionId() == 10).findFirst().orElseThrow();
+        assertEquals(303, first.attempts());
+        assertEquals(153, first.correct());
+        assertTrue(first.upperAttempts() > 0 && first.lowerAttempts() > 0);
+        assertEquals(first.upperAttempts(), first.upperCorrect());
+        assertEquals(0, first.lowerCorrect());
+        verify(repository, never()).findRanked(any(), any(), anyLong(), anyInt());
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void flush_ShouldKeepCounters_WhenWriteFails() {
+        // Arrange
+        QuestionStatsRepository repository = mock(QuestionStatsRepository.class);
+        doThrow(new IllegalStateException("db down")).doNothing().when(repository).applyDeltas(anyList());
+        ItemStatsService service = new ItemStatsService(repository, mock(PlatformTransactionManager.class), 10);
+        service.record(1L, 5, 10, AnswerEncoding.encode(new long[] { 7 }, new long[][] { { 2 } },
+                new boolean[] { true }, 1));
+
+        // Act
+        service.flush();
+        service.flush();
+
+        // Assert
+        verify(repository, times(2)).applyDeltas(argThat(list -> list.size() == 1
+                && list.get(0).attempts() == 1 && list.get(0).correct() == 1));
+    }
+
+    @Test
+    void flush_ShouldNotDoubleCount_WhenBatchFailsPartway() {
+        // Arrange
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:item_stats;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE subjects (id integer PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE questions (id integer PRIMARY KEY)");
+        jdbcTemplate.execute("""
+                CREATE TABLE question_stats (
+                  question_id integer PRIMARY KEY REFERENCES questions(id),
+                  subject_id integer NOT NULL REFERENCES subjects(id),
+                  attempts bigint NOT NULL DEFAULT 0,
+                  correct bigint NOT NULL DEFAULT 0,
+                  upper_attempts bigint NOT NULL DEFAULT 0,
+                  upper_correct bigint NOT NULL DEFAULT 0,
+                  lower_attempts bigint NOT NULL DEFAULT 0,
+                  lower_correct bigint NOT NULL DEFAULT 0,
+                  updated_at timestamp NOT NULL DEFAULT now()
+                )""");
+        jdbcTemplate.update("INSERT INTO subjects (id) VALUES (1)");
+        jdbcTemplate.update("INSERT INTO questions (id) VALUES (1), (2), (3)");
+        jdbcTemplate.update("INSERT INTO question_stats (question_id, subject_id, attempts) VALUES (1, 1, 5)");
+        ItemStatsService service = new ItemStatsService(new QuestionStatsRepository(jdbcTemplate),
+                new DataSourceTransactionManager(dataSource), 10);
+        service.record(1L, 1, 1, AnswerEncoding.encode(new long[] { 1 }, new long[][] { { 1 } },
+                new boolean[] { true }, 1));
+        // Предмета 2 ещё нет — вставка статистики вопроса 2 падает после того, как вопрос 1 уже обновлён.
+        service.record(2L, 1, 1, AnswerEncoding.encode(new long[] { 2 }, new long[][] { { 1 } },
+                new boolean[] { true }, 1));
+        // Вопроса 4 нет в банке — его статистика отбрасывается, а не валит сброс.
+        service.record(1L, 1, 1, AnswerEncoding.encode(new long[] { 4 }, new long[][] { { 1 } },
+                new boolean[] { true }, 1));
+
+        try {
+            // Act
+            service.flush();
+            long afterFailure = jdbcTemplate.queryForObject(
+                    "SELECT attempts FROM question_stats WHERE question_id = 1", Long.class);
+            jdbcTemplate.update("INSERT INTO subjects (id) VALUES (2)");
+            service.flush();
+
+            // Assert
+            assertEquals(5, afterFailure);
+            assertEquals(6, jdbcTemplate.queryForObject(
+                    "SELECT attempts FROM question_stats WHERE question_id = 1", Long.class));
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT attempts FROM question_stats WHERE question_id = 2", Long.class));
+            assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM question_stats", Long.class));
+        } finally {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void flush_ShouldForgetCounters_WhenQuestionIsIdleForAnInterval() {
+        // Arrange
+        QuestionStatsRepository repository = mock(QuestionStatsRepository.class);
+        ItemStatsService service = new ItemStatsService(repository, mock(PlatformTransactionManager.class), 10);
+        service.record(1L, 5, 10, AnswerEncoding.encode(new long[] { 7, 8 }, new long[][] { { 2 }, { 3 } },
+                new boolean[] { true, false }, 2));
+        service.flush();
+        service.record(1L, 5, 10, AnswerEncoding.encode(new long[] { 8 }, new long[][] { { 3 } },
+                new boolean[] { true }, 1));
+
+        // Act
+        service.flush();
+        int afterSecondFlush = service.trackedQuestions();
+        service.flush();
+
+        // Assert
+        assertEquals(1, afterSecondFlush);
+        assertEquals(0, service.trackedQuestions());
+        verify(repository, times(2)).applyDeltas(anyList());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.OfflineDtos;
+import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.repository.QuestionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineExamServiceTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final OfflineExamService service = new OfflineExamService(null, null, null, null, null, null, null,
+            null, objectMapper, null, "test-secret", "jwt-secret", 200, 14, 200, 1000);
+
+    @Test
+    void sign_ShouldChange_WhenVariantIsTampered() {
+        // Arrange
+        OfflineDtos.Manifest manifest = manifest(List.of("1", "2", "3"));
+        OfflineDtos.Manifest tampered = manifest(List.of("1", "2", "4"));
+
+        // Act & Assert
+        assertEquals(service.sign(manifest), service.sign(manifest(List.of("1", "2", "3"))));
+        assertNotEquals(service.sign(manifest), service.sign(tampered));
+    }
+
+    @Test
+    void sign_ShouldDiffer_WhenQuestionIdsContainSeparators() {
+        // Act & Assert
+        assertNotEquals(service.sign(manifest(List.of("1", "2,3"))), service.sign(manifest(List.of("1", "2", "3"))));
+        assertNotEquals(service.sign(manifest(List.of("1:2"))), service.sign(manifest(List.of("1", "2"))));
+    }
+
+    @Test
+    void constructor_ShouldRefuse_WhenSigningSecretIsJwtSecret() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new OfflineExamService(null, null, null, null, null, null,
+                null, null, objectMapper, null, "shared", "shared", 200, 14, 200, 1000));
+    }
+
+    @Test
+    void positions_ShouldRejectVariant_WhenQuestionIsUnknownOrMalformed() {
+        // Arrange
+        AnswerKey key = key(3);
+
+        // Act & Assert
+        assertArrayEquals(new int[] { 0, 1, 2 }, OfflineExamService.positions(key, variant(List.of("3", "1", "2"))));
+        ApiException unknown = assertThrows(ApiException.class,
+                () -> OfflineExamService.positions(key, variant(List.of("1", "2", "4"))));
+        ApiException malformed = assertThrows(ApiException.class,
+                () -> OfflineExamService.positions(key, variant(List.of("1", "x"))));
+        assertEquals("PACKAGE_QUESTIONS_CHANGED", unknown.getError());
+        assertEquals("PACKAGE_QUESTIONS_CHANGED", malformed.getError());
+    }
+
+    @Test
+    void sync_ShouldRejectPackage_WhenSignatureDoesNotMatch() throws Exception {
+        // Arrange
+        OfflineDtos.Manifest issued = manifest(List.of("1", "2", "3"));
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("manifest", manifest(List.of("1", "2", "4")));
+        request.put("signature", service.sign(issued));
+        request.put("attempts", List.of());
+        byte[] body = objectMapper.writeValueAsBytes(request);
+
+        // Act
+        ApiException ex = assertThrows(ApiException.class, () -> service.sync(new ByteArrayInputStream(body)));
+
+        // Assert
+        assertEquals("PACKAGE_SIGNATURE_INVALID", ex.getError());
+    }
+
+    private static OfflineDtos.Manifest manifest(List<String> questionIds) {
+        return new OfflineDtos.Manifest("pkg-1", "math", Instant.ofEpochSecond(1_700_000_000L),
+                Instant.parse("2100-01-01T00:00:00Z"), List.of(variant(questionIds)));
+    }
+
+    private static OfflineDtos.Variant variant(List<String> questionIds) {
+        return new OfflineDtos.Variant(1, 42L, questionIds);
+    }
+
+    private static AnswerKey key(int questions) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long q = 1; q <= questions; q++) {
+            long questionId = q;
+            rows.add(new QuestionRepository.AnswerKeyRow() {
+                @Override
+                public Long getQuestionId() {
+                    return questionId;
+                }
+
+                @Override
+                public Integer getPoints() {
+                    return 1;
+                }
+
+                @Override
+                public Long getOptionId() {
+                    return questionId * 10;
+                }
+
+                @Override
+                public Boolean getCorrect() {
+                    return true;
+                }
+            });
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.QuestionDto;
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Question;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.mapper.QuestionMapper;
+import com.example.entbridge.repository.QuestionRepository;
+import com.example.entbridge.repository.QuestionStatsRepository;
+import com.example.entbridge.repository.SubjectRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PracticeServiceTest {
+
+    private SubjectRepository subjectRepository;
+    private QuestionRepository questionRepository;
+    private QuestionStatsRepository questionStatsRepository;
+    private QuestionMapper questionMapper;
+    private AnswerKeyCache answerKeyCache;
+    private PracticeService practiceService;
+
+    @BeforeEach
+    void setUp() {
+        subjectRepository = mock(SubjectRepository.class);
+        questionRepository = mock(QuestionRepository.class);
+        questionStatsRepository = mock(QuestionStatsRepository.class);
+        questionMapper = mock(QuestionMapper.class);
+        answerKeyCache = mock(AnswerKeyCache.class);
+        practiceService = new PracticeService(subjectRepository, questionRepository, questionStatsRepository,
+                questionMapper, answerKeyCache, 100, 60, 300);
+    }
+
+    @Test
+    void index_ShouldRebuildOnce_WhenRequestedConcurrently() throws Exception {
+        // Arrange: первая перестройка держит запрос статистики, пока все потоки не придут за индексом
+        when(answerKeyCache.get("math")).thenReturn(key(3));
+        CountDownLatch release = new CountDownLatch(1);
+        when(questionStatsRepository.findCounts("math")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<DifficultyIndex>> futures = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < 4; i++) {
+                futures.add(pool.submit(() -> practiceService.index("math")));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            DifficultyIndex first = futures.get(0).get(5, TimeUnit.SECONDS);
+
+            // Assert
+            for (Future<DifficultyIndex> future : futures) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(questionStatsRepository, times(1)).findCounts("math");
+    }
+
+    @Test
+    void start_ShouldSkipDeletedQuestions_WithOneQueryForSeveralCandidates() {
+        // Arrange: из трёх вопросов индекса в базе остался только третий
+        Subject subject = new Subject();
+        subject.setCode("math");
+        when(subjectRepository.findByCode("math")).thenReturn(Optional.of(subject));
+        when(answerKeyCache.get("math")).thenReturn(key(3));
+        Question remaining = new Question();
+        remaining.setId(3L);
+        when(questionRepository.findByIdIn(any())).thenReturn(List.of(remaining));
+        when(questionMapper.toDto(remaining)).thenReturn(new QuestionDto("3", "math", "Вопрос", List.of()));
+
+        // Act
+        TestDtos.PracticeDto practice = practiceService.start(1L, new TestDtos.StartPracticeRequest("math"));
+
+        // Assert
+        assertEquals("3", practice.question().id());
+        verify(questionRepository, times(1)).findByIdIn(any());
+    }
+
+    private static AnswerKey key(int questions) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long q = 1; q <= questions; q++) {
+            rows.add(row(q, q * 10, true));
+            rows.add(row(q, q * 10 + 1, false));
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+
+    private static QuestionRepository.AnswerKeyRow row(long questionId, long optionId, boolean correct) {
+        return new QuestionRepository.AnswerKeyRow() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+
+            @Override
+            public Integer getPoints() {
+                return 1;
+            }
+
+            @Override
+            public Long getOptionId() {
+                return optionId;
+            }
+
+            @Override
+            public Boolean getCorrect() {
+                return correct;
+            }
+        };
+    }
+}
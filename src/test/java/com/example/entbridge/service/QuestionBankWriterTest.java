@@ -0,0 +1,74 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.dto.AdminDtos;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.repository.QuestionFingerprintRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Реальный путь записи импорта через Hibernate на H2: число JDBC-запросов должно расти с числом пачек,
+// а не с числом строк.
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true" })
+@Import({ QuestionBankWriter.class, QuestionFingerprintRepository.class })
+class QuestionBankWriterTest {
+    private static final int QUESTIONS = 200;
+    private static final int OPTIONS = 4;
+
+    @Autowired
+    private QuestionBankWriter questionBankWriter;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void write_ShouldBatchQuestionAndOptionInserts() {
+        // Arrange
+        Subject subject = new Subject();
+        subject.setCode("math");
+        subject.setTitle("Математика");
+        entityManager.persist(subject);
+        entityManager.flush();
+        List<QuestionImportService.ImportRow> rows = new ArrayList<>(QUESTIONS);
+        for (int q = 0; q < QUESTIONS; q++) {
+            List<AdminDtos.QuestionOptionRequest> options = new ArrayList<>(OPTIONS);
+            for (int o = 0; o < OPTIONS; o++) {
+                options.add(new AdminDtos.QuestionOptionRequest("Вариант " + q + "." + o, o == 0));
+            }
+            rows.add(new QuestionImportService.ImportRow("Вопрос " + q, null, options, null));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        QuestionBankWriter.Result result = questionBankWriter.write(subject, null, rows,
+                QuestionBankWriter.Mode.SKIP, new HashMap<>());
+        entityManager.flush();
+
+        // Assert: 1000 строк; пачки по 50 и пул id по 50 дают десятки запросов, а не тысячу
+        assertEquals(QUESTIONS, result.created());
+        assertEquals(QUESTIONS * (1 + OPTIONS), statistics.getEntityInsertCount());
+        long rowsWritten = QUESTIONS * (1 + OPTIONS);
+        long expectedBatches = rowsWritten / 50;
+        long expectedSequenceCalls = rowsWritten / 50 + 2;
+        assertTrue(statistics.getPrepareStatementCount() <= expectedBatches + expectedSequenceCalls,
+                "prepared statements: " + statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.entbridge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionFingerprintTest {
+
+    @Test
+    void of_ShouldMatch_WhenQuestionDiffersOnlyInCaseSpacingAndOptionOrder() {
+        // Act
+        String original = QuestionFingerprint.of("Столица Казахстана?", List.of("Астана", "Алматы", "Шымкент"));
+        String reuploaded = QuestionFingerprint.of("  столица  КАЗАХСТАНА? ", List.of("Шымкент", "АСТАНА ", "Алматы"));
+
+        // Assert
+        assertEquals(original, reuploaded);
+        assertEquals(64, original.length());
+    }
+
+    @Test
+    void of_ShouldDiffer_WhenOptionTextChanges() {
+        // Act
+        String original = QuestionFingerprint.of("2 + 2 = ?", List.of("3", "4"));
+        String changed = QuestionFingerprint.of("2 + 2 = ?", List.of("3", "5"));
+        String merged = QuestionFingerprint.of("2 + 2 = ?", List.of("34"));
+
+        // Assert
+        assertNotEquals(original, changed);
+        assertNotEquals(original, merged);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.entbridge.service;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionSheetReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void read_ShouldStreamXlsxRowsWithColumnPositions() throws Exception {
+        // Arrange
+        Path file = write(new XSSFWorkbook(), dir.resolve("bank.xlsx"));
+        List<String[]> rows = new ArrayList<>();
+
+        // Act
+        QuestionSheetReader.read(file, (rowIndex, cells) -> rows.add(prepend(rowIndex, cells)));
+
+        // Assert
+        assertEquals(3, rows.size());
+        assertEquals("2", rows.get(1)[0]);
+        assertEquals("Сколько будет 2+2?", rows.get(1)[2]);
+        assertEquals("*4", rows.get(1)[4]);
+        assertNull(rows.get(1)[6]);
+        assertEquals("Потому что", rows.get(1)[7]);
+        assertEquals("4", rows.get(2)[0]);
+        assertEquals("42", rows.get(2)[1]);
+    }
+
+    @Test
+    void read_ShouldFallBackToWorkbook_WhenFileIsXls() throws Exception {
+        // Arrange
+        Path file = write(new HSSFWorkbook(), dir.resolve("bank.xls"));
+        List<String[]> rows = new ArrayList<>();
+
+        // Act
+        QuestionSheetReader.read(file, (rowIndex, cells) -> rows.add(prepend(rowIndex, cells)));
+
+        // Assert
+        assertEquals(3, rows.size());
+        assertEquals("*4", rows.get(1)[4]);
+        assertEquals("42", rows.get(2)[1]);
+    }
+
+    @Test
+    void read_ShouldConvertBooleanAndFormattedNumbersAlike_ForXlsxAndXls() throws Exception {
+        // Arrange: локаль с запятой в дробях и ячейки с форматами процента и разрядов
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            for (Workbook workbook : List.of(new XSSFWorkbook(), new HSSFWorkbook())) {
+                Path file = writeTyped(workbook, dir.resolve(workbook instanceof XSSFWorkbook ? "t.xlsx" : "t.xls"));
+                List<String[]> rows = new ArrayList<>();
+
+                // Act
+                QuestionSheetReader.read(file, (rowIndex, cells) -> rows.add(cells));
+
+                // Assert
+                assertArrayEquals(new String[] { "true", "false", "0.5", "1234.5", "7", "TRUE", null },
+                        rows.get(0), file.getFileName().toString());
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static Path writeTyped(Workbook workbook, Path file) throws Exception {
+        try (workbook; OutputStream out = Files.newOutputStream(file)) {
+            Row row = workbook.createSheet("Вопросы").createRow(0);
+            row.createCell(0).setCellValue(true);
+            row.createCell(1).setCellValue(false);
+            row.createCell(2).setCellValue(0.5);
+            row.getCell(2).setCellStyle(style(workbook, "0%"));
+            row.createCell(3).setCellValue(1234.5);
+            row.getCell(3).setCellStyle(style(workbook, "#,##0.00"));
+            row.createCell(4).setCellValue(7);
+            row.createCell(5).setCellValue("TRUE");
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    private static CellStyle style(Workbook workbook, String format) {
+        CellStyle style = workbook.createCellStyle();
+        style.setDataFormat(workbook.createDataFormat().getFormat(format));
+        return style;
+    }
+
+    private static Path write(Workbook workbook, Path file) throws Exception {
+        try (workbook; OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Вопросы");
+            Row header = sheet.createRow(0);
+            header.createCell(1).setCellValue("Вопрос");
+            Row question = sheet.createRow(2);
+            question.createCell(1).setCellValue("Сколько будет 2+2?");
+            question.createCell(2).setCellValue("3");
+            question.createCell(3).setCellValue("*4");
+            question.createCell(6).setCellValue("Потому что");
+            Row numeric = sheet.createRow(4);
+            numeric.createCell(0).setCellValue(42);
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    // [0] — номер строки, дальше ячейки.
+    private static String[] prepend(int rowIndex, String[] cells) {
+        String[] row = new String[cells.length + 1];
+        row[0] = Integer.toString(rowIndex);
+        System.arraycopy(cells, 0, row, 1, cells.length);
+        return row;
+    }
+}
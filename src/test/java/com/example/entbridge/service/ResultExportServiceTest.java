@@ -0,0 +1,111 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.exception.TooManyRequestsException;
+import com.example.entbridge.repository.ResultExportRepository;
+import com.example.entbridge.repository.ResultExportRepository.ResultRow;
+import com.example.entbridge.repository.SubjectRepository;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ResultExportServiceTest {
+
+    private static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2026, 5, 20, 14, 30, 5);
+
+    @Test
+    void csvSink_ShouldQuoteDelimitersAndNeutralizeFormulas() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultExportService.CsvSink sink = new ResultExportService.CsvSink(out);
+
+        // Act
+        sink.row(new ResultRow(7, COMPLETED_AT, 3, "=HYPERLINK(\"x\")", "Иванов, Иван", "ivan@example.com", "math",
+                "Математика", 18, 20, 20, null));
+        sink.finish();
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("\uFEFFID,Дата,"));
+        assertEquals("7,2026-05-20T14:30:05,3,\"'=HYPERLINK(\"\"x\"\")\",\"Иванов, Иван\",ivan@example.com,math,"
+                + "Математика,18,20,20,", lines[1]);
+    }
+
+    @Test
+    void xlsxSink_ShouldWriteHeaderAndTypedCells() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultExportService.XlsxSink sink = new ResultExportService.XlsxSink(out, 10);
+
+        // Act
+        for (int i = 0; i < 25; i++) {
+            sink.row(new ResultRow(100 + i, COMPLETED_AT, 3, "ivan", null, "ivan@example.com", "math", "Математика",
+                    i, 20, 20, i));
+        }
+        sink.finish();
+        sink.close();
+
+        // Assert
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(25, sheet.getLastRowNum());
+            assertEquals("Верных ответов", sheet.getRow(0).getCell(11).getStringCellValue());
+            Row last = sheet.getRow(25);
+            assertEquals(124, (long) last.getCell(0).getNumericCellValue());
+            assertEquals(COMPLETED_AT, last.getCell(1).getLocalDateTimeCellValue());
+            assertNull(last.getCell(4));
+            assertEquals(24, (int) last.getCell(8).getNumericCellValue());
+        }
+    }
+
+    @Test
+    void export_ShouldLimitConcurrentStreams_AndReleaseWhenStreamEnds() throws Exception {
+        // Arrange
+        ResultExportService service = new ResultExportService(mock(SubjectRepository.class),
+                mock(ResultExportRepository.class), mock(PlatformTransactionManager.class), 100, 10, 1, 30);
+        StreamingResponseBody first = service.export(ResultExportService.Format.CSV, null, null, null, null);
+
+        // Act & Assert: вторая выгрузка отклоняется до начала ответа
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> service.export(ResultExportService.Format.CSV, null, null, null, null));
+        assertEquals(30, ex.getRetryAfterSeconds());
+
+        first.writeTo(new ByteArrayOutputStream());
+        assertEquals(1, service.availableExports());
+        assertNotNull(service.export(ResultExportService.Format.XLSX, null, null, null, null));
+        assertEquals(0, service.availableExports());
+    }
+
+    @Test
+    void export_ShouldReleasePermit_WhenClientDisconnects() throws Exception {
+        // Arrange
+        ResultExportService service = new ResultExportService(mock(SubjectRepository.class),
+                mock(ResultExportRepository.class), mock(PlatformTransactionManager.class), 100, 10, 1, 30);
+        StreamingResponseBody body = service.export(ResultExportService.Format.CSV, null, null, null, null);
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // Act
+        assertThrows(IOException.class, () -> body.writeTo(broken));
+
+        // Assert
+        assertEquals(1, service.availableExports());
+    }
+}
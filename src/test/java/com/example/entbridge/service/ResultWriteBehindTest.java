@@ -0,0 +1,83 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.TestResultBatchRepository;
+import com.example.entbridge.repository.TestResultBatchRepository.PendingResult;
+import com.example.entbridge.repository.UserStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResultWriteBehindTest {
+    private final TestResultBatchRepository batchRepository = mock(TestResultBatchRepository.class);
+    private final ResultWriteBehind writeBehind = new ResultWriteBehind(batchRepository,
+            mock(UserStatsRepository.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true,
+            1, 60_000, 500, true);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        writeBehind.stop();
+    }
+
+    @Test
+    void enqueueAfterCommit_ShouldWriteOnlyCommittedResults_AndReleaseRolledBackReservation() throws Exception {
+        // Arrange
+        when(batchRepository.nextId()).thenReturn(5L, 6L);
+        writeBehind.start();
+
+        // Act
+        Long rolledBack = writeBehind.reserveId();
+        completeTransaction(result(rolledBack), TransactionSynchronization.STATUS_ROLLED_BACK);
+        Long committed = writeBehind.reserveId();
+        completeTransaction(result(committed), TransactionSynchronization.STATUS_COMMITTED);
+        writeBehind.stop();
+
+        // Assert
+        assertEquals(5L, rolledBack);
+        assertEquals(6L, committed);
+        verify(batchRepository, times(1)).insertBatch(argThat(batch -> batch.size() == 1
+                && batch.get(0).id() == 6L));
+    }
+
+    @Test
+    void reserveId_ShouldFallBackToSyncWrite_WhenQueueIsFull() {
+        // Arrange
+        when(batchRepository.nextId()).thenReturn(1L);
+        writeBehind.start();
+
+        // Act
+        Long first = writeBehind.reserveId();
+        Long second = writeBehind.reserveId();
+
+        // Assert
+        assertEquals(1L, first);
+        assertNull(second);
+        verify(batchRepository, times(1)).nextId();
+    }
+
+    private void completeTransaction(PendingResult result, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writeBehind.enqueueAfterCommit(result);
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(s -> s.afterCompletion(status));
+        }
+    }
+
+    private static PendingResult result(Long id) {
+        return new PendingResult(id, 1L, 2L, 10, 20, 5, 3, Instant.parse("2026-01-10T10:00:00Z"), new byte[0]);
+    }
+}
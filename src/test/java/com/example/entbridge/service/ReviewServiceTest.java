@@ -0,0 +1,112 @@
+package com.example.entbridge.service;
+
+import com.example.entbridge.repository.ReviewCardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ReviewServiceTest {
+    private static final Instant NOW = Instant.parse("2026-01-10T10:00:00Z");
+
+    @Test
+    void schedule_ShouldGrowInterval_WhenRecalledRepeatedly() {
+        // Arrange
+        ReviewCardRepository.Card card = new ReviewCardRepository.Card(7L, 2.5, 0, 0, 1, NOW);
+
+        // Act
+        ReviewCardRepository.Card first = ReviewService.schedule(card, 4, NOW);
+        ReviewCardRepository.Card second = ReviewService.schedule(first, 4, NOW);
+        ReviewCardRepository.Card third = ReviewService.schedule(second, 5, NOW);
+
+        // Assert
+        assertEquals(1, first.intervalDays());
+        assertEquals(6, second.intervalDays());
+        assertEquals(15, third.intervalDays());
+        assertEquals(NOW.plus(Duration.ofDays(15)), third.dueAt());
+        assertEquals(2.6, third.ease(), 1e-9);
+    }
+
+    @Test
+    void schedule_ShouldResetCard_WhenForgotten() {
+        // Arrange
+        ReviewCardRepository.Card card = new ReviewCardRepository.Card(7L, 1.4, 20, 5, 0, NOW);
+
+        // Act
+        ReviewCardRepository.Card next = ReviewService.schedule(card, 1, NOW);
+
+        // Assert
+        assertEquals(0, next.repetitions());
+        assertEquals(1, next.intervalDays());
+        assertEquals(1, next.lapses());
+        assertEquals(1.3, next.ease(), 1e-9);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldLapseCardOnce_WhenFailedBatchIsRetried() {
+        // Arrange
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:review_cards;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id integer PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE questions (id integer PRIMARY KEY)");
+        jdbcTemplate.execute("""
+                CREATE TABLE review_cards (
+                  user_id integer NOT NULL REFERENCES users(id),
+                  question_id integer NOT NULL REFERENCES questions(id),
+                  ease double precision NOT NULL DEFAULT 2.5,
+                  interval_days integer NOT NULL DEFAULT 0,
+                  repetitions integer NOT NULL DEFAULT 0,
+                  lapses integer NOT NULL DEFAULT 0,
+                  due_at timestamp NOT NULL,
+                  updated_at timestamp NOT NULL DEFAULT now(),
+                  PRIMARY KEY (user_id, question_id)
+                )""");
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (1)");
+        jdbcTemplate.update("INSERT INTO questions (id) VALUES (10), (11)");
+        jdbcTemplate.update("INSERT INTO review_cards (user_id, question_id, ease, due_at) VALUES (1, 10, 2.5, ?)",
+                Timestamp.from(NOW));
+        // Первая запись пачки проходит целиком, а затем транзакция падает — как при обрыве соединения на коммите.
+        ReviewCardRepository repository = spy(new ReviewCardRepository(jdbcTemplate));
+        AtomicBoolean failed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("connection reset");
+            }
+            return null;
+        }).when(repository).recordMistakes(anyList());
+        ReviewService service = new ReviewService(repository, null, null, new DataSourceTransactionManager(dataSource),
+                100, 100);
+        // Вопрос 12 в банке не существует — такая ошибка просто не попадает в колоду.
+        service.record(1L, AnswerEncoding.encode(new long[] { 10, 11, 12 }, new long[][] { { 1 }, { 1 }, { 1 } },
+                new boolean[] { false, false, false }, 3));
+
+        try {
+            // Act
+            service.flush();
+            service.flush();
+
+            // Assert
+            List<Integer> lapses = jdbcTemplate.queryForList(
+                    "SELECT lapses FROM review_cards WHERE user_id = 1 ORDER BY question_id", Integer.class);
+            assertEquals(List.of(1, 0), lapses);
+            assertEquals(2.3, jdbcTemplate.queryForObject(
+                    "SELECT ease FROM review_cards WHERE question_id = 10", Double.class), 1e-9);
+            verify(repository, times(2)).recordMistakes(anyList());
+        } finally {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+}
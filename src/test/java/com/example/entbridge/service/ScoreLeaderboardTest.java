@@ -0,0 +1,45 @@
+package com.example.entbridge.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreLeaderboardTest {
+
+    @Test
+    void standing_ShouldRankByBestScore() {
+        // Arrange
+        ScoreLeaderboard board = new ScoreLeaderboard(10);
+        board.offer(1L, 5);
+        board.offer(2L, 8);
+        board.offer(3L, 5);
+        board.offer(4L, 2);
+        board.offer(1L, 3);
+
+        // Act
+        ScoreLeaderboard.Standing standing = board.standing(1L);
+
+        // Assert
+        assertEquals(5, standing.bestScore());
+        assertEquals(2, standing.rank());
+        assertEquals(4, standing.total());
+        assertEquals(25.0, standing.percentile());
+        assertEquals(1, board.standing(2L).rank());
+        assertNull(board.standing(99L));
+    }
+
+    @Test
+    void offer_ShouldGrow_WhenScoreExceedsMaxScore() {
+        // Arrange
+        ScoreLeaderboard board = new ScoreLeaderboard(4);
+        board.offer(1L, 3);
+
+        // Act
+        board.offer(2L, 40);
+
+        // Assert
+        assertEquals(1, board.standing(2L).rank());
+        assertEquals(2, board.standing(1L).rank());
+        assertEquals(50.0, board.standing(2L).percentile());
+    }
+}
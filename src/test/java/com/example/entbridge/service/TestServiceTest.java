@@ -1,17 +1,35 @@
 package com.example.entbridge.service;
 
+import com.example.entbridge.dto.TestDtos;
+import com.example.entbridge.entity.Subject;
+import com.example.entbridge.entity.TestResult;
+import com.example.entbridge.entity.User;
 import com.example.entbridge.exception.ApiException;
+import com.example.entbridge.mapper.TestResultMapper;
 import com.example.entbridge.repository.QuestionRepository;
 import com.example.entbridge.repository.SubjectRepository;
+import com.example.entbridge.repository.TestResultRepository;
 import com.example.entbridge.repository.UserRepository;
+import com.example.entbridge.repository.UserStatsRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -28,6 +46,36 @@ class TestServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private TestResultRepository testResultRepository;
+
+    @Mock
+    private UserStatsRepository userStatsRepository;
+
+    @Mock
+    private TestResultMapper testResultMapper;
+
+    @Mock
+    private AnswerKeyCache answerKeyCache;
+
+    @Mock
+    private ItemStatsService itemStatsService;
+
+    @Mock
+    private LeaderboardService leaderboardService;
+
+    @Mock
+    private ReviewService reviewService;
+
+    @Mock
+    private Executor gradingExecutor;
+
+    @Mock
+    private ResultWriteBehind resultWriteBehind;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private TestService testService;
 
@@ -42,4 +90,221 @@ class TestServiceTest {
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
         assertEquals("SUBJECT_NOT_FOUND", exception.getError());
     }
+
+    @Test
+    void questionsPage_ShouldRejectMalformedCursor_BeforeQuerying() {
+        // Act & Assert
+        for (String cursor : List.of("abc", "-1", "1.5")) {
+            ApiException exception = assertThrows(ApiException.class,
+                    () -> testService.questionsPage("math", cursor, 50));
+            assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+            assertEquals("INVALID_CURSOR", exception.getError());
+        }
+        verifyNoInteractions(subjectRepository, questionRepository);
+    }
+
+    @Test
+    void questionsPage_ShouldReturnNoNextCursor_WhenPageIsLast() {
+        // Arrange
+        Subject subject = new Subject();
+        subject.setCode("math");
+        when(subjectRepository.findByCode("math")).thenReturn(Optional.of(subject));
+        when(questionRepository.findIdsBySubjectAfter(eq("math"), eq(7L), any())).thenReturn(List.of());
+
+        // Act
+        TestDtos.QuestionPageDto page = testService.questionsPage("math", " 7 ", 50);
+
+        // Assert
+        assertTrue(page.questions().isEmpty());
+        assertNull(page.nextAfterId());
+        verify(questionRepository, never()).findByIdIn(any());
+    }
+
+    @Test
+    void submitCombined_ShouldThrowException_WhenSubjectRepeated() {
+        // Arrange
+        TestDtos.CombinedSubmitRequest request = new TestDtos.CombinedSubmitRequest(List.of(
+                new TestDtos.SubjectAnswers("physics", List.of()),
+                new TestDtos.SubjectAnswers("physics", List.of())));
+
+        // Act & Assert
+        ApiException exception = assertThrows(ApiException.class, () -> testService.submitCombined(1L, request));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals("DUPLICATE_SUBJECT", exception.getError());
+        verifyNoInteractions(subjectRepository);
+    }
+
+    @Test
+    void submitCombined_ShouldGradeSubjectsInParallel_AndWriteAllResultsInOneBatch() throws Exception {
+        // Arrange: задача проверки ждёт, пока не стартует вторая, — последовательная проверка упёрлась бы в таймаут
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicBoolean parallel = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            pool.execute(() -> {
+                bothStarted.countDown();
+                try {
+                    if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                        parallel.set(false);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            });
+            return null;
+        }).when(gradingExecutor).execute(any());
+        stubCombinedSubmit();
+
+        // Act: по математике всё верно, по физике — один верный ответ из трёх
+        TestDtos.CombinedResultDto result;
+        try {
+            result = testService.submitCombined(5L, new TestDtos.CombinedSubmitRequest(List.of(
+                    new TestDtos.SubjectAnswers("math", answers("10", "20", "30")),
+                    new TestDtos.SubjectAnswers("physics", answers("10", "21", "31")))));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Assert
+        assertTrue(parallel.get());
+        verify(gradingExecutor, times(2)).execute(any());
+        assertEquals(4, result.totalScore());
+        assertEquals(6, result.maxTotalScore());
+        assertEquals(List.of(3, 1), result.results().stream().map(TestDtos.ResultDto::score).toList());
+        verify(testResultRepository, times(1)).saveAll(argThat(results -> size(results) == 2));
+        InOrder inOrder = inOrder(userStatsRepository, entityManager);
+        inOrder.verify(userStatsRepository, times(1)).recordAttemptsBatch(argThat(deltas -> deltas.size() == 2));
+        inOrder.verify(entityManager).refresh(argThat(user -> ((User) user).getId() == 5L));
+    }
+
+    @Test
+    void gradeAndRecord_ShouldRefreshUser_AfterAggregateIncrement() {
+        // Arrange: без отложенной записи агрегаты увеличиваются сразу в этой транзакции
+        Subject subject = subject(1L, "math");
+        User user = new User();
+        user.setId(5L);
+        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+        when(resultWriteBehind.reserveId()).thenReturn(null);
+        when(testResultRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(testResultMapper.toDto(any())).thenReturn(new TestDtos.ResultDto(null, null, null, null, null, null,
+                null, null, null, null));
+
+        // Act
+        testService.gradeAndRecord(5L, subject, key(3), null, answers("10", "21", "30"));
+
+        // Assert
+        InOrder inOrder = inOrder(userStatsRepository, entityManager);
+        inOrder.verify(userStatsRepository).recordAttempt(eq(5L), eq(1L), eq(2), any());
+        inOrder.verify(entityManager).refresh(user);
+    }
+
+    @Test
+    void submitCombined_ShouldWriteNothing_WhenOneSubjectFailsGrading() {
+        // Arrange
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(gradingExecutor).execute(any());
+        stubCombinedSubmit();
+
+        // Act & Assert: вариант 99 не относится к вопросу
+        ApiException exception = assertThrows(ApiException.class, () -> testService.submitCombined(5L,
+                new TestDtos.CombinedSubmitRequest(List.of(
+                        new TestDtos.SubjectAnswers("math", answers("10", "20", "30")),
+                        new TestDtos.SubjectAnswers("physics", answers("99", "20", "30"))))));
+        assertEquals("UNKNOWN_OPTION", exception.getError());
+        verifyNoInteractions(testResultRepository, userStatsRepository, itemStatsService, leaderboardService,
+                reviewService);
+    }
+
+    @Test
+    void grade_ShouldKeepPresentedOrder_WhenPositionsAreNotSorted() {
+        // Arrange: вопросы 1..3, правильный вариант q*10
+        AnswerKey key = key(3);
+        List<TestDtos.Answer> answers = List.of(
+                new TestDtos.Answer("1", "10", null),
+                new TestDtos.Answer("3", "31", null));
+
+        // Act
+        TestService.GradedAttempt graded = testService.grade(new Subject(), key, new int[] { 2, 0, 1 }, answers);
+
+        // Assert
+        assertEquals(List.of("3", "1", "2"), graded.answers().stream().map(TestDtos.AnswerResultDto::questionId)
+                .toList());
+        assertEquals(List.of(false, true, false), graded.answers().stream()
+                .map(TestDtos.AnswerResultDto::isCorrect).toList());
+        assertEquals(List.of("31", "10"), graded.answers().stream().limit(2)
+                .map(TestDtos.AnswerResultDto::selectedOptionId).toList());
+        assertEquals(1, graded.correctAnswers());
+    }
+
+    private void stubCombinedSubmit() {
+        Subject math = subject(1L, "math");
+        Subject physics = subject(2L, "physics");
+        User user = new User();
+        user.setId(5L);
+        when(subjectRepository.findByCodeIn(List.of("math", "physics"))).thenReturn(List.of(math, physics));
+        when(answerKeyCache.get(any())).thenReturn(key(3));
+        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+        lenient().when(testResultRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(testResultMapper.toDto(any())).thenAnswer(invocation -> {
+            TestResult tr = invocation.getArgument(0);
+            return new TestDtos.ResultDto(null, null, tr.getSubject().getCode(), null, tr.getScore(),
+                    tr.getMaxScore(), tr.getTotalQuestions(), tr.getCorrectAnswers(), null, null);
+        });
+    }
+
+    private static Subject subject(long id, String code) {
+        Subject subject = new Subject();
+        subject.setId(id);
+        subject.setCode(code);
+        return subject;
+    }
+
+    private static List<TestDtos.Answer> answers(String... selectedOptionIds) {
+        List<TestDtos.Answer> answers = new ArrayList<>();
+        for (int q = 0; q < selectedOptionIds.length; q++) {
+            answers.add(new TestDtos.Answer(Integer.toString(q + 1), selectedOptionIds[q], null));
+        }
+        return answers;
+    }
+
+    private static int size(Iterable<?> values) {
+        return values instanceof Collection<?> collection ? collection.size() : -1;
+    }
+
+    private static AnswerKey key(int questions) {
+        List<QuestionRepository.AnswerKeyRow> rows = new ArrayList<>();
+        for (long q = 1; q <= questions; q++) {
+            rows.add(row(q, q * 10, true));
+            rows.add(row(q, q * 10 + 1, false));
+        }
+        return AnswerKey.build("math", 1L, rows);
+    }
+
+    private static QuestionRepository.AnswerKeyRow row(long questionId, long optionId, boolean correct) {
+        return new QuestionRepository.AnswerKeyRow() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+
+            @Override
+            public Integer getPoints() {
+                return 1;
+            }
+
+            @Override
+            public Long getOptionId() {
+                return optionId;
+            }
+
+            @Override
+            public Boolean getCorrect() {
+                return correct;
+            }
+        };
+    }
 }
@@ -0,0 +1,133 @@
+package com.example.entbridge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    @Test
+    void acquire_ShouldReject_WhenLimitAndQueueAreFull() throws InterruptedException {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 0);
+        limiter.acquire(0);
+        limiter.acquire(0);
+
+        // Act
+        AdaptiveLimiter.Outcome outcome = limiter.acquire(1_000_000);
+
+        // Assert
+        assertEquals(AdaptiveLimiter.Outcome.REJECTED, outcome);
+        assertEquals(2, limiter.inFlight());
+    }
+
+    @Test
+    void release_ShouldAdaptLimitToLatency() throws InterruptedException {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 100, 0);
+
+        // Act: при стабильной задержке и полной загрузке лимит растёт
+        for (int window = 0; window < 5; window++) {
+            saturatedWindow(limiter, 1_000_000);
+        }
+        int grown = limiter.limit();
+        // задержка выросла в 10 раз — лимит снижается
+        for (int window = 0; window < 5; window++) {
+            saturatedWindow(limiter, 10_000_000);
+        }
+
+        // Assert
+        assertTrue(grown > 10, "limit should grow, was " + grown);
+        assertTrue(limiter.limit() < grown, "limit should shrink, was " + limiter.limit());
+    }
+
+    @Test
+    void acquire_ShouldQueue_AndAdmitWhenPermitIsReleased() throws Exception {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1);
+        limiter.acquire(0);
+        CompletableFuture<AdaptiveLimiter.Outcome> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(TimeUnit.SECONDS.toNanos(5));
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        while (limiter.waiting() == 0) {
+            Thread.sleep(1);
+        }
+
+        // Act: пока очередь занята, следующий запрос отклоняется сразу
+        AdaptiveLimiter.Outcome overflow = limiter.acquire(TimeUnit.SECONDS.toNanos(5));
+        limiter.release(1_000_000);
+
+        // Assert
+        assertEquals(AdaptiveLimiter.Outcome.REJECTED, overflow);
+        assertEquals(AdaptiveLimiter.Outcome.QUEUED, queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.inFlight());
+        assertEquals(0, limiter.waiting());
+    }
+
+    @Test
+    void acquire_ShouldReject_WhenWaitExpires_AndLeaveTheQueue() throws InterruptedException {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 4);
+        limiter.acquire(0);
+
+        // Act
+        AdaptiveLimiter.Outcome outcome = limiter.acquire(TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Assert
+        assertEquals(AdaptiveLimiter.Outcome.REJECTED, outcome);
+        assertEquals(0, limiter.waiting());
+        assertEquals(1, limiter.inFlight());
+    }
+
+    @Test
+    void release_ShouldNotGrowLimit_WhenLimitWasNotReached() throws InterruptedException {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 100, 0);
+
+        // Act: запросы идут по одному — лимит ни разу не упёрся
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(0);
+            limiter.release(1_000_000);
+        }
+
+        // Assert
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void release_ShouldKeepLimitWithinBounds() throws InterruptedException {
+        // Arrange: начальный лимит вне границ приводится к ним
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1_000, 3, 12, 0);
+        assertEquals(12, limiter.limit());
+
+        // Act
+        for (int window = 0; window < 20; window++) {
+            saturatedWindow(limiter, 1_000_000);
+        }
+        int grown = limiter.limit();
+        for (int window = 0; window < 40; window++) {
+            saturatedWindow(limiter, 1_000_000_000);
+        }
+
+        // Assert
+        assertEquals(12, grown);
+        assertEquals(3, limiter.limit());
+    }
+
+    private static void saturatedWindow(AdaptiveLimiter limiter, long latencyNanos) throws InterruptedException {
+        int n = limiter.limit();
+        for (int i = 0; i < n; i++) {
+            assertEquals(AdaptiveLimiter.Outcome.ADMITTED, limiter.acquire(0));
+        }
+        for (int i = 0; i < n; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+}
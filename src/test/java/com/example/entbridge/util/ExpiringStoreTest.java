@@ -0,0 +1,89 @@
+package com.example.entbridge.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringStoreTest {
+
+    @Test
+    void put_ShouldRejectNewEntry_WhenFullOfLiveEntries() {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        ExpiringStore<String, String> store = new ExpiringStore<>(2, clock);
+        store.put("a", "1", 1000);
+        store.put("b", "2", 5000);
+
+        // Act & Assert
+        assertFalse(store.put("c", "3", 1000));
+        assertEquals(2, store.size());
+        assertNull(store.get("c"));
+    }
+
+    @Test
+    void put_ShouldEvictExpiredEntries_WhenFull() {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        ExpiringStore<String, String> store = new ExpiringStore<>(2, clock);
+        store.put("a", "1", 1000);
+        store.put("b", "2", 5000);
+        clock.advance(1000);
+
+        // Act
+        boolean added = store.put("c", "3", 1000);
+
+        // Assert: "a" истекла ровно на границе TTL
+        assertTrue(added);
+        assertNull(store.get("a"));
+        assertEquals("2", store.get("b"));
+        assertEquals("3", store.get("c"));
+    }
+
+    @Test
+    void get_ShouldDropEntry_AfterTtl() {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        ExpiringStore<String, String> store = new ExpiringStore<>(10, clock);
+        store.put("a", "1", 1000);
+
+        // Act & Assert
+        clock.advance(999);
+        assertEquals("1", store.get("a"));
+        clock.advance(1);
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}